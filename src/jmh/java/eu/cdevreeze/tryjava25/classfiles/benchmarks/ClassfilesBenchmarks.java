@@ -0,0 +1,60 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.benchmarks;
+
+import module java.base;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Program running the classfiles benchmarks, with the GC profiler enabled, so that allocation rates are reported
+ * along with the timings. The results are written to "target/jmh-result.json", in JMH's JSON format, so that runs
+ * of different releases can be compared.
+ * <p>
+ * The program arguments are regular JMH command line options, for example a regular expression selecting benchmarks.
+ * See the "benchmarks" profile in the POM file for how to run this program.
+ *
+ * @author Chris de Vreeze
+ */
+public class ClassfilesBenchmarks {
+
+    static final Path FIXTURE_DIRECTORY = Path.of("target", "jmh-fixtures");
+
+    static void main(String... args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            optionsBuilder.include(ClassfilesBenchmarks.class.getPackageName() + ".*");
+        }
+
+        Options options = optionsBuilder
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(Path.of("target", "jmh-result.json").toString())
+                .build();
+
+        new Runner(options).run();
+    }
+}
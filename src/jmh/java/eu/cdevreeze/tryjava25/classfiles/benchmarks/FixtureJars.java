@@ -0,0 +1,169 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.benchmarks;
+
+import module java.base;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Generator of reproducible fixture JAR files (and exploded directories) for the benchmarks. The class files are
+ * generated with the {@link ClassFile} API, so the benchmarks do not depend on whatever happens to be on the local
+ * classpath, and the same class count always gives byte-for-byte the same JAR file.
+ * <p>
+ * The generated classes live in packages "fixture.p0" through "fixture.p9". Each class implements interface
+ * "fixture.api.Service", and every fifth class starts a new chain of superclasses. Static method "helper" of each class
+ * calls the "helper" method of the previous class, so the recursive callers of the first "helper" method span many
+ * levels. Method "run" calls "helper", and calls "run" through the interface on a new instance of the next class.
+ *
+ * @author Chris de Vreeze
+ */
+public final class FixtureJars {
+
+    public static final String ROOT_PACKAGE = "fixture";
+    public static final ClassDesc CD_SERVICE = ClassDesc.of(ROOT_PACKAGE + ".api", "Service");
+
+    private static final int PACKAGE_COUNT = 10;
+    private static final int CHAIN_LENGTH = 5;
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private FixtureJars() {
+    }
+
+    public static ClassDesc classDesc(int index) {
+        return ClassDesc.of(ROOT_PACKAGE + ".p" + (index % PACKAGE_COUNT), "C" + index);
+    }
+
+    /**
+     * Returns the fixture JAR file with the given class count in the given directory, generating it first if needed.
+     */
+    public static Path createJarIfAbsent(Path directory, int classCount) {
+        Path jarFile = directory.resolve("fixture-" + classCount + ".jar");
+
+        if (Files.isRegularFile(jarFile)) {
+            return jarFile;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            // Benchmark forks may generate the same JAR concurrently, so write to a temporary file first
+            Path tempFile = Files.createTempFile(directory, "fixture-", ".tmp");
+
+            try (JarOutputStream jarOutputStream = new JarOutputStream(Files.newOutputStream(tempFile))) {
+                for (Map.Entry<String, byte[]> classFile : generateClassFiles(classCount).entrySet()) {
+                    JarEntry jarEntry = new JarEntry(classFile.getKey());
+                    jarEntry.setTimeLocal(ENTRY_TIME);
+                    jarOutputStream.putNextEntry(jarEntry);
+                    jarOutputStream.write(classFile.getValue());
+                    jarOutputStream.closeEntry();
+                }
+            }
+            Files.move(tempFile, jarFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return jarFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the exploded fixture directory with the given class count in the given directory, generating it first if needed.
+     */
+    public static Path createExplodedDirectoryIfAbsent(Path directory, int classCount) {
+        Path explodedDirectory = directory.resolve("fixture-" + classCount);
+
+        if (Files.isDirectory(explodedDirectory)) {
+            return explodedDirectory;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            Path tempDirectory = Files.createTempDirectory(directory, "fixture-");
+
+            for (Map.Entry<String, byte[]> classFile : generateClassFiles(classCount).entrySet()) {
+                Path file = tempDirectory.resolve(classFile.getKey());
+                Files.createDirectories(file.getParent());
+                Files.write(file, classFile.getValue());
+            }
+            Files.move(tempDirectory, explodedDirectory, StandardCopyOption.ATOMIC_MOVE);
+            return explodedDirectory;
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Generated concurrently by another fork
+            return explodedDirectory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates the class files, as mapping from entry names to class file bytes, sorted on entry name.
+     */
+    public static ImmutableSortedMap<String, byte[]> generateClassFiles(int classCount) {
+        ClassFile classFile = ClassFile.of();
+        ImmutableSortedMap.Builder<String, byte[]> result = ImmutableSortedMap.naturalOrder();
+
+        result.put(entryName(CD_SERVICE), generateServiceInterface(classFile));
+
+        for (int i = 0; i < classCount; i++) {
+            result.put(entryName(classDesc(i)), generateClass(classFile, i, classCount));
+        }
+        return result.build();
+    }
+
+    private static byte[] generateServiceInterface(ClassFile classFile) {
+        return classFile.build(CD_SERVICE, classBuilder -> classBuilder
+                .withFlags(AccessFlag.PUBLIC, AccessFlag.INTERFACE, AccessFlag.ABSTRACT)
+                .withSuperclass(ConstantDescs.CD_Object)
+                .withMethod("run", ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC | ClassFile.ACC_ABSTRACT, _ -> {
+                })
+        );
+    }
+
+    private static byte[] generateClass(ClassFile classFile, int index, int classCount) {
+        ClassDesc thisClass = classDesc(index);
+        ClassDesc superclass = index % CHAIN_LENGTH == 0 ? ConstantDescs.CD_Object : classDesc(index - 1);
+        ClassDesc nextClass = classDesc((index + 1) % classCount);
+
+        return classFile.build(thisClass, classBuilder -> classBuilder
+                .withFlags(AccessFlag.PUBLIC, AccessFlag.SUPER)
+                .withSuperclass(superclass)
+                .withInterfaceSymbols(CD_SERVICE)
+                .withMethodBody(ConstantDescs.INIT_NAME, ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, codeBuilder -> codeBuilder
+                        .aload(0)
+                        .invokespecial(superclass, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                        .return_()
+                )
+                .withMethodBody("run", ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC, codeBuilder -> codeBuilder
+                        .invokestatic(thisClass, "helper", ConstantDescs.MTD_void)
+                        .new_(nextClass)
+                        .dup()
+                        .invokespecial(nextClass, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                        .invokeinterface(CD_SERVICE, "run", ConstantDescs.MTD_void)
+                        .return_()
+                )
+                .withMethodBody("helper", ConstantDescs.MTD_void, ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, codeBuilder -> {
+                    if (index > 0) {
+                        codeBuilder.invokestatic(classDesc(index - 1), "helper", ConstantDescs.MTD_void);
+                    }
+                    codeBuilder.return_();
+                })
+        );
+    }
+
+    private static String entryName(ClassDesc classDesc) {
+        String descriptor = classDesc.descriptorString();
+        return descriptor.substring(1, descriptor.length() - 1) + ".class";
+    }
+}
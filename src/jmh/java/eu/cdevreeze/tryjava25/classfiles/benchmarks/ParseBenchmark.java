@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.benchmarks;
+
+import module java.base;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of parsing the fixture JAR file and exploded directory with {@link ClassModelParser}.
+ * <p>
+ * Class file parsing is lazy, so these benchmarks mainly measure reading the bytes and creating the class models.
+ * The exception is the creation of a {@link SummaryClassUniverse}, which walks all code in order to summarize the classes.
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ParseBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    private ClassModelParser classModelParser;
+    private Path jarFile;
+    private Path explodedDirectory;
+
+    @Setup
+    public void setUp() {
+        classModelParser = new ClassModelParser(ClassFile.of());
+        jarFile = FixtureJars.createJarIfAbsent(ClassfilesBenchmarks.FIXTURE_DIRECTORY, classCount);
+        explodedDirectory = FixtureJars.createExplodedDirectoryIfAbsent(ClassfilesBenchmarks.FIXTURE_DIRECTORY, classCount);
+    }
+
+    @Benchmark
+    public ImmutableMap<ClassDesc, ClassModel> parseJarFile() {
+        return classModelParser.parseJarFile(jarFile);
+    }
+
+    @Benchmark
+    public ImmutableMap<ClassDesc, ClassModel> parseMappedJarFile() {
+        return classModelParser.parseMappedJarFile(jarFile);
+    }
+
+    @Benchmark
+    public ImmutableMap<ClassDesc, ClassModel> parseExplodedDirectory() {
+        return classModelParser.parseExplodedDirectory(explodedDirectory);
+    }
+
+    @Benchmark
+    public SummaryClassUniverse createSummaryClassUniverse() {
+        return SummaryClassUniverse.create(classModelParser, jarFile.toString(), Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.benchmarks;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.console.MethodCallsFinder;
+import eu.cdevreeze.tryjava25.classfiles.console.RecursiveMethodCallsFinder;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of building the class universe and its indexes, and of querying them, against the fixture JAR file.
+ * <p>
+ * The class universe is parsed once per trial. The "create" benchmarks measure building the class usage map and the
+ * method call index, and the "find" benchmarks measure queries against the prebuilt (and warm) indexes, as done by the
+ * {@link eu.cdevreeze.tryjava25.classfiles.console.QueryServer}.
+ * <p>
+ * The class universe memoizes supertype closures, so "findAllSupertypesOrSelfMemoized" only measures a lookup of the
+ * memoized result. Benchmark "findAllSupertypesOrSelfFromScratch" queries a fresh class universe (sharing the parsed
+ * class models) per invocation instead. Creating that class universe is cheap, but with setup per invocation the
+ * timer overhead is included in the result, so compare it with care.
+ * <p>
+ * Benchmark "createEnhancedClassUniverseInParallel" builds the same class usage map as "createEnhancedClassUniverse",
+ * for several parallelism levels, to show how building it scales with the number of cores.
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class QueryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    private ImmutableMap<ClassDesc, ClassModel> classModels;
+    private ClassUniverse classUniverse;
+    private EnhancedClassUniverse enhancedClassUniverse;
+    private MethodCallsFinder methodCallsFinder;
+    private RecursiveMethodCallsFinder recursiveMethodCallsFinder;
+    private ClassModel lastClass;
+    private MethodModel firstHelperMethod;
+    private MethodCallIndex.MethodRef serviceRunMethod;
+
+    @Setup
+    public void setUp() {
+        Path jarFile = FixtureJars.createJarIfAbsent(ClassfilesBenchmarks.FIXTURE_DIRECTORY, classCount);
+        classModels = new ClassModelParser(ClassFile.of()).parseJarFile(jarFile);
+        classUniverse = new ClassUniverse(classModels);
+
+        enhancedClassUniverse = EnhancedClassUniverse.create(classUniverse, FixtureJars.ROOT_PACKAGE);
+        methodCallsFinder = new MethodCallsFinder(enhancedClassUniverse, FixtureJars.ROOT_PACKAGE);
+        recursiveMethodCallsFinder = new RecursiveMethodCallsFinder(enhancedClassUniverse, FixtureJars.ROOT_PACKAGE);
+
+        lastClass = classUniverse.resolveClass(FixtureJars.classDesc(classCount - 1));
+        firstHelperMethod = classUniverse.resolveClass(FixtureJars.classDesc(0)).methods().stream()
+                .filter(m -> m.methodName().equalsString("helper"))
+                .findFirst()
+                .orElseThrow();
+        serviceRunMethod = new MethodCallIndex.MethodRef(FixtureJars.CD_SERVICE, "run", ConstantDescs.MTD_void);
+    }
+
+    @Benchmark
+    public EnhancedClassUniverse createEnhancedClassUniverse() {
+        return EnhancedClassUniverse.create(classUniverse, FixtureJars.ROOT_PACKAGE);
+    }
+
+    @Benchmark
+    public EnhancedClassUniverse createEnhancedClassUniverseInParallel(Parallelism parallelism) {
+        return EnhancedClassUniverse.createInParallel(
+                classUniverse,
+                List.of(FixtureJars.ROOT_PACKAGE),
+                parallelism.parallelism
+        );
+    }
+
+    @Benchmark
+    public ImmutableList<ClassModel> findAllSupertypesOrSelfMemoized() {
+        return classUniverse.findAllSupertypesOrSelf(lastClass);
+    }
+
+    @Benchmark
+    public ImmutableList<ClassModel> findAllSupertypesOrSelfFromScratch(FreshClassUniverse freshClassUniverse) {
+        return freshClassUniverse.classUniverse.findAllSupertypesOrSelf(lastClass);
+    }
+
+    @Benchmark
+    public MethodCallsFinder createMethodCallsFinder() {
+        return new MethodCallsFinder(enhancedClassUniverse, FixtureJars.ROOT_PACKAGE);
+    }
+
+    @Benchmark
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCalls() {
+        return methodCallsFinder.findMethodCalls(serviceRunMethod);
+    }
+
+    @Benchmark
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCallsRecursively() {
+        return recursiveMethodCallsFinder.findMethodCallsRecursively(firstHelperMethod);
+    }
+
+    /**
+     * Parallelism used when building the class usage map in parallel. Parallelism levels above the number of available
+     * processors do not make sense.
+     */
+    @State(Scope.Benchmark)
+    public static class Parallelism {
+
+        @Param({"1", "2", "4", "8"})
+        public int parallelism;
+    }
+
+    /**
+     * Class universe without any memoized supertype closures, created anew before each benchmark method invocation.
+     */
+    @State(Scope.Thread)
+    public static class FreshClassUniverse {
+
+        private ClassUniverse classUniverse;
+
+        @Setup(Level.Invocation)
+        public void setUp(QueryBenchmark benchmark) {
+            classUniverse = new ClassUniverse(benchmark.classModels);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.benchmarks;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryjava25.classfiles.console.JsonResultWriter;
+import eu.cdevreeze.tryjava25.classfiles.console.MethodCallsFinder;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModelBinaryFormat;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.datatype.guava.GuavaModule;
+
+/**
+ * Benchmarks of writing method call results in the binary format of {@link DescriptorModelBinaryFormat}, compared to
+ * writing them as newline-delimited JSON with {@link JsonResultWriter}, and of reading the binary format back.
+ * <p>
+ * The results are the calls to "Service.run" in the fixture JAR file, one per class, found once per trial. They are
+ * written to (and read from) memory, so these benchmarks measure encoding and decoding, not I/O. The encoded sizes are
+ * the results of the "write" benchmarks. There is no JSON reading benchmark, since the {@link DescriptorModel} only
+ * has JSON serializers.
+ *
+ * @author Chris de Vreeze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ResultFormatBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    private ImmutableList<DescriptorModel.InvokeInstructionAndContainingMethod> results;
+    private JsonMapper jsonMapper;
+    private byte[] binaryResults;
+
+    @Setup
+    public void setUp() {
+        Path jarFile = FixtureJars.createJarIfAbsent(ClassfilesBenchmarks.FIXTURE_DIRECTORY, classCount);
+        ClassUniverse classUniverse = new ClassUniverse(new ClassModelParser(ClassFile.of()).parseJarFile(jarFile));
+        MethodCallsFinder methodCallsFinder = new MethodCallsFinder(
+                EnhancedClassUniverse.create(classUniverse, FixtureJars.ROOT_PACKAGE),
+                FixtureJars.ROOT_PACKAGE
+        );
+
+        results = methodCallsFinder
+                .findMethodCalls(new MethodCallIndex.MethodRef(FixtureJars.CD_SERVICE, "run", ConstantDescs.MTD_void))
+                .stream()
+                .map(MethodCallIndex.CallSite::toDescriptorModel)
+                .collect(ImmutableList.toImmutableList());
+
+        jsonMapper = JsonMapper.builder()
+                .addModule(new GuavaModule())
+                .addModule(DescriptorModel.createSimpleModule())
+                .build();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DescriptorModelBinaryFormat.Writer writer = DescriptorModelBinaryFormat.Writer.open(bos)) {
+            writer.writeAll(results.stream());
+        }
+        binaryResults = bos.toByteArray();
+    }
+
+    @Benchmark
+    public int writeBinary() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DescriptorModelBinaryFormat.Writer writer = DescriptorModelBinaryFormat.Writer.open(bos)) {
+            writer.writeAll(results.stream());
+        }
+        return bos.size();
+    }
+
+    @Benchmark
+    public int writeJson() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (JsonResultWriter writer = JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.NDJSON, bos)) {
+            writer.writeAll(results.stream());
+        }
+        return bos.size();
+    }
+
+    @Benchmark
+    public List<Object> readBinary() {
+        try (DescriptorModelBinaryFormat.Reader reader =
+                     DescriptorModelBinaryFormat.Reader.open(new ByteArrayInputStream(binaryResults))) {
+            return reader.stream().toList();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import module java.base;
 import com.google.common.base.Preconditions;
 import com.tngtech.archunit.core.domain.JavaClass;
 import com.tngtech.archunit.core.domain.Source;
+import eu.cdevreeze.tryjava25.classfiles.parse.JdkClassResolver;
 
 /**
  * Parsing utility for {@link java.lang.classfile.ClassModel} instances, given {@link com.tngtech.archunit.core.domain.JavaClass}
@@ -31,7 +32,7 @@ public record ClassModelParser(ClassFile classFile) {
 
     public ClassModel parseClassModel(JavaClass javaClass) {
         if (isJavaSeClass(javaClass)) {
-            return parseJavaSeModuleClass(javaClass.getFullName());
+            return JdkClassResolver.getInstance().resolveClass(ClassDesc.of(javaClass.getFullName()));
         }
 
         Optional<Source> sourceOption = javaClass.getSource();
@@ -64,9 +65,7 @@ public record ClassModelParser(ClassFile classFile) {
     }
 
     public boolean isJavaSeClass(JavaClass javaClass) {
-        ModuleReference javaSeModuleRef = ModuleFinder.ofSystem().find("java.se").orElseThrow();
-        Set<String> packages = javaSeModuleRef.descriptor().packages();
-        return packages.contains(javaClass.getPackage().getName());
+        return JdkClassResolver.getInstance().isJavaSePackage(javaClass.getPackageName());
     }
 
     public static String createClassPathStringFromExplodedWarDirectory(Path directory) {
@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableList;
 import com.tngtech.archunit.core.domain.JavaClass;
 import com.tngtech.archunit.core.domain.JavaClasses;
 import eu.cdevreeze.tryjava25.archunitplus.internal.MyGatherers;
+import eu.cdevreeze.tryjava25.classfiles.parse.JdkClassResolver;
 
 /**
  * Utility methods to get all ancestor classes of a class, all implemented interfaces, etc.
@@ -33,7 +34,6 @@ public final class ClassUniverse {
     // Very inefficient at the moment
 
     private final JavaClasses universe;
-    private final FileSystem jrtFileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
 
     public ClassUniverse(JavaClasses universe) {
         this.universe = universe;
@@ -150,24 +150,7 @@ public final class ClassUniverse {
             JavaClass javaClass = Objects.requireNonNull(universe.get(getFullyQualifiedName(classDesc)));
             return new ClassModelParser(ClassFile.of()).parseClassModel(javaClass);
         } else {
-            return parseJavaSeClass(classDesc);
-        }
-    }
-
-    private ClassModel parseJavaSeClass(ClassDesc classDesc) {
-        try {
-            Preconditions.checkArgument(classDesc.isClassOrInterface());
-
-            String packageNameAsPath = classDesc.packageName().replace('.', '/');
-            String simpleClassNameAsFileName = classDesc.displayName() + ".class";
-            String classNameAsPath = packageNameAsPath.isEmpty() ? simpleClassNameAsFileName : packageNameAsPath + "/" + simpleClassNameAsFileName;
-
-            // TODO Module java.se
-            Path classFilePath = jrtFileSystem.getPath("modules", "java.base", classNameAsPath);
-
-            return ClassFile.of().parse(classFilePath);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return JdkClassResolver.getInstance().resolveClass(classDesc);
         }
     }
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+
+/**
+ * Analysis mode of the programs in this package. In mode "full", the programs query a {@link ClassUniverse}, which
+ * retains the parsed {@link ClassModel} instances. In mode "summary", they query a {@link SummaryClassUniverse}
+ * instead, which only retains a compact summary per class. The results are the same in both modes.
+ * <p>
+ * In mode "summary", system property "universeSnapshot" is ignored, and "callResolution" is not supported.
+ *
+ * @author Chris de Vreeze
+ */
+public enum AnalysisMode {
+    FULL, SUMMARY;
+
+    /**
+     * Returns the analysis mode from system property "analysisMode" ("full" or "summary"), defaulting to "full".
+     */
+    public static AnalysisMode fromSystemProperty() {
+        return AnalysisMode.valueOf(System.getProperty("analysisMode", "full").toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.index.CallResolver;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+import eu.cdevreeze.tryjava25.classfiles.jfr.QueryEvent;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import org.jspecify.annotations.Nullable;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Program that finds the callers of many methods at once. Like {@link MethodCallsFinder}, but the bytecode in the
+ * root package is scanned only once for all queried methods together, keeping only the call sites of those methods.
+ * <p>
+ * The only program argument is the path of a file containing the queried methods, one per line. Each line holds the
+ * owner of the method, as fully qualified class name, the method name, and optionally a method type descriptor,
+ * separated by whitespace. Without method type descriptor, all overloads of the method are queried. Empty lines and
+ * lines starting with "#" are ignored.
+ * <p>
+ * The system properties are the same as for {@link MethodCallsFinder}, including "outputFormat", "analysisMode" and
+ * "callResolution", but excluding "offHeapIndexFile". Like in {@link MethodCallsFinder}, call resolution is not
+ * supported in summary mode. With call resolution, each call site is only indexed under the resolved target methods
+ * that are queried, and the constant pool prefilter is not used. The result contains one JSON object per queried
+ * method, in the order of the input file.
+ * <p>
+ * There are many limitations in this program. Most importantly, use of reflection will not be detected.
+ *
+ * @author Chris de Vreeze
+ */
+public class BatchMethodCallsFinder {
+
+    public record MethodCallsResult(
+            MethodCallIndex.MethodRef method,
+            ImmutableList<DescriptorModel.InvokeInstructionAndContainingMethod> methodCalls
+    ) {
+    }
+
+    private final Function<ClassDesc, ImmutableList<MethodCallIndex.MethodRef>> declaredMethodsFinder;
+    private final Function<Predicate<MethodCallIndex.MethodRef>, MethodCallIndex> methodCallIndexFactory;
+    private final int parallelism;
+
+    public BatchMethodCallsFinder(ClassUniverse classUniverse, String rootPackage, int parallelism) {
+        Objects.requireNonNull(classUniverse);
+        Predicate<ClassDesc> isInRootPackage = ConsoleSupport.isInPackage(rootPackage);
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        this.declaredMethodsFinder = classDesc -> classUniverse.resolveClass(classDesc).methods().stream()
+                .map(MethodCallIndex.MethodRef::of)
+                .collect(ImmutableList.toImmutableList());
+        this.parallelism = parallelism;
+        String callResolution = System.getProperty("callResolution", "none");
+
+        if (callResolution.equals("none")) {
+            this.methodCallIndexFactory = calleeMustBeIndexed ->
+                    MethodCallIndex.createInParallel(classUniverse, isInRootPackage, calleeMustBeIndexed, parallelism);
+        } else {
+            CallResolver.Algorithm algorithm = CallResolver.Algorithm.valueOf(callResolution.toUpperCase(Locale.ROOT));
+
+            // Built once, and shared by all batches of queries
+            CallResolver callResolver = AnalysisPhase.run(
+                    "buildCallResolver",
+                    () -> CallResolver.create(classUniverse, algorithm),
+                    _ -> classUniverse.getClassDescs().size()
+            );
+            this.methodCallIndexFactory = targetMustBeIndexed -> MethodCallIndex.createInParallel(
+                    classUniverse,
+                    isInRootPackage,
+                    callResolver,
+                    targetMustBeIndexed,
+                    parallelism
+            );
+        }
+    }
+
+    public BatchMethodCallsFinder(SummaryClassUniverse classUniverse, String rootPackage, int parallelism) {
+        Objects.requireNonNull(classUniverse);
+        Predicate<ClassDesc> isInRootPackage = ConsoleSupport.isInPackage(rootPackage);
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+        Preconditions.checkArgument(
+                System.getProperty("callResolution", "none").equals("none"),
+                "Call resolution is not supported in summary mode"
+        );
+
+        this.declaredMethodsFinder = classDesc -> classUniverse.resolveSummary(classDesc).methods().stream()
+                .map(ClassSummary.MethodSummary::method)
+                .map(MethodCallIndex.MethodRef::of)
+                .collect(ImmutableList.toImmutableList());
+        this.parallelism = parallelism;
+        this.methodCallIndexFactory = calleeMustBeIndexed ->
+                MethodCallIndex.createInParallel(classUniverse, isInRootPackage, calleeMustBeIndexed, parallelism);
+    }
+
+    /**
+     * Parses the queried methods, one per line. Without method type descriptor, all overloads are returned.
+     */
+    public ImmutableList<MethodCallIndex.MethodRef> parseMethodRefs(List<String> lines) {
+        return lines.stream()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .flatMap(line -> parseMethodRefs(line).stream())
+                .distinct()
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Finds the callers of all given methods, scanning the code in the root package only once, in parallel. Then the
+     * callers of the individual methods are looked up in parallel.
+     */
+    public ImmutableList<MethodCallsResult> findMethodCalls(List<MethodCallIndex.MethodRef> methods) {
+        ImmutableSet<MethodCallIndex.MethodRef> queriedMethods = ImmutableSet.copyOf(methods);
+
+        // One pass over the bytecode, with one hash lookup per invoke instruction, skipping classes not referring to
+        // any of the queried methods in their constant pool
+        MethodCallIndex methodCallIndex = AnalysisPhase.run(
+                "buildMethodCallIndex",
+                () -> methodCallIndexFactory.apply(MethodCallIndex.isAnyOf(queriedMethods)),
+                MethodCallIndex::size
+        );
+
+        // Not present in summary mode or with call resolution, where no classes are skipped
+        ConsoleSupport.logPrefilterStatistics(methodCallIndex.getPrefilterStatistics());
+
+        // The queries run concurrently against the shared immutable index, with the same parallelism. The results are
+        // in the order of the queried methods, since encounter order is retained
+        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+            return forkJoinPool.submit(() ->
+                    queriedMethods.asList().parallelStream()
+                            .map(method -> findMethodCalls(method, methodCallIndex))
+                            .collect(ImmutableList.toImmutableList())
+            ).join();
+        }
+    }
+
+    private MethodCallsResult findMethodCalls(MethodCallIndex.MethodRef method, MethodCallIndex methodCallIndex) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+
+        MethodCallsResult result = new MethodCallsResult(
+                method,
+                methodCallIndex.findCallSites(method).stream()
+                        .map(MethodCallIndex.CallSite::toDescriptorModel)
+                        .distinct()
+                        .collect(ImmutableList.toImmutableList())
+        );
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryType = "callers";
+            event.query = method.toString();
+            event.resultCount = result.methodCalls().size();
+            event.commit();
+        }
+        return result;
+    }
+
+    private ImmutableList<MethodCallIndex.MethodRef> parseMethodRefs(String line) {
+        List<String> words = Arrays.stream(line.split("\\s+")).toList();
+        Preconditions.checkArgument(words.size() == 2 || words.size() == 3, "Expected class, method and optional descriptor: '%s'", line);
+
+        ClassDesc owner = ConsoleSupport.parseClassDesc(words.get(0));
+        String methodName = words.get(1);
+
+        if (words.size() == 3) {
+            return ImmutableList.of(new MethodCallIndex.MethodRef(owner, methodName, MethodTypeDesc.ofDescriptor(words.get(2))));
+        }
+
+        return declaredMethodsFinder.apply(owner).stream()
+                .filter(method -> method.methodName().equals(methodName))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    static void main(String... args) throws IOException {
+        Objects.checkIndex(0, args.length);
+        Path queryFile = Path.of(args[0]);
+
+        String inspectionClasspath = System.getProperty("inspectionClasspath");
+        Objects.requireNonNull(inspectionClasspath);
+
+        String inspectionRootPackage = System.getProperty("inspectionRootPackage");
+        Objects.requireNonNull(inspectionRootPackage);
+
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+        BatchMethodCallsFinder batchMethodCallsFinder = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> new BatchMethodCallsFinder(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism),
+                    inspectionRootPackage,
+                    parseParallelism
+            );
+            // Expensive call, but not retaining any class model
+            case SUMMARY -> new BatchMethodCallsFinder(
+                    SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism),
+                    inspectionRootPackage,
+                    parseParallelism
+            );
+        };
+
+        ImmutableList<MethodCallIndex.MethodRef> methods =
+                batchMethodCallsFinder.parseMethodRefs(Files.readAllLines(queryFile, StandardCharsets.UTF_8));
+
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper(createSimpleModule());
+
+        ImmutableList<MethodCallsResult> results = batchMethodCallsFinder.findMethodCalls(methods);
+
+        AnalysisPhase.run("writeResults", () -> {
+            try (JsonResultWriter resultWriter =
+                         JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.fromSystemProperty(), System.out)) {
+                results.forEach(resultWriter::write);
+            }
+        });
+        System.out.println();
+    }
+
+    private static final class MethodCallsResultSerializer extends StdSerializer<MethodCallsResult> {
+
+        public MethodCallsResultSerializer() {
+            this(null);
+        }
+
+        public MethodCallsResultSerializer(@Nullable Class<MethodCallsResult> t) {
+            super(t);
+        }
+
+        @Override
+        public void serialize(MethodCallsResult value, JsonGenerator gen, SerializationContext ctxt) throws JacksonException {
+            gen.writeStartObject();
+            gen.writeObjectPropertyStart("method");
+            gen.writeStringProperty("owner", value.method().owner().descriptorString());
+            gen.writeStringProperty("methodName", value.method().methodName());
+            gen.writeStringProperty("methodTypeSymbol", value.method().methodTypeDesc().descriptorString());
+            gen.writeEndObject();
+            gen.writeArrayPropertyStart("methodCalls");
+            // Assumes availability of InvokeInstructionAndContainingMethodSerializer
+            value.methodCalls().forEach(gen::writePOJO);
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * {@link SimpleModule} to be registered with the {@link tools.jackson.databind.json.JsonMapper}.
+     */
+    static SimpleModule createSimpleModule() {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(MethodCallsResult.class, new MethodCallsResultSerializer());
+        return module;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModelBinaryFormat;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Program that converts a results file in the binary format of {@link DescriptorModelBinaryFormat} to JSON, for humans.
+ * Such results files are written by programs like {@link MethodCallsFinder} if system property "binaryOutputFile" is set.
+ * <p>
+ * The only program argument is the path of the binary results file. The JSON is written to standard output.
+ * <p>
+ * The optional system property "outputFormat" is either "json" (the default) or "ndjson" (newline-delimited JSON).
+ * In both cases, the results are converted one at a time, without loading the entire file into memory.
+ * See {@link JsonResultWriter}.
+ *
+ * @author Chris de Vreeze
+ */
+public class BinaryResultConverter {
+
+    static void main(String... args) {
+        Objects.checkIndex(0, args.length);
+        Path binaryResultFile = Path.of(args[0]);
+
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper();
+
+        try (DescriptorModelBinaryFormat.Reader resultReader = DescriptorModelBinaryFormat.Reader.open(binaryResultFile);
+             JsonResultWriter resultWriter =
+                     JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.fromSystemProperty(), System.out)) {
+            resultWriter.writeAll(resultReader.stream());
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+
+/**
+ * Source of the call sites of methods, in terms of {@link MethodCallIndex.MethodRef} and {@link MethodCallIndex.CallSite}
+ * only, so it works in both analysis modes (see {@link AnalysisMode}). In full mode, it is implemented by
+ * {@link MethodCallsFinder}, which also offers overloads taking {@link MethodModel} instances. In summary mode, it is
+ * created with method {@link #of(SummaryClassUniverse, String, Predicate)}.
+ *
+ * @author Chris de Vreeze
+ */
+public interface CallSiteSource {
+
+    /**
+     * Finds the method declared by the given class, with the given name and optional method type descriptor.
+     */
+    Optional<MethodCallIndex.MethodRef> findMethodRef(
+            ClassDesc owner,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption);
+
+    /**
+     * Returns the calls to the given method, as a lazy stream, without duplicates.
+     */
+    Stream<MethodCallIndex.CallSite> streamMethodCalls(MethodCallIndex.MethodRef methodRef);
+
+    default ImmutableList<MethodCallIndex.CallSite> findMethodCalls(MethodCallIndex.MethodRef methodRef) {
+        return streamMethodCalls(methodRef).collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns the statistics of the constant pool prefilter, if that prefilter has been used. It is not used in
+     * summary mode, for example.
+     */
+    Optional<MethodCallIndex.PrefilterStatistics> getPrefilterStatistics();
+
+    /**
+     * Creates a call site source from the class summaries, only indexing the calls in the root package to methods
+     * matching the given predicate.
+     */
+    static CallSiteSource of(
+            SummaryClassUniverse classUniverse,
+            String rootPackage,
+            Predicate<MethodCallIndex.MethodRef> calleeMustBeIndexed) {
+        return IndexedCallSiteSource.create(classUniverse, rootPackage, calleeMustBeIndexed);
+    }
+}
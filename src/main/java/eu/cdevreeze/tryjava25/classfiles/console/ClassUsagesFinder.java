@@ -0,0 +1,136 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
+import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
+import org.jspecify.annotations.Nullable;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Program that finds all classes in the root package containing methods that call into a given class. It uses the
+ * class usage map of an {@link EnhancedClassUniverse}, which is built in parallel.
+ * <p>
+ * The only program argument is the fully qualified class name of the used class.
+ * <p>
+ * The following system properties are used: "inspectionClasspath" and "inspectionRootPackage".
+ * The first one is a classpath string, as output by Maven command "mvn dependency:build-classpath", preferably
+ * enhanced with a directory containing the compilation output (such as "target/classes").
+ * <p>
+ * The optional system property "parseParallelism" determines the parallelism used when parsing the classpath,
+ * as well as when building the class usage map. It defaults to the number of available processors.
+ * <p>
+ * The optional system property "universeSnapshot" is the path of a {@link ClassUniverseSnapshot} file. If it is
+ * up-to-date, the class universe is loaded lazily from it instead of parsing the classpath, and otherwise it is (re)written.
+ * The class usage map is then stored in its own snapshot file next to it (see
+ * {@link ClassUniverseSnapshot#classUsageMapFile(Path, List)}), so that it is not built again either.
+ * <p>
+ * The "inspectionRootPackage" limits the scope of the code where the using classes are searched. Only classes whose
+ * package name starts with it are scanned when building the class usage map.
+ *
+ * @author Chris de Vreeze
+ */
+public class ClassUsagesFinder {
+
+    public record ClassUsagesResult(ClassDesc usedClass, ImmutableList<ClassDesc> usingClasses) {
+    }
+
+    private final EnhancedClassUniverse classUniverse;
+
+    public ClassUsagesFinder(EnhancedClassUniverse classUniverse) {
+        this.classUniverse = Objects.requireNonNull(classUniverse);
+    }
+
+    public ClassUsagesResult findClassUsages(ClassDesc usedClass) {
+        return new ClassUsagesResult(
+                usedClass,
+                classUniverse.getClassUsageMap().getOrDefault(usedClass, ImmutableList.of())
+        );
+    }
+
+    static void main(String... args) {
+        Objects.checkIndex(0, args.length);
+        String className = args[0];
+
+        String inspectionClasspath = System.getProperty("inspectionClasspath");
+        Objects.requireNonNull(inspectionClasspath);
+
+        String inspectionRootPackage = System.getProperty("inspectionRootPackage");
+        Objects.requireNonNull(inspectionRootPackage);
+
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+        EnhancedClassUniverse classUniverse = ConsoleSupport.loadEnhancedClassUniverse(
+                classModelParser,
+                inspectionClasspath,
+                List.of(inspectionRootPackage),
+                parseParallelism
+        );
+
+        ClassUsagesFinder classUsagesFinder = new ClassUsagesFinder(classUniverse);
+
+        ClassUsagesResult classUsagesResult = classUsagesFinder.findClassUsages(ConsoleSupport.parseClassDesc(className));
+
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper(createSimpleModule());
+        String resultJson = jsonMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(classUsagesResult);
+        System.out.println(resultJson);
+    }
+
+    private static final class ClassUsagesResultSerializer extends StdSerializer<ClassUsagesResult> {
+
+        public ClassUsagesResultSerializer() {
+            this(null);
+        }
+
+        public ClassUsagesResultSerializer(@Nullable Class<ClassUsagesResult> t) {
+            super(t);
+        }
+
+        @Override
+        public void serialize(ClassUsagesResult value, JsonGenerator gen, SerializationContext ctxt) throws JacksonException {
+            gen.writeStartObject();
+            gen.writeStringProperty("usedClass", value.usedClass().descriptorString());
+            gen.writeArrayPropertyStart("usingClasses");
+            value.usingClasses().forEach(usingClass -> {
+                gen.writeString(usingClass.descriptorString());
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * {@link SimpleModule} to be registered with the {@link tools.jackson.databind.json.JsonMapper}.
+     */
+    static SimpleModule createSimpleModule() {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(ClassUsagesResult.class, new ClassUsagesResultSerializer());
+        return module;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.index.ClassGraph;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.index.OffHeapClassGraph;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassLocationIndex;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassPathFingerprint;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
+import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.datatype.guava.GuavaModule;
+
+/**
+ * Support for the console programs in this package, handling the system properties they have in common.
+ *
+ * @author Chris de Vreeze
+ */
+final class ConsoleSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsoleSupport.class);
+
+    private ConsoleSupport() {
+    }
+
+    /**
+     * Returns the parallelism used when parsing the classpath, which is optional system property "parseParallelism",
+     * defaulting to the number of available processors.
+     */
+    static int parseParallelism() {
+        return Integer.parseInt(
+                System.getProperty("parseParallelism", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Parses a (binary) class name, such as "java.util.Map$Entry", into a {@link ClassDesc}.
+     */
+    static ClassDesc parseClassDesc(String className) {
+        int idx = className.lastIndexOf('.');
+        String packageName = idx < 0 ? "" : className.substring(0, idx);
+        String simpleClassName = idx < 0 ? className : className.substring(idx + 1);
+        return ClassDesc.of(packageName, simpleClassName);
+    }
+
+    /**
+     * Returns a predicate that tests whether a class is in the given package or one of its sub-packages.
+     */
+    static Predicate<ClassDesc> isInPackage(String rootPackage) {
+        Objects.requireNonNull(rootPackage);
+        return c -> c.packageName().equals(rootPackage) || c.packageName().startsWith(rootPackage + ".");
+    }
+
+    /**
+     * Creates the {@link JsonMapper} used for writing results, which knows about Guava collections and the
+     * {@link DescriptorModel}, as well as about the result types of the given extra modules.
+     */
+    static JsonMapper createJsonMapper(SimpleModule... extraModules) {
+        return JsonMapper.builder()
+                .addModule(new GuavaModule())
+                .addModule(DescriptorModel.createSimpleModule())
+                .addModules(extraModules)
+                .build();
+    }
+
+    /**
+     * Parses the classpath into a {@link ClassUniverse}, unless optional system property "universeSnapshot" points to
+     * an up-to-date {@link ClassUniverseSnapshot}, from which the class universe is then loaded lazily. If the snapshot
+     * is missing or outdated, it is (re)written after parsing the classpath.
+     * <p>
+     * Otherwise, if optional system property "lazyClassCacheSize" is set, the classpath is not parsed up-front. Instead,
+     * the class universe is created lazily from a {@link ClassLocationIndex}, parsing classes on demand and caching
+     * at most that number of them (see {@link ClassUniverse#lazy(ClassLocationIndex, long)}). The index remains open
+     * for the lifetime of the program, since the returned class universe loads classes from it.
+     */
+    static ClassUniverse loadClassUniverse(ClassModelParser classModelParser, String inspectionClasspath, int parseParallelism) {
+        Optional<Long> lazyClassCacheSizeOption =
+                Optional.ofNullable(System.getProperty("lazyClassCacheSize")).map(Long::parseLong);
+
+        if (System.getProperty("universeSnapshot") == null && lazyClassCacheSizeOption.isPresent()) {
+            // Cheap call, only indexing the class file locations
+            return AnalysisPhase.run(
+                    "indexClassLocations",
+                    () -> ClassUniverse.lazy(
+                            ClassLocationIndex.create(classModelParser, inspectionClasspath),
+                            lazyClassCacheSizeOption.get()
+                    ),
+                    u -> u.getClassDescs().size()
+            );
+        }
+
+        Supplier<ClassUniverse> classUniverseCreator =
+                classUniverseCreator(classModelParser, inspectionClasspath, parseParallelism);
+
+        // Cheap call if there is an up-to-date universe snapshot
+        return Optional.ofNullable(System.getProperty("universeSnapshot"))
+                .map(snapshotFile -> ClassUniverseSnapshot.loadOrCreate(
+                        Path.of(snapshotFile),
+                        inspectionClasspath,
+                        classModelParser.classFile(),
+                        classUniverseCreator
+                ))
+                .orElseGet(classUniverseCreator);
+    }
+
+    /**
+     * Loads the class universe like {@link #loadClassUniverse(ClassModelParser, String, int)}, and builds the class usage
+     * map of the {@link EnhancedClassUniverse} for the given root packages in parallel, with the given parallelism.
+     * If optional system property "universeSnapshot" is set, the class usage map is loaded from its own snapshot file
+     * next to the universe snapshot, if that one is up-to-date, and otherwise it is (re)written after building it.
+     */
+    static EnhancedClassUniverse loadEnhancedClassUniverse(
+            ClassModelParser classModelParser,
+            String inspectionClasspath,
+            List<String> packageNameStartStrings,
+            int parallelism) {
+        Supplier<ClassUniverse> classUniverseCreator =
+                classUniverseCreator(classModelParser, inspectionClasspath, parallelism);
+        // Expensive call
+        Function<ClassUniverse, EnhancedClassUniverse> enhancedClassUniverseCreator =
+                classUniverse -> EnhancedClassUniverse.createInParallel(classUniverse, packageNameStartStrings, parallelism);
+
+        // Cheap call if there are up-to-date universe and class usage map snapshots
+        return Optional.ofNullable(System.getProperty("universeSnapshot"))
+                .map(snapshotFile -> ClassUniverseSnapshot.loadOrCreate(
+                        Path.of(snapshotFile),
+                        inspectionClasspath,
+                        packageNameStartStrings,
+                        classModelParser.classFile(),
+                        classUniverseCreator,
+                        enhancedClassUniverseCreator
+                ))
+                .orElseGet(() -> enhancedClassUniverseCreator.apply(classUniverseCreator.get()));
+    }
+
+    /**
+     * Returns the type hierarchy queried in full mode, which is the compact {@link ClassGraph} of the class universe.
+     * If optional system property "offHeapClassGraphFile" is set, the returned type hierarchy is the
+     * {@link OffHeapClassGraph} memory-mapped from that file, so that the class graph itself no longer takes heap space.
+     * The class universe (and its class models) remains on the heap, though. If the file has been written for the same
+     * classpath before (see {@link #mapOrCreateOffHeapFile(Path, Optional, Function, Consumer)}), it is mapped without
+     * building the class graph. Otherwise, the class graph is first built on the heap and then written to the file,
+     * so the peak heap usage of that run is not reduced.
+     */
+    static TypeHierarchy createTypeHierarchy(ClassUniverse classUniverse) {
+        Supplier<ClassGraph> classGraphCreator =
+                () -> AnalysisPhase.run("buildClassGraph", () -> ClassGraph.create(classUniverse), ClassGraph::size);
+
+        Optional<Path> offHeapClassGraphFileOption =
+                Optional.ofNullable(System.getProperty("offHeapClassGraphFile")).map(Path::of);
+
+        if (offHeapClassGraphFileOption.isPresent()) {
+            return mapOrCreateOffHeapFile(
+                    offHeapClassGraphFileOption.get(),
+                    offHeapFileKey(ImmutableMap.of()),
+                    file -> AnalysisPhase.run(
+                            "mapOffHeapClassGraph",
+                            // The automatic arena keeps the mapping alive as long as the returned class graph is reachable
+                            () -> OffHeapClassGraph.map(file, Arena.ofAuto()),
+                            OffHeapClassGraph::size
+                    ),
+                    file -> {
+                        ClassGraph classGraph = classGraphCreator.get();
+                        try (Arena arena = Arena.ofConfined()) {
+                            OffHeapClassGraph.create(classGraph, arena).writeTo(file);
+                        }
+                    }
+            );
+        } else {
+            return classGraphCreator.get();
+        }
+    }
+
+    /**
+     * Returns the key of an off-heap file holding data derived from the classes on the classpath of system property
+     * "inspectionClasspath". The key consists of the {@link ClassPathFingerprint} of that classpath and the given
+     * parameters (such as the root package) that the data depends on as well. If the system property is not set, no key
+     * is returned, so the off-heap file cannot be reused.
+     */
+    static Optional<String> offHeapFileKey(ImmutableMap<String, String> parameters) {
+        return Optional.ofNullable(System.getProperty("inspectionClasspath"))
+                .map(ClassPathFingerprint::of)
+                .map(fingerprint -> Stream.concat(
+                                fingerprint.entries().stream().map(e ->
+                                        String.join(" ", "entry", e.path(), String.valueOf(e.size()),
+                                                String.valueOf(e.lastModifiedMillis()), String.valueOf(e.fileCount()))),
+                                parameters.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue())
+                        ).collect(Collectors.joining("\n", "", "\n"))
+                );
+    }
+
+    /**
+     * Maps the given off-heap file with the given mapper, if the key file next to it (with extra file extension ".key")
+     * holds the given key. In that case the file was written for the same data, and nothing needs to be built.
+     * Otherwise (or if the file turns out to be corrupt), the file is (re)written with the given writer, its key is
+     * written (if any), and the file is mapped. The writer typically builds the data on the heap first, so a run that
+     * writes the file does not have a lower peak heap usage.
+     */
+    static <T> T mapOrCreateOffHeapFile(Path file, Optional<String> keyOption, Function<Path, T> mapper, Consumer<Path> writer) {
+        Path keyFile = file.resolveSibling(file.getFileName().toString() + ".key");
+
+        try {
+            if (keyOption.isPresent() && Files.isRegularFile(file) && Files.isRegularFile(keyFile) &&
+                    Files.readString(keyFile, StandardCharsets.UTF_8).equals(keyOption.get())) {
+                try {
+                    return mapper.apply(file);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    logger.warn("Rewriting corrupt off-heap file {}", file);
+                }
+            }
+
+            // The key file is removed first, so an interrupted write never leaves a seemingly valid file behind
+            Files.deleteIfExists(keyFile);
+            writer.accept(file);
+            if (keyOption.isPresent()) {
+                Files.writeString(keyFile, keyOption.get(), StandardCharsets.UTF_8);
+            }
+            return mapper.apply(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Logs the statistics of the constant pool prefilter (at info level), if the prefilter has been used.
+     */
+    static void logPrefilterStatistics(Optional<MethodCallIndex.PrefilterStatistics> prefilterStatisticsOption) {
+        prefilterStatisticsOption.ifPresent(prefilterStatistics ->
+                logger.atInfo()
+                        .setMessage("Skipped {} of {} classes (skip rate {})")
+                        .addArgument(prefilterStatistics.skippedClassCount())
+                        .addArgument(prefilterStatistics.classCount())
+                        .addArgument(() -> String.format(Locale.ROOT, "%.3f", prefilterStatistics.skipRate()))
+                        .log()
+        );
+    }
+
+    private static Supplier<ClassUniverse> classUniverseCreator(
+            ClassModelParser classModelParser,
+            String inspectionClasspath,
+            int parseParallelism) {
+        // Expensive call
+        return () -> new ClassUniverse(classModelParser.parseClassPathInParallel(inspectionClasspath, parseParallelism));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import eu.cdevreeze.tryjava25.classfiles.data.MethodAndContainingClass;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.index.CallResolver;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.index.OffHeapMethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.internal.MyGatherers;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+
+/**
+ * {@link CallSiteSource} backed by a {@link MethodCallIndex}, built once, for both analysis modes. It uses the system
+ * properties "callResolution" and "offHeapIndexFile", as documented in {@link MethodCallsFinder}.
+ *
+ * @author Chris de Vreeze
+ */
+final class IndexedCallSiteSource implements CallSiteSource {
+
+    private final Function<ClassDesc, ImmutableList<DescriptorModel.Method>> declaredMethodsFinder;
+    private final Function<MethodCallIndex.MethodRef, ImmutableList<MethodCallIndex.CallSite>> callSiteFinder;
+    private final Optional<MethodCallIndex.PrefilterStatistics> prefilterStatistics;
+
+    private IndexedCallSiteSource(
+            Function<ClassDesc, ImmutableList<DescriptorModel.Method>> declaredMethodsFinder,
+            Function<MethodCallIndex.MethodRef, ImmutableList<MethodCallIndex.CallSite>> callSiteFinder,
+            Optional<MethodCallIndex.PrefilterStatistics> prefilterStatistics) {
+        this.declaredMethodsFinder = declaredMethodsFinder;
+        this.callSiteFinder = callSiteFinder;
+        this.prefilterStatistics = prefilterStatistics;
+    }
+
+    static IndexedCallSiteSource create(
+            ClassUniverse classUniverse,
+            String rootPackage,
+            Predicate<MethodCallIndex.MethodRef> calleeMustBeIndexed) {
+        Objects.requireNonNull(calleeMustBeIndexed);
+        Predicate<ClassDesc> isInRootPackage = ConsoleSupport.isInPackage(rootPackage);
+        String callResolution = System.getProperty("callResolution", "none");
+
+        // Expensive call, but only once, after which finding method calls is cheap
+        Supplier<MethodCallIndex> methodCallIndexCreator = () -> callResolution.equals("none") ?
+                AnalysisPhase.run(
+                        "buildMethodCallIndex",
+                        () -> MethodCallIndex.create(classUniverse, isInRootPackage, calleeMustBeIndexed),
+                        MethodCallIndex::size
+                ) :
+                createMethodCallIndexWithCallResolution(
+                        classUniverse,
+                        isInRootPackage,
+                        CallResolver.Algorithm.valueOf(callResolution.toUpperCase(Locale.ROOT)),
+                        calleeMustBeIndexed
+                );
+
+        return create(
+                classDesc -> classUniverse.resolveClass(classDesc).methods().stream()
+                        .map(methodModel -> MethodAndContainingClass.of(methodModel).toDescriptorModel())
+                        .collect(ImmutableList.toImmutableList()),
+                methodCallIndexCreator,
+                ImmutableMap.of("analysisMode", "full", "rootPackage", rootPackage, "callResolution", callResolution),
+                calleeMustBeIndexed
+        );
+    }
+
+    static IndexedCallSiteSource create(
+            SummaryClassUniverse classUniverse,
+            String rootPackage,
+            Predicate<MethodCallIndex.MethodRef> calleeMustBeIndexed) {
+        Objects.requireNonNull(calleeMustBeIndexed);
+        Predicate<ClassDesc> isInRootPackage = ConsoleSupport.isInPackage(rootPackage);
+        Preconditions.checkArgument(
+                System.getProperty("callResolution", "none").equals("none"),
+                "Call resolution is not supported in summary mode"
+        );
+
+        // Expensive call, but only once, after which finding method calls is cheap
+        Supplier<MethodCallIndex> methodCallIndexCreator = () -> AnalysisPhase.run(
+                "buildMethodCallIndex",
+                () -> MethodCallIndex.create(classUniverse, isInRootPackage, calleeMustBeIndexed),
+                MethodCallIndex::size
+        );
+
+        return create(
+                classDesc -> classUniverse.resolveSummary(classDesc).methods().stream()
+                        .map(ClassSummary.MethodSummary::method)
+                        .collect(ImmutableList.toImmutableList()),
+                methodCallIndexCreator,
+                ImmutableMap.of("analysisMode", "summary", "rootPackage", rootPackage),
+                calleeMustBeIndexed
+        );
+    }
+
+    @Override
+    public Optional<MethodCallIndex.MethodRef> findMethodRef(
+            ClassDesc owner,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption) {
+        return declaredMethodsFinder.apply(owner).stream()
+                .filter(method -> method.methodName().equals(methodName))
+                .filter(method -> methodTypeDescOption.stream().allMatch(mtd -> method.methodTypeDesc().equals(mtd)))
+                .findFirst()
+                .map(MethodCallIndex.MethodRef::of);
+    }
+
+    @Override
+    public Stream<MethodCallIndex.CallSite> streamMethodCalls(MethodCallIndex.MethodRef methodRef) {
+        // TODO Check against JVM spec, i.e., https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-6.html
+        // TODO Also look at https://www.guardsquare.com/blog/behind-the-scenes-of-jvm-method-invocations
+
+        return callSiteFinder.apply(methodRef)
+                .stream()
+                .gather(MyGatherers.distinctBy(MethodCallIndex.CallSite::toDescriptorModel));
+    }
+
+    @Override
+    public Optional<MethodCallIndex.PrefilterStatistics> getPrefilterStatistics() {
+        return prefilterStatistics;
+    }
+
+    /**
+     * Creates the call site source, with an off-heap index if system property "offHeapIndexFile" is set. An existing
+     * index file is reused if it has been written for the same classpath, index parameters and called methods, in which
+     * case no index is built on the heap, and there are no prefilter statistics. The file cannot be reused if the
+     * called methods to index cannot be described (see {@link MethodCallIndex#describeCalleeFilter(Predicate)}).
+     */
+    private static IndexedCallSiteSource create(
+            Function<ClassDesc, ImmutableList<DescriptorModel.Method>> declaredMethodsFinder,
+            Supplier<MethodCallIndex> methodCallIndexCreator,
+            ImmutableMap<String, String> indexParameters,
+            Predicate<MethodCallIndex.MethodRef> calleeMustBeIndexed) {
+        Optional<Path> offHeapIndexFileOption = Optional.ofNullable(System.getProperty("offHeapIndexFile")).map(Path::of);
+
+        if (offHeapIndexFileOption.isEmpty()) {
+            MethodCallIndex methodCallIndex = methodCallIndexCreator.get();
+            return new IndexedCallSiteSource(
+                    declaredMethodsFinder,
+                    methodCallIndex::findCallSites,
+                    methodCallIndex.getPrefilterStatistics()
+            );
+        }
+
+        Optional<String> keyOption = MethodCallIndex.describeCalleeFilter(calleeMustBeIndexed)
+                .flatMap(callees -> ConsoleSupport.offHeapFileKey(
+                        ImmutableMap.<String, String>builder().putAll(indexParameters).put("callees", callees).build()
+                ));
+        // Only set if the index is built (on the heap) instead of reusing the file
+        AtomicReference<Optional<MethodCallIndex.PrefilterStatistics>> prefilterStatistics =
+                new AtomicReference<>(Optional.empty());
+
+        OffHeapMethodCallIndex offHeapMethodCallIndex = ConsoleSupport.mapOrCreateOffHeapFile(
+                offHeapIndexFileOption.get(),
+                keyOption,
+                file -> AnalysisPhase.run(
+                        "mapOffHeapMethodCallIndex",
+                        // The mapping lives as long as the returned index is reachable, and it can be read from any thread
+                        () -> OffHeapMethodCallIndex.map(file, Arena.ofAuto()),
+                        OffHeapMethodCallIndex::size
+                ),
+                file -> {
+                    // The index on the heap is no longer referenced after it has been written
+                    MethodCallIndex methodCallIndex = methodCallIndexCreator.get();
+                    prefilterStatistics.set(methodCallIndex.getPrefilterStatistics());
+                    try (Arena arena = Arena.ofConfined()) {
+                        OffHeapMethodCallIndex.create(methodCallIndex, arena).writeTo(file);
+                    }
+                }
+        );
+        return new IndexedCallSiteSource(declaredMethodsFinder, offHeapMethodCallIndex::findCallSites, prefilterStatistics.get());
+    }
+
+    private static MethodCallIndex createMethodCallIndexWithCallResolution(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> isInRootPackage,
+            CallResolver.Algorithm algorithm,
+            Predicate<MethodCallIndex.MethodRef> targetMustBeIndexed) {
+        CallResolver callResolver = AnalysisPhase.run(
+                "buildCallResolver",
+                () -> CallResolver.create(classUniverse, algorithm),
+                _ -> classUniverse.getClassDescs().size()
+        );
+
+        return AnalysisPhase.run(
+                "buildMethodCallIndex",
+                () -> MethodCallIndex.create(classUniverse, isInRootPackage, callResolver, targetMustBeIndexed),
+                MethodCallIndex::size
+        );
+    }
+}
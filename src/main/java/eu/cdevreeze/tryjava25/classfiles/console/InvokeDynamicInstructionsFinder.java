@@ -22,11 +22,12 @@ import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.tryjava25.classfiles.data.InvokeDynamicInstructionAndContainingMethod;
 import eu.cdevreeze.tryjava25.classfiles.data.MethodAndContainingClass;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModelBinaryFormat;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
-import tools.jackson.databind.SerializationFeature;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
 import tools.jackson.databind.json.JsonMapper;
-import tools.jackson.datatype.guava.GuavaModule;
 
 /**
  * Program that finds all invoke-dynamic instructions in a given class.
@@ -38,12 +39,35 @@ import tools.jackson.datatype.guava.GuavaModule;
  * This is a classpath string, as output by Maven command "mvn dependency:build-classpath", preferably
  * enhanced with a directory containing the compilation output (such as "target/classes").
  * <p>
+ * The optional system property "parseParallelism" determines the parallelism used when parsing the classpath.
+ * It defaults to the number of available processors.
+ * <p>
+ * The optional system property "universeSnapshot" is the path of a {@link ClassUniverseSnapshot} file. If it is
+ * up-to-date, the class universe is loaded lazily from it instead of parsing the classpath, and otherwise it is (re)written.
+ * <p>
+ * The optional system property "lazyClassCacheSize" (ignored if "universeSnapshot" is set) avoids parsing the classpath
+ * up-front. Classes are then parsed on demand, and at most that number of parsed classes is retained.
+ * <p>
+ * The optional system property "outputFormat" is either "json" (the default) or "ndjson" (newline-delimited JSON).
+ * In both cases, results are written as soon as they are found. See {@link JsonResultWriter}.
+ * <p>
+ * The optional system property "binaryOutputFile" is the path of a file to which the results are written in the compact
+ * binary format of {@link DescriptorModelBinaryFormat}, instead of writing JSON to standard output. Such a file can be
+ * converted to JSON with {@link BinaryResultConverter}.
+ * <p>
+ * The optional system property "analysisMode" is either "full" (the default) or "summary". See {@link AnalysisMode}.
+ * That mode does not use this class, but an {@link InvokeDynamicSource} created from the summaries.
+ * <p>
+ * If the optional system property "lambdaImplementations" is "true", only the invoke-dynamic instructions creating
+ * lambdas or method references are considered, and the implementation methods they refer to are written instead, as
+ * "invokedynamic" calls from the enclosing methods. See {@link InvokeDynamicSource#streamLambdaImplementationCalls(ClassDesc)}.
+ * <p>
  * There are many limitations in this program, mainly due to an incomplete understanding of the invoke-dynamic
  * instruction.
  *
  * @author Chris de Vreeze
  */
-public class InvokeDynamicInstructionsFinder {
+public class InvokeDynamicInstructionsFinder implements InvokeDynamicSource {
 
     private final ClassUniverse classUniverse;
 
@@ -57,33 +81,31 @@ public class InvokeDynamicInstructionsFinder {
     }
 
     public ImmutableList<InvokeDynamicInstructionAndContainingMethod> findInvokeDynamicInstructions(ClassModel classModel) {
+        return streamInvokeDynamicInstructions(classModel).collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Like {@link #findInvokeDynamicInstructions(ClassModel)}, but returning a lazy stream, processing one method at a time.
+     */
+    public Stream<InvokeDynamicInstructionAndContainingMethod> streamInvokeDynamicInstructions(ClassModel classModel) {
         Preconditions.checkArgument(classUniverse.isClassOrInterface(classModel)); // no-op for interfaces
 
         if (classUniverse.isInterface(classModel)) {
-            return ImmutableList.of();
+            return Stream.empty();
         }
 
         Preconditions.checkState(classUniverse.isRegularClass(classModel));
 
-        List<MethodAndContainingClass> methods = classModel.methods().stream().map(MethodAndContainingClass::of).toList();
-
-        return methods.stream()
-                .filter(m -> m.getMethodModel().code().isPresent())
-                .flatMap(m ->
-                        m.getMethodModel().code().orElseThrow().elementStream().flatMap(codeElem ->
-                                codeElem instanceof InvokeDynamicInstruction invokeInstruction ?
-                                        Stream.of(new InvokeDynamicInstructionAndContainingMethod(invokeInstruction, m)) :
-                                        Stream.empty()
-                        )
-                )
-                .collect(ImmutableList.toImmutableList());
+        return classModel.methods().stream()
+                .map(MethodAndContainingClass::of)
+                .flatMap(m -> m.findInvokeDynamicInstructions().stream());
     }
 
-    private static ClassDesc parseClassDesc(String className) {
-        int idx = className.lastIndexOf('.');
-        String packageName = idx < 0 ? "" : className.substring(0, idx);
-        String simpleClassName = idx < 0 ? className : className.substring(idx + 1);
-        return ClassDesc.of(packageName, simpleClassName);
+    @Override
+    public Stream<DescriptorModel.InvokeDynamicInstructionAndContainingMethod> streamInvokeDynamicInstructionDescriptors(
+            ClassDesc classDesc) {
+        return streamInvokeDynamicInstructions(classUniverse.resolveClass(classDesc))
+                .map(InvokeDynamicInstructionAndContainingMethod::toDescriptorModel);
     }
 
     static void main(String... args) {
@@ -93,26 +115,42 @@ public class InvokeDynamicInstructionsFinder {
         String inspectionClasspath = System.getProperty("inspectionClasspath");
         Objects.requireNonNull(inspectionClasspath);
 
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
         ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
-        // Expensive call
-        ClassUniverse classUniverse = new ClassUniverse(classModelParser.parseClassPath(inspectionClasspath));
-
-        InvokeDynamicInstructionsFinder invokeDynamicInstructionsFinder = new InvokeDynamicInstructionsFinder(classUniverse);
-
-        ImmutableList<InvokeDynamicInstructionAndContainingMethod> invokeDynamicInstructions =
-                invokeDynamicInstructionsFinder.findInvokeDynamicInstructions(parseClassDesc(className));
-
-        JsonMapper jsonMapper = JsonMapper.builder()
-                .addModule(new GuavaModule())
-                .addModule(DescriptorModel.createSimpleModule())
-                .enable(SerializationFeature.INDENT_OUTPUT)
-                .build();
-        String resultJson =
-                jsonMapper.writeValueAsString(
-                        invokeDynamicInstructions.stream()
-                                .map(InvokeDynamicInstructionAndContainingMethod::toDescriptorModel)
-                                .toList()
-                );
-        System.out.println(resultJson);
+
+        InvokeDynamicSource invokeDynamicInstructionsFinder = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> new InvokeDynamicInstructionsFinder(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism)
+            );
+            // Expensive call, but not retaining any class model
+            case SUMMARY -> InvokeDynamicSource.of(
+                    SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism)
+            );
+        };
+
+        ClassDesc classDesc = ConsoleSupport.parseClassDesc(className);
+        boolean lambdaImplementations = Boolean.getBoolean("lambdaImplementations");
+        Supplier<Stream<?>> results = lambdaImplementations ?
+                () -> invokeDynamicInstructionsFinder.streamLambdaImplementationCalls(classDesc) :
+                () -> invokeDynamicInstructionsFinder.streamInvokeDynamicInstructionDescriptors(classDesc);
+
+        Optional<Path> binaryOutputFileOption = Optional.ofNullable(System.getProperty("binaryOutputFile")).map(Path::of);
+
+        if (binaryOutputFileOption.isPresent()) {
+            try (DescriptorModelBinaryFormat.Writer resultWriter =
+                         DescriptorModelBinaryFormat.Writer.open(binaryOutputFileOption.get())) {
+                resultWriter.writeAll(results.get());
+            }
+            return;
+        }
+
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper();
+
+        try (JsonResultWriter resultWriter =
+                     JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.fromSystemProperty(), System.out)) {
+            resultWriter.writeAll(results.get());
+        }
+        System.out.println();
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+
+/**
+ * Source of the invoke-dynamic instructions of classes, as descriptor model only, so it works in both analysis modes
+ * (see {@link AnalysisMode}). In full mode, it is implemented by {@link InvokeDynamicInstructionsFinder}, which also
+ * offers methods returning the instructions as class file API models. In summary mode, it is created with method
+ * {@link #of(SummaryClassUniverse)}.
+ *
+ * @author Chris de Vreeze
+ */
+@FunctionalInterface
+public interface InvokeDynamicSource {
+
+    /**
+     * Returns the invoke-dynamic instructions of the given class as descriptor model, as a lazy stream. Interfaces
+     * are skipped.
+     */
+    Stream<DescriptorModel.InvokeDynamicInstructionAndContainingMethod> streamInvokeDynamicInstructionDescriptors(
+            ClassDesc classDesc);
+
+    /**
+     * Returns the implementation methods of the lambdas and method references created by the invoke-dynamic
+     * instructions of the given class, as lazy stream of "invokedynamic" calls from the enclosing methods. These are
+     * the same call edges as the ones indexed by {@link MethodCallIndex}. Interfaces are skipped.
+     */
+    default Stream<DescriptorModel.InvokeInstructionAndContainingMethod> streamLambdaImplementationCalls(ClassDesc classDesc) {
+        return streamInvokeDynamicInstructionDescriptors(classDesc)
+                .flatMap(ivk -> MethodCallIndex.findLambdaImplementation(ivk.invokeInstruction()).stream()
+                        .map(impl -> new DescriptorModel.InvokeInstructionAndContainingMethod(impl, ivk.containingMethod())));
+    }
+
+    static InvokeDynamicSource of(SummaryClassUniverse classUniverse) {
+        Objects.requireNonNull(classUniverse);
+
+        return classDesc -> {
+            // The code of JDK classes is only summarized for this query
+            ClassSummary summary = classUniverse.resolveSummaryWithCode(classDesc);
+            // Like for class models, interfaces are skipped
+            return summary.isInterface() ?
+                    Stream.empty() :
+                    summary.methods().stream().flatMap(ClassSummary.MethodSummary::streamInvokeDynamicInstructions);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Streaming writer of results, writing each result (through a Jackson {@link tools.jackson.core.JsonGenerator})
+ * as soon as it is produced, instead of first building the entire JSON document in memory.
+ * <p>
+ * There are 2 output formats. Output format "json" writes one (indented) JSON array, and output format "ndjson" writes
+ * newline-delimited JSON, with one (non-indented) JSON object per line. Output is buffered, and the output stream
+ * is only flushed when closing this writer, but it is not closed then.
+ *
+ * @author Chris de Vreeze
+ */
+public final class JsonResultWriter implements AutoCloseable {
+
+    public enum OutputFormat {
+        JSON, NDJSON;
+
+        /**
+         * Returns the output format from system property "outputFormat" ("json" or "ndjson"), defaulting to "json".
+         */
+        public static OutputFormat fromSystemProperty() {
+            return OutputFormat.valueOf(System.getProperty("outputFormat", "json").toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final SequenceWriter sequenceWriter;
+
+    private JsonResultWriter(SequenceWriter sequenceWriter) {
+        this.sequenceWriter = sequenceWriter;
+    }
+
+    public static JsonResultWriter open(JsonMapper jsonMapper, OutputFormat outputFormat, OutputStream outputStream) {
+        ObjectWriter objectWriter = jsonMapper.writer()
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        return new JsonResultWriter(
+                switch (outputFormat) {
+                    case JSON -> objectWriter
+                            .with(SerializationFeature.INDENT_OUTPUT)
+                            .writeValuesAsArray(outputStream);
+                    case NDJSON -> objectWriter
+                            .without(SerializationFeature.INDENT_OUTPUT)
+                            .withRootValueSeparator("\n")
+                            .writeValues(outputStream);
+                }
+        );
+    }
+
+    public void write(Object result) {
+        sequenceWriter.write(result);
+    }
+
+    /**
+     * Writes all results of the stream, one at a time, while the stream is being consumed.
+     */
+    public void writeAll(Stream<?> results) {
+        results.forEachOrdered(this::write);
+    }
+
+    @Override
+    public void close() {
+        sequenceWriter.flush();
+        sequenceWriter.close();
+    }
+}
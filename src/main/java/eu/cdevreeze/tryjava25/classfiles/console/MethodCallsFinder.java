@@ -17,18 +17,24 @@
 package eu.cdevreeze.tryjava25.classfiles.console;
 
 import module java.base;
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
 import eu.cdevreeze.tryjava25.classfiles.data.InvokeInstructionAndContainingMethod;
 import eu.cdevreeze.tryjava25.classfiles.data.MethodAndContainingClass;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
-import eu.cdevreeze.tryjava25.classfiles.internal.MyGatherers;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModelBinaryFormat;
+import eu.cdevreeze.tryjava25.classfiles.index.CallResolver;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.index.OffHeapMethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+import eu.cdevreeze.tryjava25.classfiles.jfr.QueryEvent;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassPathFingerprint;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
 import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
-import tools.jackson.databind.SerializationFeature;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
 import tools.jackson.databind.json.JsonMapper;
-import tools.jackson.datatype.guava.GuavaModule;
 
 /**
  * Program that finds callers (and potential callers) of a given method.
@@ -41,92 +47,155 @@ import tools.jackson.datatype.guava.GuavaModule;
  * The first one is a classpath string, as output by Maven command "mvn dependency:build-classpath", preferably
  * enhanced with a directory containing the compilation output (such as "target/classes").
  * <p>
- * The "inspectionRootPackage" limits the scope of the code where the method calls are searched.
+ * The optional system property "parseParallelism" determines the parallelism used when parsing the classpath.
+ * It defaults to the number of available processors.
+ * <p>
+ * The optional system property "universeSnapshot" is the path of a {@link ClassUniverseSnapshot} file. If it is
+ * up-to-date, the class universe is loaded lazily from it instead of parsing the classpath, and otherwise it is (re)written.
+ * <p>
+ * The optional system property "lazyClassCacheSize" (ignored if "universeSnapshot" is set) avoids parsing the classpath
+ * up-front. Classes are then parsed on demand, and at most that number of parsed classes is retained.
+ * <p>
+ * The "inspectionRootPackage" limits the scope of the code where the method calls are searched. That code is indexed
+ * once, in a {@link MethodCallIndex}, after which the method calls are found without scanning any bytecode.
+ * <p>
+ * The optional system property "callResolution" is "none" (the default), "cha" or "rta". Without call resolution,
+ * only calls mentioning the class containing the method as method owner are found. With "cha" (Class Hierarchy Analysis)
+ * or "rta" (Rapid Type Analysis), calls via subtypes and interfaces that may end up in the method are found as well.
+ * See {@link CallResolver}.
+ * <p>
+ * The optional system property "offHeapIndexFile" is the path of a file to which the method call index is written,
+ * after which the file is mapped into memory, and the index on the Java heap is dropped. This keeps the retained heap
+ * small for very large classpaths. See {@link OffHeapMethodCallIndex}. The peak heap usage is not reduced, though,
+ * since the index is first built on the heap. Yet if the file has been written before for the same classpath (as far
+ * as its {@link ClassPathFingerprint} can tell), root package, call resolution and queried method, it is mapped
+ * without building the index at all.
+ * <p>
+ * The optional system property "outputFormat" is either "json" (the default) or "ndjson" (newline-delimited JSON).
+ * In both cases, results are written as soon as they are found. See {@link JsonResultWriter}.
+ * <p>
+ * The optional system property "binaryOutputFile" is the path of a file to which the results are written in the compact
+ * binary format of {@link DescriptorModelBinaryFormat}, instead of writing JSON to standard output. Such a file can be
+ * converted to JSON with {@link BinaryResultConverter}.
+ * <p>
+ * The optional system property "analysisMode" is either "full" (the default) or "summary". See {@link AnalysisMode}.
+ * In summary mode, the method call index is built from the class summaries, and "callResolution" must be "none".
+ * That mode does not use this class, but a {@link CallSiteSource} created from the summaries.
  * <p>
  * There are many limitations in this program. Most importantly, use of reflection will not be detected.
  *
  * @author Chris de Vreeze
  */
-public class MethodCallsFinder {
+public class MethodCallsFinder implements CallSiteSource {
 
-    private final EnhancedClassUniverse classUniverse;
-    private final String rootPackage;
+    private final ClassUniverse classUniverse;
+    private final CallSiteSource callSiteSource;
 
+    /**
+     * Constructor retained for compatibility. The class usage map of the {@link EnhancedClassUniverse} is not used,
+     * since the method call index is built from the code itself.
+     */
     public MethodCallsFinder(EnhancedClassUniverse classUniverse, String rootPackage) {
+        this(classUniverse.getClassUniverse(), rootPackage);
+    }
+
+    public MethodCallsFinder(ClassUniverse classUniverse, String rootPackage) {
+        this(classUniverse, rootPackage, MethodCallIndex.isAnyMethod());
+    }
+
+    /**
+     * Constructor only indexing the calls to methods matching the given predicate. Classes that cannot contain such calls
+     * are skipped cheaply, by only inspecting their constant pool. If calls are resolved through "callResolution",
+     * the predicate applies to the resolved target methods instead, and no classes are skipped.
+     */
+    public MethodCallsFinder(
+            ClassUniverse classUniverse,
+            String rootPackage,
+            Predicate<MethodCallIndex.MethodRef> calleeMustBeIndexed) {
         this.classUniverse = Objects.requireNonNull(classUniverse);
-        this.rootPackage = Objects.requireNonNull(rootPackage);
+        this.callSiteSource = IndexedCallSiteSource.create(classUniverse, rootPackage, calleeMustBeIndexed);
+    }
+
+    @Override
+    public Optional<MethodCallIndex.PrefilterStatistics> getPrefilterStatistics() {
+        return callSiteSource.getPrefilterStatistics();
     }
 
     public Optional<MethodModel> findMethodModel(String className, String methodName, Optional<MethodTypeDesc> methodTypeDescOption) {
-        int idx = className.lastIndexOf('.');
-        String packageName = idx < 0 ? "" : className.substring(0, idx);
-        String simpleClassName = idx < 0 ? className : className.substring(idx + 1);
-        ClassDesc classDesc = ClassDesc.of(packageName, simpleClassName);
-        ClassModel classModel = classUniverse.getClassUniverse().resolveClass(classDesc);
+        return findMethodModel(classUniverse, className, methodName, methodTypeDescOption);
+    }
+
+    /**
+     * Finds the method declared by the given class, with the given name and optional method type descriptor.
+     */
+    public Optional<MethodCallIndex.MethodRef> findMethodRef(
+            String className,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption) {
+        return findMethodRef(ConsoleSupport.parseClassDesc(className), methodName, methodTypeDescOption);
+    }
+
+    @Override
+    public Optional<MethodCallIndex.MethodRef> findMethodRef(
+            ClassDesc owner,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption) {
+        return callSiteSource.findMethodRef(owner, methodName, methodTypeDescOption);
+    }
+
+    static Optional<MethodModel> findMethodModel(
+            ClassUniverse classUniverse,
+            String className,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption) {
+        ClassModel classModel = classUniverse.resolveClass(ConsoleSupport.parseClassDesc(className));
         return classModel.methods().stream()
                 .filter(methodModel -> methodModel.methodName().equalsString(methodName))
                 .filter(methodModel -> methodTypeDescOption.stream().allMatch(mtd -> methodModel.methodTypeSymbol().equals(mtd)))
                 .findFirst();
     }
 
+    /**
+     * Finds the calls to the given method, as invoke instructions along with their containing methods. This is an adapter
+     * over the method call index (see {@link #findMethodCalls(MethodCallIndex.MethodRef)}), which resolves the calling
+     * classes in order to find the invoke instructions at the indexed bytecode offsets. Lambda and method reference
+     * call edges are left out, since they are invoke-dynamic instructions.
+     */
     public ImmutableList<InvokeInstructionAndContainingMethod> findMethodCalls(MethodModel methodModel) {
-        ClassDesc classContainingMethod = methodModel.parent().orElseThrow().thisClass().asSymbol();
-        List<ClassDesc> classesContainingCallsToTheMethod = classUniverse.getClassUsageMap().containsKey(classContainingMethod) ?
-                classUniverse.getClassUsageMap().get(classContainingMethod) :
-                ImmutableList.of();
-        Objects.requireNonNull(classesContainingCallsToTheMethod);
-
-        return classesContainingCallsToTheMethod
-                .stream()
-                .map(c -> classUniverse.getClassUniverse().resolveClass(c))
-                .filter(cm -> {
-                    String pkg = cm.thisClass().asSymbol().packageName();
-                    return pkg.equals(rootPackage) || pkg.startsWith(rootPackage + ".");
-                })
-                .flatMap(cm -> findOwnInvokeInstructions(cm).stream())
-                .filter(inv -> isMatchingMethodCall(inv.getInvokeInstruction(), methodModel))
-                .gather(MyGatherers.distinctBy(InvokeInstructionAndContainingMethod::toDescriptorModel))
+        return streamMethodCalls(MethodCallIndex.MethodRef.of(methodModel))
+                .flatMap(callSite -> findInvokeInstruction(classUniverse, callSite).stream())
                 .collect(ImmutableList.toImmutableList());
     }
 
-    private ImmutableList<InvokeInstructionAndContainingMethod> findOwnInvokeInstructions(ClassModel classModel) {
-        Preconditions.checkArgument(classUniverse.getClassUniverse().isClassOrInterface(classModel)); // no-op for interfaces
-
-        if (classUniverse.getClassUniverse().isInterface(classModel)) {
-            return ImmutableList.of();
-        }
-
-        Preconditions.checkState(classUniverse.getClassUniverse().isRegularClass(classModel));
-
-        List<MethodAndContainingClass> methods = classModel.methods().stream().map(MethodAndContainingClass::of).toList();
-
-        return methods.stream()
-                .filter(m -> m.getMethodModel().code().isPresent())
-                .flatMap(m ->
-                        m.getMethodModel().code().orElseThrow().elementStream().flatMap(codeElem ->
-                                codeElem instanceof InvokeInstruction invokeInstruction ?
-                                        Stream.of(new InvokeInstructionAndContainingMethod(invokeInstruction, m)) :
-                                        Stream.empty()
-                        )
-                )
-                .collect(ImmutableList.toImmutableList());
+    /**
+     * Finds the calls to the given method, as a lookup in the method call index. Without call resolution, only call sites
+     * where the method owner in the invoke instruction is the class containing the given method are found.
+     */
+    @Override
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCalls(MethodCallIndex.MethodRef methodRef) {
+        return callSiteSource.findMethodCalls(methodRef);
     }
 
-    private boolean isMatchingMethodCall(InvokeInstruction invokeInstruction, MethodModel methodModel) {
-        if (!invokeInstruction.name().equalsString(methodModel.methodName().stringValue())) {
-            return false;
-        }
-
-        // TODO Check against JVM spec, i.e., https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-6.html
-        // TODO Also look at https://www.guardsquare.com/blog/behind-the-scenes-of-jvm-method-invocations
-
-        // TODO Invoke-dynamic (for lambdas)
+    /**
+     * Like {@link #findMethodCalls(MethodCallIndex.MethodRef)}, but returning a lazy stream, without collecting the results.
+     */
+    @Override
+    public Stream<MethodCallIndex.CallSite> streamMethodCalls(MethodCallIndex.MethodRef methodRef) {
+        return callSiteSource.streamMethodCalls(methodRef);
+    }
 
-        ClassModel methodOwner = methodModel.parent().orElseThrow();
+    private static Optional<InvokeInstructionAndContainingMethod> findInvokeInstruction(
+            ClassUniverse classUniverse,
+            MethodCallIndex.CallSite callSite) {
+        DescriptorModel.Method callerMethod = callSite.callerMethod();
 
-        return invokeInstruction.owner().matches(methodOwner.thisClass().asSymbol()) &&
-                invokeInstruction.method().name().equalsString(methodModel.methodName().stringValue()) &&
-                invokeInstruction.typeSymbol().equals(methodModel.methodTypeSymbol());
+        return classUniverse.resolveClass(callerMethod.parent()).methods().stream()
+                .filter(methodModel -> methodModel.methodName().equalsString(callerMethod.methodName()))
+                .filter(methodModel -> methodModel.methodTypeSymbol().equals(callerMethod.methodTypeDesc()))
+                .findFirst()
+                .flatMap(methodModel -> MethodAndContainingClass.of(methodModel).findInvokeInstructions().stream()
+                        .filter(ivk -> ivk.getBytecodeOffset() == callSite.bytecodeOffset())
+                        .findFirst());
     }
 
     static void main(String... args) {
@@ -142,30 +211,80 @@ public class MethodCallsFinder {
         String inspectionRootPackage = System.getProperty("inspectionRootPackage");
         Objects.requireNonNull(inspectionRootPackage);
 
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
         ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
-        // Expensive call
-        ClassUniverse rawClassUniverse = new ClassUniverse(classModelParser.parseClassPath(inspectionClasspath));
 
-        // Expensive call
-        EnhancedClassUniverse classUniverse = EnhancedClassUniverse.create(rawClassUniverse, inspectionRootPackage);
+        ClassDesc owner = ConsoleSupport.parseClassDesc(className);
 
-        MethodCallsFinder methodCallsFinder = new MethodCallsFinder(classUniverse, inspectionRootPackage);
+        // Only one method is queried, so classes not referring to that method are skipped
+        CallSiteSource methodCallsFinder = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> {
+                ClassUniverse classUniverse = ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism);
+                MethodModel methodModel =
+                        findMethodModel(classUniverse, className, methodName, methodTypeDescOption).orElseThrow();
+                yield new MethodCallsFinder(
+                        classUniverse,
+                        inspectionRootPackage,
+                        MethodCallIndex.isAnyOf(Set.of(MethodCallIndex.MethodRef.of(methodModel)))
+                );
+            }
+            case SUMMARY -> {
+                // Expensive call, but not retaining any class model
+                SummaryClassUniverse classUniverse =
+                        SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism);
+                MethodCallIndex.MethodRef methodRef = classUniverse.resolveSummary(owner).methods().stream()
+                        .map(ClassSummary.MethodSummary::method)
+                        .filter(method -> method.methodName().equals(methodName))
+                        .filter(method -> methodTypeDescOption.stream().allMatch(mtd -> method.methodTypeDesc().equals(mtd)))
+                        .findFirst()
+                        .map(MethodCallIndex.MethodRef::of)
+                        .orElseThrow();
+                yield CallSiteSource.of(classUniverse, inspectionRootPackage, MethodCallIndex.isAnyOf(Set.of(methodRef)));
+            }
+        };
 
-        MethodModel methodModel = methodCallsFinder.findMethodModel(className, methodName, methodTypeDescOption).orElseThrow();
+        MethodCallIndex.MethodRef methodRef =
+                methodCallsFinder.findMethodRef(owner, methodName, methodTypeDescOption).orElseThrow();
 
-        ImmutableList<InvokeInstructionAndContainingMethod> invokeInstructions = methodCallsFinder.findMethodCalls(methodModel);
+        // Not present in summary mode, where no classes are skipped
+        ConsoleSupport.logPrefilterStatistics(methodCallsFinder.getPrefilterStatistics());
 
-        JsonMapper jsonMapper = JsonMapper.builder()
-                .addModule(new GuavaModule())
-                .addModule(DescriptorModel.createSimpleModule())
-                .enable(SerializationFeature.INDENT_OUTPUT)
-                .build();
-        String resultJson =
-                jsonMapper.writeValueAsString(
-                        invokeInstructions.stream()
-                                .map(InvokeInstructionAndContainingMethod::toDescriptorModel)
-                                .toList()
-                );
-        System.out.println(resultJson);
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper();
+
+        Optional<Path> binaryOutputFileOption = Optional.ofNullable(System.getProperty("binaryOutputFile")).map(Path::of);
+
+        // The results are streamed to the writer, so the query is timed together with writing the results
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        AtomicInteger resultCount = new AtomicInteger();
+        Stream<DescriptorModel.InvokeInstructionAndContainingMethod> results = methodCallsFinder.streamMethodCalls(methodRef)
+                .peek(_ -> resultCount.incrementAndGet())
+                .map(MethodCallIndex.CallSite::toDescriptorModel);
+
+        if (binaryOutputFileOption.isPresent()) {
+            AnalysisPhase.run("writeResults", () -> {
+                try (DescriptorModelBinaryFormat.Writer resultWriter =
+                             DescriptorModelBinaryFormat.Writer.open(binaryOutputFileOption.get())) {
+                    resultWriter.writeAll(results);
+                }
+            });
+        } else {
+            AnalysisPhase.run("writeResults", () -> {
+                try (JsonResultWriter resultWriter =
+                             JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.fromSystemProperty(), System.out)) {
+                    resultWriter.writeAll(results);
+                }
+            });
+            System.out.println();
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryType = "callers";
+            event.query = methodRef.toString();
+            event.resultCount = resultCount.get();
+            event.commit();
+        }
     }
 }
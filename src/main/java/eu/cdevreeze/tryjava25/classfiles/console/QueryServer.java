@@ -0,0 +1,296 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.jfr.QueryEvent;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Long-running program that loads the class universe once, and then answers queries against it, over stdin/stdout,
+ * or over a local socket. This avoids parsing the classpath again for each query, and queries run against a warm JVM.
+ * <p>
+ * The protocol is line-based. Each request is one line, in one of the following forms:
+ * <ul>
+ *     <li>"supertypes &lt;className&gt;"</li>
+ *     <li>"subtypes &lt;className&gt;"</li>
+ *     <li>"callers &lt;className&gt; &lt;methodName&gt; [&lt;methodDescriptor&gt;]"</li>
+ *     <li>"recursive-callers &lt;className&gt; &lt;methodName&gt; [&lt;methodDescriptor&gt;]"</li>
+ *     <li>"indy &lt;className&gt;"</li>
+ *     <li>"lambdas &lt;className&gt;"</li>
+ *     <li>"quit"</li>
+ *     <li>"shutdown"</li>
+ * </ul>
+ * The class names are fully qualified class names. Each response consists of zero or more results, each one written as
+ * a JSON object on one line, as soon as it has been found, followed by an empty line. If the query fails, the response is
+ * one line with a JSON object having an "error" property, again followed by an empty line.
+ * <p>
+ * Command "quit" ends the session (that is, the connection when listening on a socket), and command "shutdown" also
+ * stops the server. When listening on a socket, the server stops accepting connections, and exits after the
+ * connections that are still open have been served.
+ * <p>
+ * The system properties are the same as for {@link MethodCallsFinder}, including "analysisMode". In summary mode, all
+ * queries are answered from the class summaries, through the same {@link TypeHierarchy}, {@link CallSiteSource} and
+ * {@link InvokeDynamicSource} abstractions as in full mode. In full mode, optional system properties
+ * "offHeapIndexFile" and "offHeapClassGraphFile" move the method call index and class graph, respectively, out of
+ * the Java heap into memory-mapped files, but the class universe itself stays on the heap. Those files are reused by
+ * later runs for the same classpath and root package, without building the index or class graph on the heap first.
+ * Otherwise they are built on the heap first, so the peak heap usage is not reduced. If the optional system property "serverPort" is set,
+ * the program listens on that port of the loopback address, serving each connection on its own (virtual) thread.
+ * Otherwise it reads requests from stdin and writes responses to stdout.
+ * <p>
+ * Each successfully answered query is recorded as JFR {@link QueryEvent}, if recording is on.
+ *
+ * @author Chris de Vreeze
+ */
+public class QueryServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryServer.class);
+
+    private final TypeHierarchy typeHierarchy;
+    private final RecursiveMethodCallsFinder methodCallsFinder;
+    private final InvokeDynamicSource invokeDynamicSource;
+    private final ObjectWriter objectWriter;
+
+    /**
+     * Constructor for full mode. The type hierarchy queries are answered by the compact
+     * {@link eu.cdevreeze.tryjava25.classfiles.index.ClassGraph} of the class universe.
+     */
+    public QueryServer(ClassUniverse classUniverse, String rootPackage) {
+        this(
+                ConsoleSupport.createTypeHierarchy(classUniverse),
+                // Expensive call, but only once
+                new MethodCallsFinder(classUniverse, rootPackage),
+                new InvokeDynamicInstructionsFinder(classUniverse)
+        );
+    }
+
+    public QueryServer(SummaryClassUniverse classUniverse, String rootPackage) {
+        this(
+                classUniverse,
+                // Expensive call, but only once
+                CallSiteSource.of(classUniverse, rootPackage, MethodCallIndex.isAnyMethod()),
+                InvokeDynamicSource.of(classUniverse)
+        );
+    }
+
+    /**
+     * Constructor working in both analysis modes. The call site source must index the calls to all methods.
+     */
+    public QueryServer(TypeHierarchy typeHierarchy, CallSiteSource callSiteSource, InvokeDynamicSource invokeDynamicSource) {
+        this.typeHierarchy = Objects.requireNonNull(typeHierarchy);
+        this.methodCallsFinder = new RecursiveMethodCallsFinder(callSiteSource);
+        this.invokeDynamicSource = Objects.requireNonNull(invokeDynamicSource);
+
+        JsonMapper jsonMapper =
+                ConsoleSupport.createJsonMapper(SupertypesFinder.createSimpleModule(), SubtypesFinder.createSimpleModule());
+        this.objectWriter = jsonMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Answers the query, passing each result to the given consumer as soon as it has been found.
+     * An {@link IllegalArgumentException} is thrown if the query cannot be parsed.
+     */
+    public void answer(String query, Consumer<Object> resultConsumer) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        AtomicInteger resultCount = new AtomicInteger();
+
+        answerUnrecorded(query, result -> {
+            resultCount.incrementAndGet();
+            resultConsumer.accept(result);
+        });
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryType = query.strip().split("\\s+")[0];
+            event.query = query.strip();
+            event.resultCount = resultCount.get();
+            event.commit();
+        }
+    }
+
+    private void answerUnrecorded(String query, Consumer<Object> resultConsumer) {
+        List<String> words = Arrays.stream(query.strip().split("\\s+")).toList();
+        Preconditions.checkArgument(words.size() >= 2, "Expected command and class name, but got: '%s'", query);
+
+        String command = words.get(0);
+        ClassDesc classDesc = ConsoleSupport.parseClassDesc(words.get(1));
+
+        switch (command) {
+            case "supertypes" -> {
+                checkArgumentCount(words, 2, 2);
+                resultConsumer.accept(SupertypesFinder.SupertypesOrSelfResult.find(typeHierarchy, classDesc));
+            }
+            case "subtypes" -> {
+                checkArgumentCount(words, 2, 2);
+                resultConsumer.accept(SubtypesFinder.SubtypesResult.find(typeHierarchy, classDesc));
+            }
+            case "callers" -> {
+                checkArgumentCount(words, 3, 4);
+                methodCallsFinder.findMethodCalls(findMethodRef(words))
+                        .forEach(callSite -> resultConsumer.accept(callSite.toDescriptorModel()));
+            }
+            case "recursive-callers" -> {
+                checkArgumentCount(words, 3, 4);
+                methodCallsFinder.findMethodCallsRecursively(
+                        findMethodRef(words),
+                        callSite -> resultConsumer.accept(callSite.toDescriptorModel())
+                );
+            }
+            case "indy" -> {
+                checkArgumentCount(words, 2, 2);
+                invokeDynamicSource.streamInvokeDynamicInstructionDescriptors(classDesc)
+                        .forEachOrdered(resultConsumer);
+            }
+            case "lambdas" -> {
+                checkArgumentCount(words, 2, 2);
+                invokeDynamicSource.streamLambdaImplementationCalls(classDesc)
+                        .forEachOrdered(resultConsumer);
+            }
+            default -> throw new IllegalArgumentException("Unknown command: '" + command + "'");
+        }
+    }
+
+    /**
+     * Serves requests read from the given reader, until "quit" or "shutdown" is read or the input ends.
+     * Returns true if "shutdown" has been read, and false otherwise.
+     */
+    public boolean serve(BufferedReader reader, PrintWriter writer) throws IOException {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (line.strip().equals("quit")) {
+                return false;
+            }
+            if (line.strip().equals("shutdown")) {
+                return true;
+            }
+
+            try {
+                answer(line, result -> {
+                    writer.println(objectWriter.writeValueAsString(result));
+                    writer.flush();
+                });
+            } catch (RuntimeException e) {
+                writer.println(objectWriter.writeValueAsString(Map.of("error", String.valueOf(e.getMessage()))));
+            }
+            writer.println();
+            writer.flush();
+        }
+        return false;
+    }
+
+    private MethodCallIndex.MethodRef findMethodRef(List<String> words) {
+        String className = words.get(1);
+        String methodName = words.get(2);
+        Optional<MethodTypeDesc> methodTypeDescOption =
+                words.size() == 4 ? Optional.of(MethodTypeDesc.ofDescriptor(words.get(3))) : Optional.empty();
+
+        return methodCallsFinder.findMethodRef(ConsoleSupport.parseClassDesc(className), methodName, methodTypeDescOption)
+                .orElseThrow(() -> new IllegalArgumentException("Method not found: " + className + "." + methodName));
+    }
+
+    private static void checkArgumentCount(List<String> words, int minSize, int maxSize) {
+        Preconditions.checkArgument(
+                words.size() >= minSize && words.size() <= maxSize,
+                "Wrong number of arguments for command '%s'",
+                words.get(0)
+        );
+    }
+
+    static void main(String... args) throws IOException {
+        String inspectionClasspath = System.getProperty("inspectionClasspath");
+        Objects.requireNonNull(inspectionClasspath);
+
+        String inspectionRootPackage = System.getProperty("inspectionRootPackage");
+        Objects.requireNonNull(inspectionRootPackage);
+
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+        // Expensive calls, but only once for the lifetime of the server
+        QueryServer queryServer = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> new QueryServer(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism),
+                    inspectionRootPackage
+            );
+            case SUMMARY -> new QueryServer(
+                    SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism),
+                    inspectionRootPackage
+            );
+        };
+
+        Optional<Integer> serverPortOption = Optional.ofNullable(System.getProperty("serverPort")).map(Integer::parseInt);
+
+        if (serverPortOption.isEmpty()) {
+            System.err.println("Ready to serve queries on stdin");
+            queryServer.serve(
+                    new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                    new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+            );
+        } else {
+            try (ServerSocket serverSocket = new ServerSocket(serverPortOption.get(), 50, InetAddress.getLoopbackAddress());
+                 ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                System.err.println("Ready to serve queries on port " + serverSocket.getLocalPort());
+
+                while (!serverSocket.isClosed()) {
+                    Socket socket;
+                    try {
+                        socket = serverSocket.accept();
+                    } catch (SocketException e) {
+                        // Thrown by accept if the server socket has been closed by the "shutdown" command
+                        if (serverSocket.isClosed()) {
+                            break;
+                        }
+                        throw e;
+                    }
+                    executor.execute(() -> serveConnection(queryServer, socket, serverSocket));
+                }
+            }
+            System.err.println("Server stopped");
+        }
+    }
+
+    private static void serveConnection(QueryServer queryServer, Socket socket, ServerSocket serverSocket) {
+        try (socket) {
+            boolean shutdown = queryServer.serve(
+                    new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)),
+                    new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))
+            );
+            if (shutdown) {
+                serverSocket.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.atError().setCause(e).log("Failed to serve connection {}", socket);
+        }
+    }
+}
@@ -18,20 +18,25 @@ package eu.cdevreeze.tryjava25.classfiles.console;
 
 import module java.base;
 import com.google.common.collect.ImmutableList;
-import eu.cdevreeze.tryjava25.classfiles.data.InvokeInstructionAndContainingMethod;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
-import eu.cdevreeze.tryjava25.classfiles.internal.MyGatherers;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModelBinaryFormat;
+import eu.cdevreeze.tryjava25.classfiles.index.MethodCallIndex;
+import eu.cdevreeze.tryjava25.classfiles.jfr.QueryEvent;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
 import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
-import tools.jackson.databind.SerializationFeature;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
 import tools.jackson.databind.json.JsonMapper;
-import tools.jackson.datatype.guava.GuavaModule;
 
 /**
  * Like {@link MethodCallsFinder}, but recursive, in that also caller of callers are found, etc.
  * <p>
- * The program arguments are the same as for {@link MethodCallsFinder}. The same holds for the required system properties.
+ * The program arguments are the same as for {@link MethodCallsFinder}. The same holds for the system properties,
+ * including "analysisMode", "binaryOutputFile" and "offHeapIndexFile". With the latter, the callers of callers are
+ * all looked up in the memory-mapped method call index.
+ * <p>
+ * The optional system property "maxRecursionDepth" (default 20) limits the number of levels of callers. The callers
+ * are searched breadth-first, so the callers closest to the given method come first in the result.
  * <p>
  * There are many limitations in this program. Most importantly, use of reflection will not be detected.
  *
@@ -39,48 +44,97 @@ import tools.jackson.datatype.guava.GuavaModule;
  */
 public class RecursiveMethodCallsFinder {
 
-    private final EnhancedClassUniverse classUniverse;
-    private final String rootPackage;
+    private final CallSiteSource callSiteSource;
     private final int maxRecursionDepth;
 
     public RecursiveMethodCallsFinder(EnhancedClassUniverse classUniverse, String rootPackage) {
-        this.classUniverse = classUniverse;
-        this.rootPackage = rootPackage;
+        this(classUniverse.getClassUniverse(), rootPackage);
+    }
+
+    public RecursiveMethodCallsFinder(ClassUniverse classUniverse, String rootPackage) {
+        // The method call index is built only once, and shared by all (recursive) queries
+        this(new MethodCallsFinder(classUniverse, rootPackage));
+    }
+
+    /**
+     * Constructor working in both analysis modes, given a {@link CallSiteSource} indexing the calls to all methods.
+     */
+    public RecursiveMethodCallsFinder(CallSiteSource callSiteSource) {
+        this.callSiteSource = Objects.requireNonNull(callSiteSource);
         this.maxRecursionDepth = Integer.parseInt(System.getProperty("maxRecursionDepth", "20"));
     }
 
-    public Optional<MethodModel> findMethodModel(String className, String methodName, Optional<MethodTypeDesc> methodTypeDescOption) {
-        MethodCallsFinder methodCallsFinder = new MethodCallsFinder(classUniverse, rootPackage);
-        return methodCallsFinder.findMethodModel(className, methodName, methodTypeDescOption);
+    public Optional<MethodCallIndex.MethodRef> findMethodRef(
+            ClassDesc owner,
+            String methodName,
+            Optional<MethodTypeDesc> methodTypeDescOption) {
+        return callSiteSource.findMethodRef(owner, methodName, methodTypeDescOption);
+    }
+
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCalls(MethodCallIndex.MethodRef methodRef) {
+        return callSiteSource.findMethodCalls(methodRef);
     }
 
-    public ImmutableList<InvokeInstructionAndContainingMethod> findMethodCalls(MethodModel methodModel) {
-        MethodCallsFinder methodCallsFinder = new MethodCallsFinder(classUniverse, rootPackage);
-        return methodCallsFinder.findMethodCalls(methodModel);
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCallsRecursively(MethodModel methodModel) {
+        return findMethodCallsRecursively(MethodCallIndex.MethodRef.of(methodModel));
     }
 
-    public ImmutableList<InvokeInstructionAndContainingMethod> findMethodCallsRecursively(MethodModel methodModel) {
-        return findMethodCallsRecursively(methodModel, maxRecursionDepth);
+    /**
+     * Finds the method calls recursively, breadth-first, up to the maximum recursion depth. Each calling method is
+     * expanded at most once.
+     */
+    public ImmutableList<MethodCallIndex.CallSite> findMethodCallsRecursively(MethodCallIndex.MethodRef methodRef) {
+        ImmutableList.Builder<MethodCallIndex.CallSite> result = ImmutableList.builder();
+        findMethodCallsRecursively(methodRef, result::add);
+        return result.build();
     }
 
-    private ImmutableList<InvokeInstructionAndContainingMethod> findMethodCallsRecursively(MethodModel methodModel, int maxRecursionDepth) {
-        if (maxRecursionDepth <= 0) {
-            return ImmutableList.of();
+    /**
+     * Like {@link #findMethodCallsRecursively(MethodCallIndex.MethodRef)}, but passing each result to the given consumer
+     * as soon as it has been found, instead of collecting the results.
+     */
+    public void findMethodCallsRecursively(MethodCallIndex.MethodRef methodRef, Consumer<MethodCallIndex.CallSite> resultConsumer) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        int[] resultCount = new int[1];
+
+        findMethodCallsRecursivelyUnrecorded(methodRef, callSite -> {
+            resultCount[0]++;
+            resultConsumer.accept(callSite);
+        });
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryType = "recursive-callers";
+            event.query = methodRef.toString();
+            event.resultCount = resultCount[0];
+            event.commit();
         }
+    }
 
-        ImmutableList<InvokeInstructionAndContainingMethod> directCallers = findMethodCalls(methodModel);
-
-        // Recursion
-        return directCallers.stream()
-                .flatMap(inv -> {
-                    MethodModel methodContainingCaller = inv.getMethodAndContainingClass().getMethodModel();
-                    return Stream.concat(
-                            Stream.of(inv),
-                            findMethodCallsRecursively(methodContainingCaller, maxRecursionDepth - 1).stream()
-                    );
-                })
-                .gather(MyGatherers.distinctBy(InvokeInstructionAndContainingMethod::toDescriptorModel))
-                .collect(ImmutableList.toImmutableList());
+    private void findMethodCallsRecursivelyUnrecorded(
+            MethodCallIndex.MethodRef methodRef,
+            Consumer<MethodCallIndex.CallSite> resultConsumer) {
+        Set<MethodCallIndex.MethodRef> visitedMethods = new HashSet<>(List.of(methodRef));
+        Set<DescriptorModel.InvokeInstructionAndContainingMethod> visitedCallSites = new HashSet<>();
+
+        List<MethodCallIndex.MethodRef> frontier = List.of(methodRef);
+
+        for (int depth = 0; depth < maxRecursionDepth && !frontier.isEmpty(); depth++) {
+            List<MethodCallIndex.MethodRef> nextFrontier = new ArrayList<>();
+
+            for (MethodCallIndex.MethodRef calledMethod : frontier) {
+                for (MethodCallIndex.CallSite callSite : callSiteSource.findMethodCalls(calledMethod)) {
+                    if (visitedCallSites.add(callSite.toDescriptorModel())) {
+                        resultConsumer.accept(callSite);
+                    }
+                    if (visitedMethods.add(callSite.caller())) {
+                        nextFrontier.add(callSite.caller());
+                    }
+                }
+            }
+            frontier = nextFrontier;
+        }
     }
 
     static void main(String... args) {
@@ -96,30 +150,51 @@ public class RecursiveMethodCallsFinder {
         String inspectionRootPackage = System.getProperty("inspectionRootPackage");
         Objects.requireNonNull(inspectionRootPackage);
 
-        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
-        // Expensive call
-        ClassUniverse rawClassUniverse = new ClassUniverse(classModelParser.parseClassPath(inspectionClasspath));
-
-        // Expensive call
-        EnhancedClassUniverse classUniverse = EnhancedClassUniverse.create(rawClassUniverse, inspectionRootPackage);
+        int parseParallelism = ConsoleSupport.parseParallelism();
 
-        RecursiveMethodCallsFinder methodCallsFinder = new RecursiveMethodCallsFinder(classUniverse, inspectionRootPackage);
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
 
-        MethodModel methodModel = methodCallsFinder.findMethodModel(className, methodName, methodTypeDescOption).orElseThrow();
+        RecursiveMethodCallsFinder methodCallsFinder = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> new RecursiveMethodCallsFinder(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism),
+                    inspectionRootPackage
+            );
+            // Expensive call, but not retaining any class model
+            case SUMMARY -> new RecursiveMethodCallsFinder(
+                    CallSiteSource.of(
+                            SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism),
+                            inspectionRootPackage,
+                            MethodCallIndex.isAnyMethod()
+                    )
+            );
+        };
+
+        MethodCallIndex.MethodRef methodRef =
+                methodCallsFinder.findMethodRef(ConsoleSupport.parseClassDesc(className), methodName, methodTypeDescOption).orElseThrow();
+
+        Optional<Path> binaryOutputFileOption = Optional.ofNullable(System.getProperty("binaryOutputFile")).map(Path::of);
+
+        if (binaryOutputFileOption.isPresent()) {
+            try (DescriptorModelBinaryFormat.Writer resultWriter =
+                         DescriptorModelBinaryFormat.Writer.open(binaryOutputFileOption.get())) {
+                methodCallsFinder.findMethodCallsRecursively(
+                        methodRef,
+                        callSite -> resultWriter.write(callSite.toDescriptorModel())
+                );
+            }
+            return;
+        }
 
-        ImmutableList<InvokeInstructionAndContainingMethod> invokeInstructions = methodCallsFinder.findMethodCallsRecursively(methodModel);
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper();
 
-        JsonMapper jsonMapper = JsonMapper.builder()
-                .addModule(new GuavaModule())
-                .addModule(DescriptorModel.createSimpleModule())
-                .enable(SerializationFeature.INDENT_OUTPUT)
-                .build();
-        String resultJson =
-                jsonMapper.writeValueAsString(
-                        invokeInstructions.stream()
-                                .map(InvokeInstructionAndContainingMethod::toDescriptorModel)
-                                .toList()
-                );
-        System.out.println(resultJson);
+        // Results are written level by level, while the next levels are still being searched
+        try (JsonResultWriter resultWriter =
+                     JsonResultWriter.open(jsonMapper, JsonResultWriter.OutputFormat.fromSystemProperty(), System.out)) {
+            methodCallsFinder.findMethodCallsRecursively(
+                    methodRef,
+                    callSite -> resultWriter.write(callSite.toDescriptorModel())
+            );
+        }
+        System.out.println();
     }
 }
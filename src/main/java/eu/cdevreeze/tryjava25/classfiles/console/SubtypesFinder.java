@@ -0,0 +1,188 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
+import org.jspecify.annotations.Nullable;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.module.SimpleModule;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Program that finds all subtypes of an interface or class, as well as all implementing classes if it is an interface.
+ * This is the counterpart of {@link SupertypesFinder}, using the reverse subtype index of the {@link ClassUniverse}.
+ * <p>
+ * The only program argument is the fully qualified class name.
+ * <p>
+ * The following system property is used: "inspectionClasspath".
+ * This is a classpath string, as output by Maven command "mvn dependency:build-classpath", preferably
+ * enhanced with a directory containing the compilation output (such as "target/classes").
+ * <p>
+ * The optional system property "parseParallelism" determines the parallelism used when parsing the classpath.
+ * It defaults to the number of available processors.
+ * <p>
+ * The optional system property "universeSnapshot" is the path of a {@link ClassUniverseSnapshot} file. If it is
+ * up-to-date, the class universe is loaded lazily from it instead of parsing the classpath, and otherwise it is (re)written.
+ * <p>
+ * The optional system property "lazyClassCacheSize" (ignored if "universeSnapshot" is set) avoids parsing the classpath
+ * up-front. Classes are then parsed on demand, and at most that number of parsed classes is retained.
+ * <p>
+ * The optional system property "analysisMode" is either "full" (the default) or "summary". See {@link AnalysisMode}.
+ * In both modes, the program queries a {@link TypeHierarchy}. In full mode, that is the compact
+ * {@link eu.cdevreeze.tryjava25.classfiles.index.ClassGraph} of the class universe. If the optional system property
+ * "offHeapClassGraphFile" is set, the class graph is written to that file and memory-mapped from it, as
+ * {@link eu.cdevreeze.tryjava25.classfiles.index.OffHeapClassGraph}. A file written before for the same classpath is
+ * mapped without building the class graph. Otherwise, the class graph is built on the heap first, so the peak heap
+ * usage is not reduced.
+ *
+ * @author Chris de Vreeze
+ */
+public class SubtypesFinder {
+
+    public record SubtypesResult(ClassDesc startType, ImmutableList<ClassDesc> subtypes, ImmutableList<ClassDesc> implementors) {
+
+        public static SubtypesResult from(ClassDesc startType, ImmutableList<ClassModel> subtypes, ImmutableList<ClassModel> implementors) {
+            return new SubtypesResult(
+                    startType,
+                    subtypes.stream().map(v -> v.thisClass().asSymbol()).collect(ImmutableList.toImmutableList()),
+                    implementors.stream().map(v -> v.thisClass().asSymbol()).collect(ImmutableList.toImmutableList())
+            );
+        }
+
+        /**
+         * Finds the subtypes and implementors in the given type hierarchy, which works in both analysis modes.
+         */
+        public static SubtypesResult find(TypeHierarchy typeHierarchy, ClassDesc startType) {
+            return new SubtypesResult(
+                    startType,
+                    typeHierarchy.findAllSubtypeDescs(startType),
+                    findAllImplementorDescs(typeHierarchy, startType)
+            );
+        }
+    }
+
+    private final ClassUniverse classUniverse;
+
+    public SubtypesFinder(ClassUniverse classUniverse) {
+        this.classUniverse = Objects.requireNonNull(classUniverse);
+    }
+
+    public ImmutableList<ClassModel> findAllSubtypes(ClassDesc classDesc) {
+        ClassModel cls = classUniverse.resolveClass(classDesc);
+
+        return classUniverse.findAllSubtypes(cls);
+    }
+
+    /**
+     * Returns all implementing classes of the given interface, or the empty list if it is not an interface.
+     */
+    public ImmutableList<ClassModel> findAllImplementors(ClassDesc classDesc) {
+        ClassModel cls = classUniverse.resolveClass(classDesc);
+
+        return classUniverse.isInterface(cls) ? classUniverse.findAllImplementors(cls) : ImmutableList.of();
+    }
+
+    public ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc) {
+        return classUniverse.findAllSubtypeDescs(classDesc);
+    }
+
+    /**
+     * Returns all implementing classes of the given interface, or the empty list if it is not an interface.
+     */
+    public ImmutableList<ClassDesc> findAllImplementorDescs(ClassDesc classDesc) {
+        return findAllImplementorDescs(classUniverse, classDesc);
+    }
+
+    private static ImmutableList<ClassDesc> findAllImplementorDescs(TypeHierarchy typeHierarchy, ClassDesc classDesc) {
+        return typeHierarchy.isInterface(classDesc) ? typeHierarchy.findAllImplementorDescs(classDesc) : ImmutableList.of();
+    }
+
+    static void main(String... args) {
+        Objects.checkIndex(0, args.length);
+        String className = args[0];
+
+        String inspectionClasspath = System.getProperty("inspectionClasspath");
+        Objects.requireNonNull(inspectionClasspath);
+
+        int parseParallelism = ConsoleSupport.parseParallelism();
+
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+        TypeHierarchy typeHierarchy = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> ConsoleSupport.createTypeHierarchy(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism)
+            );
+            // Expensive call, but not retaining any class model
+            case SUMMARY -> SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism);
+        };
+
+        ClassDesc startType = ConsoleSupport.parseClassDesc(className);
+
+        SubtypesResult subtypesResult = SubtypesResult.find(typeHierarchy, startType);
+
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper(createSimpleModule());
+        String resultJson = jsonMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(subtypesResult);
+        System.out.println(resultJson);
+    }
+
+    private static final class SubtypesResultSerializer extends StdSerializer<SubtypesResult> {
+
+        public SubtypesResultSerializer() {
+            this(null);
+        }
+
+        public SubtypesResultSerializer(@Nullable Class<SubtypesResult> t) {
+            super(t);
+        }
+
+        @Override
+        public void serialize(SubtypesResult value, JsonGenerator gen, SerializationContext ctxt) throws JacksonException {
+            gen.writeStartObject();
+            gen.writeStringProperty("startType", value.startType().descriptorString());
+            gen.writeArrayPropertyStart("subtypes");
+            value.subtypes().forEach(subtype -> {
+                gen.writeString(subtype.descriptorString());
+            });
+            gen.writeEndArray();
+            gen.writeArrayPropertyStart("implementors");
+            value.implementors().forEach(implementor -> {
+                gen.writeString(implementor.descriptorString());
+            });
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * {@link SimpleModule} to be registered with the {@link tools.jackson.databind.json.JsonMapper}.
+     */
+    static SimpleModule createSimpleModule() {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(SubtypesResult.class, new SubtypesResultSerializer());
+        return module;
+    }
+}
@@ -17,10 +17,12 @@
 package eu.cdevreeze.tryjava25.classfiles.console;
 
 import module java.base;
-import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassModelParser;
 import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverseSnapshot;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
 import org.jspecify.annotations.Nullable;
 import tools.jackson.core.JacksonException;
 import tools.jackson.core.JsonGenerator;
@@ -29,7 +31,6 @@ import tools.jackson.databind.SerializationFeature;
 import tools.jackson.databind.json.JsonMapper;
 import tools.jackson.databind.module.SimpleModule;
 import tools.jackson.databind.ser.std.StdSerializer;
-import tools.jackson.datatype.guava.GuavaModule;
 
 /**
  * Program that finds all supertypes (or self) of an interface or class.
@@ -39,6 +40,23 @@ import tools.jackson.datatype.guava.GuavaModule;
  * The following system property is used: "inspectionClasspath".
  * This is a classpath string, as output by Maven command "mvn dependency:build-classpath", preferably
  * enhanced with a directory containing the compilation output (such as "target/classes").
+ * <p>
+ * The optional system property "parseParallelism" determines the parallelism used when parsing the classpath.
+ * It defaults to the number of available processors.
+ * <p>
+ * The optional system property "universeSnapshot" is the path of a {@link ClassUniverseSnapshot} file. If it is
+ * up-to-date, the class universe is loaded lazily from it instead of parsing the classpath, and otherwise it is (re)written.
+ * <p>
+ * The optional system property "lazyClassCacheSize" (ignored if "universeSnapshot" is set) avoids parsing the classpath
+ * up-front. Classes are then parsed on demand, and at most that number of parsed classes is retained.
+ * <p>
+ * The optional system property "analysisMode" is either "full" (the default) or "summary". See {@link AnalysisMode}.
+ * In both modes, the program queries a {@link TypeHierarchy}. In full mode, that is the compact
+ * {@link eu.cdevreeze.tryjava25.classfiles.index.ClassGraph} of the class universe. If the optional system property
+ * "offHeapClassGraphFile" is set, the class graph is written to that file and memory-mapped from it, as
+ * {@link eu.cdevreeze.tryjava25.classfiles.index.OffHeapClassGraph}. A file written before for the same classpath is
+ * mapped without building the class graph. Otherwise, the class graph is built on the heap first, so the peak heap
+ * usage is not reduced.
  *
  * @author Chris de Vreeze
  */
@@ -52,6 +70,13 @@ public class SupertypesFinder {
                     superTypesOrSelf.stream().map(v -> v.thisClass().asSymbol()).collect(ImmutableList.toImmutableList())
             );
         }
+
+        /**
+         * Finds the supertypes (or self) in the given type hierarchy, which works in both analysis modes.
+         */
+        public static SupertypesOrSelfResult find(TypeHierarchy typeHierarchy, ClassDesc startType) {
+            return new SupertypesOrSelfResult(startType, typeHierarchy.findAllSupertypeDescsOrSelf(startType));
+        }
     }
 
     private final ClassUniverse classUniverse;
@@ -61,12 +86,7 @@ public class SupertypesFinder {
     }
 
     public ImmutableList<ClassModel> findAllSupertypesOrSelf(String className) {
-        int idx = className.lastIndexOf('.');
-        String packageName = idx < 0 ? "" : className.substring(0, idx);
-        String simpleClassName = idx < 0 ? className : className.substring(idx + 1);
-        ClassDesc classDesc = ClassDesc.of(packageName, simpleClassName);
-
-        return findAllSupertypesOrSelf(classDesc);
+        return findAllSupertypesOrSelf(ConsoleSupport.parseClassDesc(className));
     }
 
     public ImmutableList<ClassModel> findAllSupertypesOrSelf(ClassDesc classDesc) {
@@ -75,6 +95,10 @@ public class SupertypesFinder {
         return classUniverse.findAllSupertypesOrSelf(cls);
     }
 
+    public ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        return classUniverse.findAllSupertypeDescsOrSelf(classDesc);
+    }
+
     static void main(String... args) {
         Objects.checkIndex(0, args.length);
         String className = args[0];
@@ -82,26 +106,23 @@ public class SupertypesFinder {
         String inspectionClasspath = System.getProperty("inspectionClasspath");
         Objects.requireNonNull(inspectionClasspath);
 
-        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
-        ClassUniverse classUniverse = new ClassUniverse(classModelParser.parseClassPath(inspectionClasspath));
+        int parseParallelism = ConsoleSupport.parseParallelism();
 
-        SupertypesFinder supertypesFinder = new SupertypesFinder(classUniverse);
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
 
-        ImmutableList<ClassModel> supertypesOrSelf = supertypesFinder.findAllSupertypesOrSelf(className);
+        TypeHierarchy typeHierarchy = switch (AnalysisMode.fromSystemProperty()) {
+            case FULL -> ConsoleSupport.createTypeHierarchy(
+                    ConsoleSupport.loadClassUniverse(classModelParser, inspectionClasspath, parseParallelism)
+            );
+            // Expensive call, but not retaining any class model
+            case SUMMARY -> SummaryClassUniverse.create(classModelParser, inspectionClasspath, parseParallelism);
+        };
 
-        int idx = className.lastIndexOf('.');
-        Preconditions.checkState(idx > 0);
-        String packageName = className.substring(0, idx);
-        String simpleClassName = className.substring(idx + 1);
-        ClassDesc startType = ClassDesc.of(packageName, simpleClassName);
-        SupertypesOrSelfResult supertypesOrSelfResult = SupertypesOrSelfResult.from(startType, supertypesOrSelf);
+        ClassDesc startType = ConsoleSupport.parseClassDesc(className);
+        SupertypesOrSelfResult supertypesOrSelfResult = SupertypesOrSelfResult.find(typeHierarchy, startType);
 
-        JsonMapper jsonMapper = JsonMapper.builder()
-                .addModule(new GuavaModule())
-                .addModule(createSimpleModule())
-                .enable(SerializationFeature.INDENT_OUTPUT)
-                .build();
-        String resultJson = jsonMapper.writeValueAsString(supertypesOrSelfResult);
+        JsonMapper jsonMapper = ConsoleSupport.createJsonMapper(createSimpleModule());
+        String resultJson = jsonMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(supertypesOrSelfResult);
         System.out.println(resultJson);
     }
 
@@ -131,7 +152,7 @@ public class SupertypesFinder {
     /**
      * {@link SimpleModule} to be registered with the {@link tools.jackson.databind.json.JsonMapper}.
      */
-    private static SimpleModule createSimpleModule() {
+    static SimpleModule createSimpleModule() {
         SimpleModule module = new SimpleModule();
         module.addSerializer(SupertypesOrSelfResult.class, new SupertypesOrSelfResultSerializer());
         return module;
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.data;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
+
+/**
+ * Compact summary of a class, holding the facts queried about it: its supertypes and flags, and its methods
+ * along with the invoke and invoke-dynamic instructions in their code. The summary is created from a {@link ClassModel}
+ * in one pass, after which the class model (and its class file bytes) need not be retained.
+ * <p>
+ * Unlike the other classes in this package, this is a record with value equality, since it only holds
+ * {@link DescriptorModel} data. That data is canonicalized through the shared {@link SymbolTable}.
+ *
+ * @author Chris de Vreeze
+ */
+public record ClassSummary(
+        ClassDesc thisClass,
+        Optional<ClassDesc> superclass,
+        ImmutableList<ClassDesc> interfaces,
+        ImmutableSet<AccessFlag> accessFlags,
+        ImmutableList<MethodSummary> methods
+) {
+
+    /**
+     * Invoke or invoke-dynamic instruction, along with its bytecode offset in the containing method.
+     */
+    public record InstructionSummary(DescriptorModel.Instruction instruction, int bytecodeOffset) {
+    }
+
+    /**
+     * Method, along with its invoke and invoke-dynamic instructions, in code order.
+     */
+    public record MethodSummary(DescriptorModel.Method method, ImmutableList<InstructionSummary> instructions) {
+
+        public Stream<DescriptorModel.InvokeDynamicInstructionAndContainingMethod> streamInvokeDynamicInstructions() {
+            return instructions.stream()
+                    .filter(instr -> instr.instruction() instanceof DescriptorModel.InvokeDynamicInstruction)
+                    .map(instr -> new DescriptorModel.InvokeDynamicInstructionAndContainingMethod(
+                            (DescriptorModel.InvokeDynamicInstruction) instr.instruction(),
+                            method
+                    ));
+        }
+    }
+
+    public boolean isInterface() {
+        return accessFlags.contains(AccessFlag.INTERFACE);
+    }
+
+    public boolean isAbstract() {
+        return accessFlags.contains(AccessFlag.ABSTRACT);
+    }
+
+    /**
+     * Creates the summary of the given class, walking the code of each method only once.
+     */
+    public static ClassSummary of(ClassModel classModel) {
+        SymbolTable symbolTable = SymbolTable.getShared();
+
+        return new ClassSummary(
+                symbolTable.intern(classModel.thisClass().asSymbol()),
+                classModel.superclass().map(sc -> symbolTable.intern(sc.asSymbol())),
+                classModel.interfaces().stream()
+                        .map(itf -> symbolTable.intern(itf.asSymbol()))
+                        .collect(ImmutableList.toImmutableList()),
+                symbolTable.intern(classModel.flags().flags().stream().collect(ImmutableSet.toImmutableSet())),
+                classModel.methods().stream()
+                        .map(ClassSummary::summarize)
+                        .collect(ImmutableList.toImmutableList())
+        );
+    }
+
+    /**
+     * Creates the summary of the given class without inspecting any code, so the method summaries hold no instructions.
+     * This is much cheaper than {@link #of(ClassModel)}, if only the supertypes, flags and methods are needed.
+     */
+    public static ClassSummary withoutCode(ClassModel classModel) {
+        SymbolTable symbolTable = SymbolTable.getShared();
+
+        return new ClassSummary(
+                symbolTable.intern(classModel.thisClass().asSymbol()),
+                classModel.superclass().map(sc -> symbolTable.intern(sc.asSymbol())),
+                classModel.interfaces().stream()
+                        .map(itf -> symbolTable.intern(itf.asSymbol()))
+                        .collect(ImmutableList.toImmutableList()),
+                symbolTable.intern(classModel.flags().flags().stream().collect(ImmutableSet.toImmutableSet())),
+                classModel.methods().stream()
+                        .map(methodModel -> new MethodSummary(
+                                MethodAndContainingClass.of(methodModel).toDescriptorModel(),
+                                ImmutableList.of()
+                        ))
+                        .collect(ImmutableList.toImmutableList())
+        );
+    }
+
+    private static MethodSummary summarize(MethodModel methodModel) {
+        ImmutableList<InstructionSummary> instructions = methodModel.code().stream()
+                .flatMap(code -> LocatedInstruction.findAll(
+                        code,
+                        instr -> instr instanceof InvokeInstruction || instr instanceof InvokeDynamicInstruction
+                ).stream())
+                .map(instr -> new InstructionSummary(
+                        switch (instr.instruction()) {
+                            case InvokeInstruction ivk -> toDescriptorModel(ivk);
+                            case InvokeDynamicInstruction ivk -> toDescriptorModel(ivk);
+                            default -> throw new IllegalStateException("Unexpected instruction: " + instr.instruction());
+                        },
+                        instr.bytecodeOffset()
+                ))
+                .collect(ImmutableList.toImmutableList());
+
+        return new MethodSummary(MethodAndContainingClass.of(methodModel).toDescriptorModel(), instructions);
+    }
+
+    private static DescriptorModel.InvokeInstruction toDescriptorModel(InvokeInstruction invokeInstruction) {
+        return SymbolTable.getShared().invokeInstruction(
+                invokeInstruction.opcode(),
+                invokeInstruction.owner().asSymbol(),
+                invokeInstruction.name().stringValue(),
+                invokeInstruction.typeSymbol(),
+                invokeInstruction.isInterface()
+        );
+    }
+
+    private static DescriptorModel.InvokeDynamicInstruction toDescriptorModel(InvokeDynamicInstruction invokeInstruction) {
+        SymbolTable symbolTable = SymbolTable.getShared();
+
+        return new DescriptorModel.InvokeDynamicInstruction(
+                invokeInstruction.opcode(),
+                symbolTable.intern(invokeInstruction.name().stringValue()),
+                symbolTable.intern(invokeInstruction.typeSymbol()),
+                invokeInstruction.invokedynamic().asSymbol(),
+                invokeInstruction.bootstrapMethod(),
+                invokeInstruction.bootstrapArgs().stream().collect(ImmutableList.toImmutableList())
+        );
+    }
+}
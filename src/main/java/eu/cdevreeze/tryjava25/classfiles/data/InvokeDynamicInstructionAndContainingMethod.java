@@ -20,12 +20,19 @@ import module java.base;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
 
 /**
- * An {@link InvokeDynamicInstruction} and its containing method as {@link MethodAndContainingClass}.
+ * An {@link InvokeDynamicInstruction} and its containing method as {@link MethodAndContainingClass}, along with the location
+ * of the instruction in that method.
  * <p>
  * This is not a {@link Record} with properly defined value equality, because of the lazily evaluated {@link MethodModel}
  * inside {@link MethodAndContainingClass}.
+ * <p>
+ * There are two constructors. The one taking a plain {@link InvokeDynamicInstruction} always checks that the method contains the
+ * instruction, and walks the code of the method to find its location. The one taking a {@link LocatedInstruction}
+ * trusts the given location, and is meant for callers that already walked the code. It only checks the location if
+ * system property "validateInstructionLocations" is set to "true", which is typically done in tests.
  *
  * @author Chris de Vreeze
  */
@@ -50,17 +57,49 @@ public final class InvokeDynamicInstructionAndContainingMethod {
     }
 
     private final InvokeDynamicInstruction invokeInstruction;
+    private final int bytecodeOffset;
+    private final OptionalInt lineNumber;
     private final MethodAndContainingClass methodAndContainingClass;
 
+    /**
+     * Constructor, checking that the method contains the instruction, and finding the location of the instruction in
+     * the method. This walks the code of the method. If the method contains multiple equal instructions, the location
+     * of the first one is taken.
+     */
     public InvokeDynamicInstructionAndContainingMethod(InvokeDynamicInstruction invokeInstruction, MethodAndContainingClass methodAndContainingClass) {
-        Preconditions.checkArgument(
-                methodAndContainingClass.getMethodModel().code().orElseThrow().elementStream()
-                        .anyMatch(codeElem ->
-                                codeElem instanceof InvokeDynamicInstruction ivk && equalInstructions(ivk, invokeInstruction)
-                        )
-        );
+        LocatedInstruction<InvokeDynamicInstruction> locatedInstruction =
+                LocatedInstruction.findAll(methodAndContainingClass.getMethodModel().code().orElseThrow(), InvokeDynamicInstruction.class)
+                        .stream()
+                        .filter(ivk -> equalInstructions(ivk.instruction(), invokeInstruction))
+                        .findFirst()
+                        .orElseThrow(IllegalArgumentException::new);
 
         this.invokeInstruction = invokeInstruction;
+        this.bytecodeOffset = locatedInstruction.bytecodeOffset();
+        this.lineNumber = locatedInstruction.lineNumber();
+        this.methodAndContainingClass = methodAndContainingClass;
+    }
+
+    /**
+     * Constructor, trusting the location of the instruction, and therefore running in O(1) time. Only if validation is
+     * enabled (see {@link LocatedInstruction#isValidationEnabled()}) it is checked that the method contains the
+     * instruction at the given bytecode offset.
+     */
+    public InvokeDynamicInstructionAndContainingMethod(LocatedInstruction<InvokeDynamicInstruction> invokeInstruction, MethodAndContainingClass methodAndContainingClass) {
+        if (LocatedInstruction.isValidationEnabled()) {
+            Preconditions.checkArgument(
+                    LocatedInstruction.findAll(methodAndContainingClass.getMethodModel().code().orElseThrow(), InvokeDynamicInstruction.class)
+                            .stream()
+                            .anyMatch(ivk ->
+                                    ivk.bytecodeOffset() == invokeInstruction.bytecodeOffset() &&
+                                            equalInstructions(ivk.instruction(), invokeInstruction.instruction())
+                            )
+            );
+        }
+
+        this.invokeInstruction = invokeInstruction.instruction();
+        this.bytecodeOffset = invokeInstruction.bytecodeOffset();
+        this.lineNumber = invokeInstruction.lineNumber();
         this.methodAndContainingClass = methodAndContainingClass;
     }
 
@@ -68,16 +107,26 @@ public final class InvokeDynamicInstructionAndContainingMethod {
         return invokeInstruction;
     }
 
+    public int getBytecodeOffset() {
+        return bytecodeOffset;
+    }
+
+    public OptionalInt getLineNumber() {
+        return lineNumber;
+    }
+
     public MethodAndContainingClass getMethodAndContainingClass() {
         return methodAndContainingClass;
     }
 
     public DescriptorModel.InvokeDynamicInstructionAndContainingMethod toDescriptorModel() {
+        SymbolTable symbolTable = SymbolTable.getShared();
+
         return new DescriptorModel.InvokeDynamicInstructionAndContainingMethod(
                 new DescriptorModel.InvokeDynamicInstruction(
                         getInvokeInstruction().opcode(),
-                        getInvokeInstruction().name().stringValue(),
-                        getInvokeInstruction().typeSymbol(),
+                        symbolTable.intern(getInvokeInstruction().name().stringValue()),
+                        symbolTable.intern(getInvokeInstruction().typeSymbol()),
                         getInvokeInstruction().invokedynamic().asSymbol(),
                         getInvokeInstruction().bootstrapMethod(),
                         getInvokeInstruction().bootstrapArgs().stream().collect(ImmutableList.toImmutableList())
@@ -19,12 +19,19 @@ package eu.cdevreeze.tryjava25.classfiles.data;
 import module java.base;
 import com.google.common.base.Preconditions;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
 
 /**
- * An {@link InvokeInstruction} and its containing method as {@link MethodAndContainingClass}.
+ * An {@link InvokeInstruction} and its containing method as {@link MethodAndContainingClass}, along with the location
+ * of the instruction in that method.
  * <p>
  * This is not a {@link Record} with properly defined value equality, because of the lazily evaluated {@link MethodModel}
  * inside {@link MethodAndContainingClass}.
+ * <p>
+ * There are two constructors. The one taking a plain {@link InvokeInstruction} always checks that the method contains the
+ * instruction, and walks the code of the method to find its location. The one taking a {@link LocatedInstruction}
+ * trusts the given location, and is meant for callers that already walked the code. It only checks the location if
+ * system property "validateInstructionLocations" is set to "true", which is typically done in tests.
  *
  * @author Chris de Vreeze
  */
@@ -39,17 +46,49 @@ public final class InvokeInstructionAndContainingMethod {
     }
 
     private final InvokeInstruction invokeInstruction;
+    private final int bytecodeOffset;
+    private final OptionalInt lineNumber;
     private final MethodAndContainingClass methodAndContainingClass;
 
+    /**
+     * Constructor, checking that the method contains the instruction, and finding the location of the instruction in
+     * the method. This walks the code of the method. If the method contains multiple equal instructions, the location
+     * of the first one is taken.
+     */
     public InvokeInstructionAndContainingMethod(InvokeInstruction invokeInstruction, MethodAndContainingClass methodAndContainingClass) {
-        Preconditions.checkArgument(
-                methodAndContainingClass.getMethodModel().code().orElseThrow().elementStream()
-                        .anyMatch(codeElem ->
-                                codeElem instanceof InvokeInstruction ivk && equalInstructions(ivk, invokeInstruction)
-                        )
-        );
+        LocatedInstruction<InvokeInstruction> locatedInstruction =
+                LocatedInstruction.findAll(methodAndContainingClass.getMethodModel().code().orElseThrow(), InvokeInstruction.class)
+                        .stream()
+                        .filter(ivk -> equalInstructions(ivk.instruction(), invokeInstruction))
+                        .findFirst()
+                        .orElseThrow(IllegalArgumentException::new);
 
         this.invokeInstruction = invokeInstruction;
+        this.bytecodeOffset = locatedInstruction.bytecodeOffset();
+        this.lineNumber = locatedInstruction.lineNumber();
+        this.methodAndContainingClass = methodAndContainingClass;
+    }
+
+    /**
+     * Constructor, trusting the location of the instruction, and therefore running in O(1) time. Only if validation is
+     * enabled (see {@link LocatedInstruction#isValidationEnabled()}) it is checked that the method contains the
+     * instruction at the given bytecode offset.
+     */
+    public InvokeInstructionAndContainingMethod(LocatedInstruction<InvokeInstruction> invokeInstruction, MethodAndContainingClass methodAndContainingClass) {
+        if (LocatedInstruction.isValidationEnabled()) {
+            Preconditions.checkArgument(
+                    LocatedInstruction.findAll(methodAndContainingClass.getMethodModel().code().orElseThrow(), InvokeInstruction.class)
+                            .stream()
+                            .anyMatch(ivk ->
+                                    ivk.bytecodeOffset() == invokeInstruction.bytecodeOffset() &&
+                                            equalInstructions(ivk.instruction(), invokeInstruction.instruction())
+                            )
+            );
+        }
+
+        this.invokeInstruction = invokeInstruction.instruction();
+        this.bytecodeOffset = invokeInstruction.bytecodeOffset();
+        this.lineNumber = invokeInstruction.lineNumber();
         this.methodAndContainingClass = methodAndContainingClass;
     }
 
@@ -57,13 +96,21 @@ public final class InvokeInstructionAndContainingMethod {
         return invokeInstruction;
     }
 
+    public int getBytecodeOffset() {
+        return bytecodeOffset;
+    }
+
+    public OptionalInt getLineNumber() {
+        return lineNumber;
+    }
+
     public MethodAndContainingClass getMethodAndContainingClass() {
         return methodAndContainingClass;
     }
 
     public DescriptorModel.InvokeInstructionAndContainingMethod toDescriptorModel() {
         return new DescriptorModel.InvokeInstructionAndContainingMethod(
-                new DescriptorModel.InvokeInstruction(
+                SymbolTable.getShared().invokeInstruction(
                         invokeInstruction.opcode(),
                         invokeInstruction.owner().asSymbol(),
                         invokeInstruction.name().stringValue(),
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.data;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An {@link Instruction} along with its location in the containing {@link CodeModel}, that is, its bytecode offset
+ * and (if known) its source line number. Within a method, the bytecode offset uniquely identifies the instruction.
+ * <p>
+ * Located instructions are typically created by walking the code once, using method {@link #findAll(CodeModel, Class)}.
+ * Their locations are trusted. Only if system property "validateInstructionLocations" is set to "true", classes in
+ * this package check them against the code (which is expensive, so meant for debugging only).
+ *
+ * @author Chris de Vreeze
+ */
+public record LocatedInstruction<I extends Instruction>(I instruction, int bytecodeOffset, OptionalInt lineNumber) {
+
+    private static final boolean VALIDATION_ENABLED = Boolean.getBoolean("validateInstructionLocations");
+
+    public LocatedInstruction {
+        Objects.requireNonNull(instruction);
+        Objects.requireNonNull(lineNumber);
+        Preconditions.checkArgument(bytecodeOffset >= 0, "Negative bytecode offset not allowed");
+    }
+
+    public static boolean isValidationEnabled() {
+        return VALIDATION_ENABLED;
+    }
+
+    /**
+     * Returns all instructions of the given type in the code, along with their locations, walking the code only once.
+     * Line numbers are only known if they have not been dropped when parsing the class file.
+     */
+    public static <I extends Instruction> ImmutableList<LocatedInstruction<I>> findAll(CodeModel codeModel, Class<I> instructionType) {
+        return findAll(codeModel, instructionType::isInstance).stream()
+                .map(instr -> new LocatedInstruction<>(instructionType.cast(instr.instruction()), instr.bytecodeOffset(), instr.lineNumber()))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns all instructions in the code matching the given predicate, along with their locations, walking the code
+     * only once. This is handy for finding instructions of multiple types at once.
+     */
+    public static ImmutableList<LocatedInstruction<Instruction>> findAll(CodeModel codeModel, Predicate<Instruction> instructionPredicate) {
+        ImmutableList.Builder<LocatedInstruction<Instruction>> result = ImmutableList.builder();
+        int offset = 0;
+        OptionalInt lineNumber = OptionalInt.empty();
+
+        for (CodeElement codeElement : codeModel) {
+            switch (codeElement) {
+                case LineNumber ln -> lineNumber = OptionalInt.of(ln.line());
+                case Instruction instruction -> {
+                    if (instructionPredicate.test(instruction)) {
+                        result.add(new LocatedInstruction<>(instruction, offset, lineNumber));
+                    }
+                    offset += instruction.sizeInBytes();
+                }
+                default -> {
+                    // Other pseudo-instructions, such as labels, do not occupy any bytes in the code
+                }
+            }
+        }
+        return result.build();
+    }
+}
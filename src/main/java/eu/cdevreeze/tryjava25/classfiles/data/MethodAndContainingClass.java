@@ -18,8 +18,10 @@ package eu.cdevreeze.tryjava25.classfiles.data;
 
 import module java.base;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
 
 /**
  * A method as {@link MethodModel} and its containing class as {@link ClassDesc}.
@@ -50,8 +52,28 @@ public final class MethodAndContainingClass {
         return methodModel.parent().orElseThrow();
     }
 
+    /**
+     * Returns all invoke instructions in this method, walking its code only once.
+     */
+    public ImmutableList<InvokeInstructionAndContainingMethod> findInvokeInstructions() {
+        return methodModel.code().stream()
+                .flatMap(code -> LocatedInstruction.findAll(code, InvokeInstruction.class).stream())
+                .map(ivk -> new InvokeInstructionAndContainingMethod(ivk, this))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns all invoke-dynamic instructions in this method, walking its code only once.
+     */
+    public ImmutableList<InvokeDynamicInstructionAndContainingMethod> findInvokeDynamicInstructions() {
+        return methodModel.code().stream()
+                .flatMap(code -> LocatedInstruction.findAll(code, InvokeDynamicInstruction.class).stream())
+                .map(ivk -> new InvokeDynamicInstructionAndContainingMethod(ivk, this))
+                .collect(ImmutableList.toImmutableList());
+    }
+
     public DescriptorModel.Method toDescriptorModel() {
-        return new DescriptorModel.Method(
+        return SymbolTable.getShared().method(
                 methodModel.methodName().stringValue(),
                 methodModel.methodTypeSymbol(),
                 getClassDesc(),
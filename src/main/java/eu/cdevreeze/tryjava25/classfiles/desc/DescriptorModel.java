@@ -29,6 +29,9 @@ import tools.jackson.databind.ser.std.StdSerializer;
 /**
  * "Namespace" holding the immutable thread-safe "descriptor model". The record classes in the model
  * know how to "serialize" themselves to XML.
+ * <p>
+ * Large result sets typically contain the same methods and symbols many times. Hence the methods and invoke instructions
+ * are preferably created through a {@link SymbolTable}, which returns shared instances.
  *
  * @author Chris de Vreeze
  */
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.desc;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * "Namespace" holding a compact binary encoding of {@link DescriptorModel} records, as alternative to the JSON
+ * serializers in {@link DescriptorModel}, for (very) large result sets. It has a streaming {@link Writer} and a
+ * streaming {@link Reader}. Values read back are equal to the values written.
+ * <p>
+ * The format starts with a header (magic number and version), followed by a sequence of records. Each record consists
+ * of a tag byte, the payload length as unsigned LEB128 varint, and the payload. Hence, readers can skip records with
+ * unknown tags. All strings are stored only once, in string records, which implicitly get consecutive IDs. Other records
+ * refer to strings by ID, and class names and method types are stored as descriptor strings. Each string record is
+ * written just before the first record referring to it, so the string table is built up while streaming.
+ * <p>
+ * The supported record types are {@link DescriptorModel.Method}, {@link DescriptorModel.InvokeInstruction},
+ * {@link DescriptorModel.InvokeDynamicInstruction}, {@link DescriptorModel.InvokeInstructionAndContainingMethod} and
+ * {@link DescriptorModel.InvokeDynamicInstructionAndContainingMethod}.
+ *
+ * @author Chris de Vreeze
+ */
+public final class DescriptorModelBinaryFormat {
+
+    public static final int MAGIC = 0x43445644; // "CDVD"
+    public static final int VERSION = 1;
+
+    private static final int TAG_STRING = 1;
+    private static final int TAG_METHOD = 2;
+    private static final int TAG_INVOKE_INSTRUCTION = 3;
+    private static final int TAG_INVOKE_DYNAMIC_INSTRUCTION = 4;
+    private static final int TAG_INVOKE_INSTRUCTION_AND_CONTAINING_METHOD = 5;
+    private static final int TAG_INVOKE_DYNAMIC_INSTRUCTION_AND_CONTAINING_METHOD = 6;
+
+    // Tags of bootstrap arguments
+    private static final int CONSTANT_CLASS = 1;
+    private static final int CONSTANT_METHOD_TYPE = 2;
+    private static final int CONSTANT_METHOD_HANDLE = 3;
+    private static final int CONSTANT_STRING = 4;
+    private static final int CONSTANT_INTEGER = 5;
+    private static final int CONSTANT_LONG = 6;
+    private static final int CONSTANT_FLOAT = 7;
+    private static final int CONSTANT_DOUBLE = 8;
+    private static final int CONSTANT_DYNAMIC = 9;
+
+    private static final ImmutableMap<Integer, Opcode> OPCODES = Arrays.stream(Opcode.values())
+            .collect(ImmutableMap.toImmutableMap(Opcode::bytecode, op -> op, (op1, op2) -> op1));
+
+    private DescriptorModelBinaryFormat() {
+        // Non-instantiable
+    }
+
+    /**
+     * Streaming writer of {@link DescriptorModel} records in the binary format. The underlying output stream is buffered,
+     * and it is closed when closing this writer. This class is not thread-safe.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+        private Writer(OutputStream outputStream) {
+            this.out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16));
+        }
+
+        /**
+         * Opens a writer, writing the header to the given output stream.
+         */
+        public static Writer open(OutputStream outputStream) {
+            Writer writer = new Writer(outputStream);
+            try {
+                writer.out.writeInt(MAGIC);
+                writer.out.writeByte(VERSION);
+                return writer;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Opens a writer to the given file, creating or truncating it.
+         */
+        public static Writer open(Path file) {
+            try {
+                return open(Files.newOutputStream(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes one record. An {@link IllegalArgumentException} is thrown if the record type is not supported.
+         */
+        public void write(Object result) {
+            try {
+                int tag = switch (result) {
+                    case DescriptorModel.Method method -> {
+                        encodeMethod(method);
+                        yield TAG_METHOD;
+                    }
+                    case DescriptorModel.InvokeInstruction ivk -> {
+                        encodeInvokeInstruction(ivk);
+                        yield TAG_INVOKE_INSTRUCTION;
+                    }
+                    case DescriptorModel.InvokeDynamicInstruction ivk -> {
+                        encodeInvokeDynamicInstruction(ivk);
+                        yield TAG_INVOKE_DYNAMIC_INSTRUCTION;
+                    }
+                    case DescriptorModel.InvokeInstructionAndContainingMethod ivk -> {
+                        encodeInvokeInstruction(ivk.invokeInstruction());
+                        encodeMethod(ivk.containingMethod());
+                        yield TAG_INVOKE_INSTRUCTION_AND_CONTAINING_METHOD;
+                    }
+                    case DescriptorModel.InvokeDynamicInstructionAndContainingMethod ivk -> {
+                        encodeInvokeDynamicInstruction(ivk.invokeInstruction());
+                        encodeMethod(ivk.containingMethod());
+                        yield TAG_INVOKE_DYNAMIC_INSTRUCTION_AND_CONTAINING_METHOD;
+                    }
+                    default -> throw new IllegalArgumentException("Unsupported record type: " + result.getClass());
+                };
+
+                // Any string records needed by this record have already been written
+                out.writeByte(tag);
+                writeVarint(out, payloadBytes.size());
+                payloadBytes.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                payloadBytes.reset();
+            }
+        }
+
+        /**
+         * Writes all records of the stream, one at a time, while the stream is being consumed.
+         */
+        public void writeAll(Stream<?> results) {
+            results.forEachOrdered(this::write);
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void encodeMethod(DescriptorModel.Method method) throws IOException {
+            encodeString(method.methodName());
+            encodeString(method.methodTypeDesc().descriptorString());
+            encodeString(method.parent().descriptorString());
+            writeVarint(payload, method.accessFlags().stream().mapToInt(AccessFlag::mask).reduce(0, (m1, m2) -> m1 | m2));
+        }
+
+        private void encodeInvokeInstruction(DescriptorModel.InvokeInstruction ivk) throws IOException {
+            writeVarint(payload, ivk.opcode().bytecode());
+            encodeString(ivk.owner().descriptorString());
+            encodeString(ivk.name());
+            encodeString(ivk.typeSymbol().descriptorString());
+            payload.writeBoolean(ivk.isInterface());
+        }
+
+        private void encodeInvokeDynamicInstruction(DescriptorModel.InvokeDynamicInstruction ivk) throws IOException {
+            // The dynamic call site descriptor is not written, since it can be recreated from the other data
+            writeVarint(payload, ivk.opcode().bytecode());
+            encodeString(ivk.name());
+            encodeString(ivk.typeSymbol().descriptorString());
+            encodeMethodHandle(ivk.bootstrapMethod());
+            encodeConstants(ivk.bootstrapArgs());
+        }
+
+        private void encodeMethodHandle(DirectMethodHandleDesc methodHandle) throws IOException {
+            writeVarint(payload, methodHandle.refKind());
+            payload.writeBoolean(methodHandle.kind().isInterface);
+            encodeString(methodHandle.owner().descriptorString());
+            encodeString(methodHandle.methodName());
+            encodeString(methodHandle.lookupDescriptor());
+        }
+
+        private void encodeConstants(List<? extends ConstantDesc> constants) throws IOException {
+            writeVarint(payload, constants.size());
+            for (ConstantDesc constant : constants) {
+                encodeConstant(constant);
+            }
+        }
+
+        private void encodeConstant(ConstantDesc constant) throws IOException {
+            switch (constant) {
+                case ClassDesc classDesc -> {
+                    payload.writeByte(CONSTANT_CLASS);
+                    encodeString(classDesc.descriptorString());
+                }
+                case MethodTypeDesc methodTypeDesc -> {
+                    payload.writeByte(CONSTANT_METHOD_TYPE);
+                    encodeString(methodTypeDesc.descriptorString());
+                }
+                case DirectMethodHandleDesc methodHandle -> {
+                    payload.writeByte(CONSTANT_METHOD_HANDLE);
+                    encodeMethodHandle(methodHandle);
+                }
+                case MethodHandleDesc methodHandle ->
+                        throw new IllegalArgumentException("Unsupported (non-direct) method handle: " + methodHandle);
+                case String s -> {
+                    payload.writeByte(CONSTANT_STRING);
+                    encodeString(s);
+                }
+                case Integer n -> {
+                    payload.writeByte(CONSTANT_INTEGER);
+                    payload.writeInt(n);
+                }
+                case Long n -> {
+                    payload.writeByte(CONSTANT_LONG);
+                    payload.writeLong(n);
+                }
+                case Float n -> {
+                    payload.writeByte(CONSTANT_FLOAT);
+                    payload.writeFloat(n);
+                }
+                case Double n -> {
+                    payload.writeByte(CONSTANT_DOUBLE);
+                    payload.writeDouble(n);
+                }
+                case DynamicConstantDesc<?> dynamicConstant -> {
+                    payload.writeByte(CONSTANT_DYNAMIC);
+                    encodeMethodHandle(dynamicConstant.bootstrapMethod());
+                    encodeString(dynamicConstant.constantName());
+                    encodeString(dynamicConstant.constantType().descriptorString());
+                    encodeConstants(dynamicConstant.bootstrapArgsList());
+                }
+            }
+        }
+
+        /**
+         * Writes the ID of the string to the payload, first writing a string record if the string is new.
+         */
+        private void encodeString(String s) throws IOException {
+            Integer id = stringIds.get(s);
+
+            if (id == null) {
+                id = stringIds.size();
+                stringIds.put(s, id);
+
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeByte(TAG_STRING);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+            writeVarint(payload, id);
+        }
+    }
+
+    /**
+     * Streaming reader of {@link DescriptorModel} records in the binary format. The methods and invoke instructions read
+     * are canonicalized through the shared {@link SymbolTable}. The underlying input stream is closed when closing this
+     * reader. This class is not thread-safe.
+     */
+    public static final class Reader implements AutoCloseable {
+
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        // Parsed class descriptors and method type descriptors, per string ID
+        private final List<@Nullable ConstantDesc> symbols = new ArrayList<>();
+
+        private Reader(InputStream inputStream) {
+            this.in = new DataInputStream(new BufferedInputStream(inputStream, 1 << 16));
+        }
+
+        /**
+         * Opens a reader, reading and checking the header of the given input stream.
+         */
+        public static Reader open(InputStream inputStream) {
+            Reader reader = new Reader(inputStream);
+            try {
+                int magic = reader.in.readInt();
+                int version = reader.in.readUnsignedByte();
+                Preconditions.checkArgument(magic == MAGIC, "Not a descriptor model binary file");
+                Preconditions.checkArgument(version == VERSION, "Unsupported version: %s", version);
+                return reader;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Opens a reader of the given file.
+         */
+        public static Reader open(Path file) {
+            try {
+                return open(Files.newInputStream(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the next record, processing any string records before it, and skipping records with unknown tags.
+         * Returns the empty optional at the end of the input.
+         */
+        public Optional<Object> read() {
+            try {
+                while (true) {
+                    int tag = in.read();
+                    if (tag < 0) {
+                        return Optional.empty();
+                    }
+
+                    int length = readVarint(in);
+                    ByteBuffer payload = ByteBuffer.wrap(in.readNBytes(length));
+                    if (payload.remaining() != length) {
+                        throw new EOFException("Truncated record with tag " + tag);
+                    }
+
+                    switch (tag) {
+                        case TAG_STRING -> {
+                            strings.add(StandardCharsets.UTF_8.decode(payload).toString());
+                            symbols.add(null);
+                        }
+                        case TAG_METHOD -> {
+                            return Optional.of(decodeMethod(payload));
+                        }
+                        case TAG_INVOKE_INSTRUCTION -> {
+                            return Optional.of(decodeInvokeInstruction(payload));
+                        }
+                        case TAG_INVOKE_DYNAMIC_INSTRUCTION -> {
+                            return Optional.of(decodeInvokeDynamicInstruction(payload));
+                        }
+                        case TAG_INVOKE_INSTRUCTION_AND_CONTAINING_METHOD -> {
+                            DescriptorModel.InvokeInstruction ivk = decodeInvokeInstruction(payload);
+                            return Optional.of(new DescriptorModel.InvokeInstructionAndContainingMethod(ivk, decodeMethod(payload)));
+                        }
+                        case TAG_INVOKE_DYNAMIC_INSTRUCTION_AND_CONTAINING_METHOD -> {
+                            DescriptorModel.InvokeDynamicInstruction ivk = decodeInvokeDynamicInstruction(payload);
+                            return Optional.of(new DescriptorModel.InvokeDynamicInstructionAndContainingMethod(ivk, decodeMethod(payload)));
+                        }
+                        default -> {
+                            // Unknown record type, written by a newer writer, so skipped
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the remaining records as lazy stream, reading one record at a time while the stream is being consumed.
+         */
+        public Stream<Object> stream() {
+            return Stream.generate(this::read).takeWhile(Optional::isPresent).map(Optional::get);
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private DescriptorModel.Method decodeMethod(ByteBuffer payload) {
+            String methodName = decodeString(payload);
+            MethodTypeDesc methodTypeDesc = decodeMethodTypeDesc(payload);
+            ClassDesc parent = decodeClassDesc(payload);
+            int mask = readVarint(payload);
+
+            return SymbolTable.getShared().method(
+                    methodName,
+                    methodTypeDesc,
+                    parent,
+                    ImmutableSet.copyOf(AccessFlag.maskToAccessFlags(mask, AccessFlag.Location.METHOD))
+            );
+        }
+
+        private DescriptorModel.InvokeInstruction decodeInvokeInstruction(ByteBuffer payload) {
+            Opcode opcode = decodeOpcode(payload);
+            ClassDesc owner = decodeClassDesc(payload);
+            String name = decodeString(payload);
+            MethodTypeDesc typeSymbol = decodeMethodTypeDesc(payload);
+            boolean isInterface = payload.get() != 0;
+
+            return SymbolTable.getShared().invokeInstruction(opcode, owner, name, typeSymbol, isInterface);
+        }
+
+        private DescriptorModel.InvokeDynamicInstruction decodeInvokeDynamicInstruction(ByteBuffer payload) {
+            Opcode opcode = decodeOpcode(payload);
+            String name = decodeString(payload);
+            MethodTypeDesc typeSymbol = decodeMethodTypeDesc(payload);
+            DirectMethodHandleDesc bootstrapMethod = decodeMethodHandle(payload);
+            ImmutableList<ConstantDesc> bootstrapArgs = decodeConstants(payload);
+
+            return new DescriptorModel.InvokeDynamicInstruction(
+                    opcode,
+                    name,
+                    typeSymbol,
+                    DynamicCallSiteDesc.of(bootstrapMethod, name, typeSymbol, bootstrapArgs.toArray(ConstantDesc[]::new)),
+                    bootstrapMethod,
+                    bootstrapArgs
+            );
+        }
+
+        private DirectMethodHandleDesc decodeMethodHandle(ByteBuffer payload) {
+            int refKind = readVarint(payload);
+            boolean isInterface = payload.get() != 0;
+            ClassDesc owner = decodeClassDesc(payload);
+            String methodName = decodeString(payload);
+            String lookupDescriptor = decodeString(payload);
+
+            return MethodHandleDesc.of(DirectMethodHandleDesc.Kind.valueOf(refKind, isInterface), owner, methodName, lookupDescriptor);
+        }
+
+        private ImmutableList<ConstantDesc> decodeConstants(ByteBuffer payload) {
+            int count = readVarint(payload);
+            ImmutableList.Builder<ConstantDesc> result = ImmutableList.builderWithExpectedSize(count);
+
+            for (int i = 0; i < count; i++) {
+                result.add(decodeConstant(payload));
+            }
+            return result.build();
+        }
+
+        private ConstantDesc decodeConstant(ByteBuffer payload) {
+            int constantTag = payload.get();
+
+            return switch (constantTag) {
+                case CONSTANT_CLASS -> decodeClassDesc(payload);
+                case CONSTANT_METHOD_TYPE -> decodeMethodTypeDesc(payload);
+                case CONSTANT_METHOD_HANDLE -> decodeMethodHandle(payload);
+                case CONSTANT_STRING -> decodeString(payload);
+                case CONSTANT_INTEGER -> payload.getInt();
+                case CONSTANT_LONG -> payload.getLong();
+                case CONSTANT_FLOAT -> payload.getFloat();
+                case CONSTANT_DOUBLE -> payload.getDouble();
+                case CONSTANT_DYNAMIC -> {
+                    DirectMethodHandleDesc bootstrapMethod = decodeMethodHandle(payload);
+                    String constantName = decodeString(payload);
+                    ClassDesc constantType = decodeClassDesc(payload);
+                    ImmutableList<ConstantDesc> bootstrapArgs = decodeConstants(payload);
+                    yield DynamicConstantDesc.ofNamed(
+                            bootstrapMethod,
+                            constantName,
+                            constantType,
+                            bootstrapArgs.toArray(ConstantDesc[]::new)
+                    );
+                }
+                default -> throw new IllegalStateException("Unknown constant tag: " + constantTag);
+            };
+        }
+
+        private Opcode decodeOpcode(ByteBuffer payload) {
+            int bytecode = readVarint(payload);
+            return Objects.requireNonNull(OPCODES.get(bytecode), () -> "Unknown opcode: " + bytecode);
+        }
+
+        private String decodeString(ByteBuffer payload) {
+            return strings.get(readVarint(payload));
+        }
+
+        private ClassDesc decodeClassDesc(ByteBuffer payload) {
+            int id = readVarint(payload);
+            if (symbols.get(id) instanceof ClassDesc classDesc) {
+                return classDesc;
+            }
+            ClassDesc result = SymbolTable.getShared().intern(ClassDesc.ofDescriptor(strings.get(id)));
+            symbols.set(id, result);
+            return result;
+        }
+
+        private MethodTypeDesc decodeMethodTypeDesc(ByteBuffer payload) {
+            int id = readVarint(payload);
+            if (symbols.get(id) instanceof MethodTypeDesc methodTypeDesc) {
+                return methodTypeDesc;
+            }
+            MethodTypeDesc result = SymbolTable.getShared().intern(MethodTypeDesc.ofDescriptor(strings.get(id)));
+            symbols.set(id, result);
+            return result;
+        }
+    }
+
+    private static void writeVarint(DataOutput output, int value) throws IOException {
+        Preconditions.checkArgument(value >= 0, "Negative varint not allowed");
+        int remainder = value;
+
+        while ((remainder & ~0x7F) != 0) {
+            output.writeByte((remainder & 0x7F) | 0x80);
+            remainder >>>= 7;
+        }
+        output.writeByte(remainder);
+    }
+
+    private static int readVarint(DataInput input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
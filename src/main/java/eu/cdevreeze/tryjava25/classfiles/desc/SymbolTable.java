@@ -0,0 +1,108 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.desc;
+
+import module java.base;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Thread-safe symbol table, canonicalizing class names, method descriptors, method names and the
+ * {@link DescriptorModel} records built from them to shared instances. Each {@link ClassModel} has its own constant pool,
+ * so without such a symbol table, the same symbol is repeated in memory for each class (and each method) referring to it.
+ * <p>
+ * The symbol table holds its entries weakly, so symbols that are no longer referenced can still be garbage collected.
+ * Typically the shared instance is used, as returned by {@link #getShared()}.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SymbolTable {
+
+    private static final SymbolTable SHARED = new SymbolTable();
+
+    private final Interner<ClassDesc> classDescs = Interners.newWeakInterner();
+    // Keyed on the descriptor string, with weak values, so unused method type descriptors can still be collected
+    private final ConcurrentMap<String, MethodTypeDesc> methodTypeDescs = new MapMaker().weakValues().makeMap();
+    private final Interner<String> names = Interners.newWeakInterner();
+    private final Interner<ImmutableSet<AccessFlag>> accessFlagSets = Interners.newWeakInterner();
+    private final Interner<DescriptorModel.Method> methods = Interners.newWeakInterner();
+    private final Interner<DescriptorModel.InvokeInstruction> invokeInstructions = Interners.newWeakInterner();
+
+    public static SymbolTable getShared() {
+        return SHARED;
+    }
+
+    public ClassDesc intern(ClassDesc classDesc) {
+        return classDescs.intern(classDesc);
+    }
+
+    /**
+     * Interns the method type descriptor, including its return and parameter types.
+     */
+    public MethodTypeDesc intern(MethodTypeDesc methodTypeDesc) {
+        // Parsed method type descriptors cache their descriptor string, so a hit does not allocate anything
+        MethodTypeDesc interned = methodTypeDescs.get(methodTypeDesc.descriptorString());
+
+        if (interned != null) {
+            return interned;
+        }
+
+        MethodTypeDesc canonical = MethodTypeDesc.of(
+                intern(methodTypeDesc.returnType()),
+                methodTypeDesc.parameterList().stream().map(this::intern).toArray(ClassDesc[]::new)
+        );
+        MethodTypeDesc previous = methodTypeDescs.putIfAbsent(methodTypeDesc.descriptorString(), canonical);
+        return (previous == null) ? canonical : previous;
+    }
+
+    public String intern(String name) {
+        return names.intern(name);
+    }
+
+    public ImmutableSet<AccessFlag> intern(ImmutableSet<AccessFlag> accessFlags) {
+        return accessFlagSets.intern(accessFlags);
+    }
+
+    /**
+     * Returns the canonical {@link DescriptorModel.Method} with the given (interned) components.
+     */
+    public DescriptorModel.Method method(
+            String methodName,
+            MethodTypeDesc methodTypeDesc,
+            ClassDesc parent,
+            ImmutableSet<AccessFlag> accessFlags) {
+        return methods.intern(
+                new DescriptorModel.Method(intern(methodName), intern(methodTypeDesc), intern(parent), intern(accessFlags))
+        );
+    }
+
+    /**
+     * Returns the canonical {@link DescriptorModel.InvokeInstruction} with the given (interned) components.
+     */
+    public DescriptorModel.InvokeInstruction invokeInstruction(
+            Opcode opcode,
+            ClassDesc owner,
+            String name,
+            MethodTypeDesc typeSymbol,
+            boolean isInterface) {
+        return invokeInstructions.intern(
+                new DescriptorModel.InvokeInstruction(opcode, intern(owner), intern(name), intern(typeSymbol), isInterface)
+        );
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.JdkClassResolver;
+
+/**
+ * Resolver of the possible target methods of invoke instructions, using Class Hierarchy Analysis (CHA), or optionally
+ * Rapid Type Analysis (RTA). With CHA, an "invokevirtual" or "invokeinterface" instruction may target the implementation
+ * of the method in any concrete class that is a subtype of the method owner mentioned in the instruction. RTA further
+ * restricts those classes to the ones that are instantiated somewhere in the class universe.
+ * <p>
+ * To that end, a virtual method table is computed for each class, mapping each non-abstract instance method signature
+ * to the class declaring the implementation inherited (or declared) by that class. These tables are precomputed for
+ * all classes in the class universe, and computed on demand for JDK classes. The resolved targets per called method
+ * are memoized as well, so resolving an invoke instruction during call graph construction is typically a map lookup.
+ * <p>
+ * The resolved targets always include the called method as mentioned in the instruction itself. Known limitations:
+ * subtypes are only found through the reverse subtype index of the {@link ClassUniverse}, so subtypes of JDK types that
+ * only reach them through other JDK types are missed. Also, the selection of interface default methods is simplified,
+ * in that methods of superclasses win, and otherwise the first default method found wins.
+ * <p>
+ * Virtual calls of methods owned by {@code java.lang.Object} (such as "toString" called on a receiver of static type
+ * {@code Object}) are not resolved to overriding methods. Each class in the universe is a subtype of {@code Object},
+ * so such calls would otherwise be indexed under almost every "toString", "equals" and "hashCode" implementation.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Chris de Vreeze
+ */
+public final class CallResolver {
+
+    public enum Algorithm {CHA, RTA}
+
+    private record MethodSignature(String methodName, MethodTypeDesc methodTypeDesc) {
+    }
+
+    private final ClassUniverse classUniverse;
+    private final Algorithm algorithm;
+    private final ImmutableSet<ClassDesc> instantiatedClasses; // only used for RTA
+
+    private final ConcurrentMap<ClassDesc, ImmutableMap<MethodSignature, ClassDesc>> virtualMethodTables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MethodCallIndex.MethodRef, ImmutableSet<MethodCallIndex.MethodRef>> virtualCallTargets =
+            new ConcurrentHashMap<>();
+
+    private CallResolver(ClassUniverse classUniverse, Algorithm algorithm, ImmutableSet<ClassDesc> instantiatedClasses) {
+        this.classUniverse = classUniverse;
+        this.algorithm = algorithm;
+        this.instantiatedClasses = instantiatedClasses;
+    }
+
+    /**
+     * Creates a call resolver, precomputing the virtual method tables of all classes in the universe. For RTA,
+     * all code in the universe is scanned once, in order to find the instantiated classes.
+     */
+    public static CallResolver create(ClassUniverse classUniverse, Algorithm algorithm) {
+        ImmutableSet<ClassDesc> instantiatedClasses =
+                algorithm == Algorithm.RTA ? findInstantiatedClasses(classUniverse) : ImmutableSet.of();
+
+        CallResolver callResolver = new CallResolver(classUniverse, algorithm, instantiatedClasses);
+        classUniverse.getClassDescs().forEach(callResolver::findVirtualMethodTable);
+        return callResolver;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the possible target methods of an invoke instruction with the given opcode and called method.
+     * The result always contains the called method itself.
+     */
+    public ImmutableSet<MethodCallIndex.MethodRef> resolveTargets(Opcode opcode, MethodCallIndex.MethodRef callee) {
+        return switch (opcode) {
+            case INVOKEVIRTUAL, INVOKEINTERFACE -> resolveVirtualCallTargets(callee);
+            default -> resolveStaticallyBoundCallTargets(callee);
+        };
+    }
+
+    private ImmutableSet<MethodCallIndex.MethodRef> resolveVirtualCallTargets(MethodCallIndex.MethodRef callee) {
+        if (callee.owner().equals(ConstantDescs.CD_Object)) {
+            return ImmutableSet.of(callee);
+        }
+
+        ImmutableSet<MethodCallIndex.MethodRef> cachedTargets = virtualCallTargets.get(callee);
+        if (cachedTargets != null) {
+            return cachedTargets;
+        }
+
+        MethodSignature signature = new MethodSignature(callee.methodName(), callee.methodTypeDesc());
+
+        ImmutableSet<MethodCallIndex.MethodRef> targets = Stream.concat(
+                        Stream.of(callee),
+                        Stream.concat(Stream.of(callee.owner()), classUniverse.findAllSubtypeDescs(callee.owner()).stream())
+                                .filter(this::isConcreteClass)
+                                .filter(c -> algorithm == Algorithm.CHA || instantiatedClasses.contains(c))
+                                .flatMap(c -> Optional.ofNullable(findVirtualMethodTable(c).get(signature)).stream())
+                                .map(declaringClass -> new MethodCallIndex.MethodRef(declaringClass, callee.methodName(), callee.methodTypeDesc()))
+                )
+                .collect(ImmutableSet.toImmutableSet());
+
+        ImmutableSet<MethodCallIndex.MethodRef> previousTargets = virtualCallTargets.putIfAbsent(callee, targets);
+        return previousTargets == null ? targets : previousTargets;
+    }
+
+    private ImmutableSet<MethodCallIndex.MethodRef> resolveStaticallyBoundCallTargets(MethodCallIndex.MethodRef callee) {
+        // For example, a "super" call to a method inherited by the superclass mentioned in the instruction
+        MethodSignature signature = new MethodSignature(callee.methodName(), callee.methodTypeDesc());
+        ClassDesc declaringClass = findVirtualMethodTable(callee.owner()).get(signature);
+
+        return declaringClass == null || declaringClass.equals(callee.owner()) ?
+                ImmutableSet.of(callee) :
+                ImmutableSet.of(callee, new MethodCallIndex.MethodRef(declaringClass, callee.methodName(), callee.methodTypeDesc()));
+    }
+
+    /**
+     * Returns the virtual method table of the given class, memoized. Methods of superclasses win over interface
+     * default methods, and own methods win over inherited ones.
+     */
+    private ImmutableMap<MethodSignature, ClassDesc> findVirtualMethodTable(ClassDesc classDesc) {
+        ImmutableMap<MethodSignature, ClassDesc> cachedTable = virtualMethodTables.get(classDesc);
+        if (cachedTable != null) {
+            return cachedTable;
+        }
+
+        Map<MethodSignature, ClassDesc> table = new HashMap<>();
+
+        tryResolveClass(classDesc).ifPresent(classModel -> {
+            classModel.interfaces().forEach(itf -> findVirtualMethodTable(itf.asSymbol()).forEach(table::putIfAbsent));
+            classModel.superclass().ifPresent(sc -> table.putAll(findVirtualMethodTable(sc.asSymbol())));
+
+            classModel.methods().stream()
+                    .filter(CallResolver::isOverridableImplementation)
+                    .forEach(m -> table.put(new MethodSignature(m.methodName().stringValue(), m.methodTypeSymbol()), classDesc));
+        });
+
+        ImmutableMap<MethodSignature, ClassDesc> result = ImmutableMap.copyOf(table);
+        ImmutableMap<MethodSignature, ClassDesc> previousTable = virtualMethodTables.putIfAbsent(classDesc, result);
+        return previousTable == null ? result : previousTable;
+    }
+
+    private boolean isConcreteClass(ClassDesc classDesc) {
+        return tryResolveClass(classDesc)
+                .map(c -> !c.flags().has(AccessFlag.INTERFACE) && !c.flags().has(AccessFlag.ABSTRACT))
+                .orElse(false);
+    }
+
+    private Optional<ClassModel> tryResolveClass(ClassDesc classDesc) {
+        if (!classDesc.isClassOrInterface()) {
+            return Optional.empty();
+        } else if (classUniverse.containsClass(classDesc)) {
+            return Optional.of(classUniverse.resolveClass(classDesc));
+        } else if (JdkClassResolver.getInstance().isJdkClass(classDesc)) {
+            try {
+                return Optional.of(JdkClassResolver.getInstance().resolveClass(classDesc));
+            } catch (UncheckedIOException e) {
+                return Optional.empty();
+            }
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isOverridableImplementation(MethodModel methodModel) {
+        String methodName = methodModel.methodName().stringValue();
+
+        return !methodName.equals(ConstantDescs.INIT_NAME) &&
+                !methodName.equals(ConstantDescs.CLASS_INIT_NAME) &&
+                !methodModel.flags().has(AccessFlag.STATIC) &&
+                !methodModel.flags().has(AccessFlag.PRIVATE) &&
+                !methodModel.flags().has(AccessFlag.ABSTRACT);
+    }
+
+    private static ImmutableSet<ClassDesc> findInstantiatedClasses(ClassUniverse classUniverse) {
+        return classUniverse.getClassDescs().stream()
+                .map(classUniverse::resolveClass)
+                .flatMap(classModel -> classModel.methods().stream())
+                .flatMap(methodModel -> methodModel.code().stream())
+                .flatMap(CodeModel::elementStream)
+                .flatMap(codeElem ->
+                        codeElem instanceof NewObjectInstruction newObjectInstruction ?
+                                Stream.of(newObjectInstruction.className().asSymbol()) :
+                                Stream.empty()
+                )
+                .collect(ImmutableSet.toImmutableSet());
+    }
+}
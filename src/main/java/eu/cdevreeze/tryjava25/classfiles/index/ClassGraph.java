@@ -0,0 +1,520 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.JdkClassResolver;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
+
+/**
+ * Compact graph of the classes in a {@link ClassUniverse} or {@link EnhancedClassUniverse}, with the "extends",
+ * "implements" and "uses" relationships. Each class gets a dense int ID, and the edges are stored in CSR-style
+ * ("compressed sparse row") int arrays, so graph traversals run over primitive arrays only.
+ * <p>
+ * Besides the classes of the universe, the graph contains all classes referenced by them, and all JDK supertypes
+ * of the classes in the graph. The classes of the universe get the lowest IDs. The "uses" edges are those of the class
+ * usage map of the {@link EnhancedClassUniverse}, and there are none if the graph is created from a {@link ClassUniverse}.
+ * <p>
+ * The graph is a {@link TypeHierarchy}, answering the same queries as the class universe it has been created from,
+ * without holding on to any {@link ClassModel}. Its supertypes are in the same order as those returned by
+ * {@link ClassUniverse#findAllSupertypeDescsOrSelf(ClassDesc)}, and its subtypes are the subtypes in the universe,
+ * like those returned by {@link ClassUniverse#findAllSubtypeDescs(ClassDesc)}. Classes that are not in the graph,
+ * such as JDK classes that are neither used by nor supertypes of the classes of the universe, cannot be queried.
+ * <p>
+ * This class is immutable and thread-safe. The arrays are never exposed without copying them.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ClassGraph implements TypeHierarchy {
+
+    public static final int NO_CLASS_ID = -1;
+
+    /**
+     * Bit in the class flags, set for interfaces.
+     */
+    static final int INTERFACE_FLAG = 1;
+
+    private final ImmutableList<ClassDesc> classDescs;
+    private final ImmutableMap<ClassDesc, Integer> classIds;
+    private final ImmutableSet<ClassDesc> universeClassDescs;
+
+    private final int universeClassCount;
+    private final int[] classFlags;
+    private final int[] superclassIds;
+    private final int[] interfaceOffsets;
+    private final int[] interfaceIds;
+    private final int[] subtypeOffsets;
+    private final int[] subtypeIds;
+    private final int[] usedClassOffsets;
+    private final int[] usedClassIds;
+    private final int[] usingClassOffsets;
+    private final int[] usingClassIds;
+
+    private ClassGraph(
+            ImmutableList<ClassDesc> classDescs,
+            int universeClassCount,
+            int[] classFlags,
+            int[] superclassIds,
+            Csr interfaces,
+            Csr subtypes,
+            Csr usedClasses,
+            Csr usingClasses) {
+        this.classDescs = classDescs;
+        this.classIds = IntStream.range(0, classDescs.size())
+                .boxed()
+                .collect(ImmutableMap.toImmutableMap(classDescs::get, i -> i));
+        this.universeClassDescs = ImmutableSet.copyOf(classDescs.subList(0, universeClassCount));
+        this.universeClassCount = universeClassCount;
+        this.classFlags = classFlags;
+        this.superclassIds = superclassIds;
+        this.interfaceOffsets = interfaces.offsets();
+        this.interfaceIds = interfaces.targets();
+        this.subtypeOffsets = subtypes.offsets();
+        this.subtypeIds = subtypes.targets();
+        this.usedClassOffsets = usedClasses.offsets();
+        this.usedClassIds = usedClasses.targets();
+        this.usingClassOffsets = usingClasses.offsets();
+        this.usingClassIds = usingClasses.targets();
+    }
+
+    /**
+     * Creates the graph of the given class universe, without any "uses" edges.
+     */
+    public static ClassGraph create(ClassUniverse classUniverse) {
+        return create(classUniverse, ImmutableMap.of());
+    }
+
+    public static ClassGraph create(EnhancedClassUniverse enhancedClassUniverse) {
+        return create(enhancedClassUniverse.getClassUniverse(), enhancedClassUniverse.getClassUsageMap());
+    }
+
+    private static ClassGraph create(
+            ClassUniverse classUniverse,
+            ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> classUsageMap) {
+        IdAssigner idAssigner = new IdAssigner();
+
+        // Assign IDs to the universe classes first, then to the used classes, and then to the supertypes
+        classUniverse.getClassDescs().forEach(idAssigner::getOrAssignId);
+        int universeClassCount = idAssigner.size();
+        classUsageMap.forEach((usedClass, usingClasses) -> {
+            idAssigner.getOrAssignId(usedClass);
+            usingClasses.forEach(idAssigner::getOrAssignId);
+        });
+
+        List<Integer> classFlagList = new ArrayList<>();
+        List<Integer> superclassIdList = new ArrayList<>();
+        List<int[]> interfaceIdList = new ArrayList<>();
+
+        // The ID assigner may grow while iterating, which is intended, since JDK supertypes must be added as well
+        for (int id = 0; id < idAssigner.size(); id++) {
+            Optional<ClassModel> classModelOption = tryResolveClass(classUniverse, idAssigner.getClassDesc(id));
+
+            if (classModelOption.isPresent()) {
+                ClassModel classModel = classModelOption.get();
+                classFlagList.add(classModel.flags().has(AccessFlag.INTERFACE) ? INTERFACE_FLAG : 0);
+                superclassIdList.add(classModel.superclass().map(sc -> idAssigner.getOrAssignId(sc.asSymbol())).orElse(NO_CLASS_ID));
+                interfaceIdList.add(
+                        classModel.interfaces().stream().mapToInt(itf -> idAssigner.getOrAssignId(itf.asSymbol())).toArray()
+                );
+            } else {
+                // Unresolvable class, e.g. not on the classpath
+                classFlagList.add(0);
+                superclassIdList.add(NO_CLASS_ID);
+                interfaceIdList.add(new int[0]);
+            }
+        }
+
+        int classCount = idAssigner.size();
+
+        // Like the reverse subtype index of ClassUniverse, only the universe classes are subtypes
+        List<List<Integer>> subtypeIdLists = new ArrayList<>();
+        for (int id = 0; id < classCount; id++) {
+            subtypeIdLists.add(new ArrayList<>());
+        }
+        for (int id = 0; id < universeClassCount; id++) {
+            if (superclassIdList.get(id) != NO_CLASS_ID) {
+                subtypeIdLists.get(superclassIdList.get(id)).add(id);
+            }
+            for (int interfaceId : interfaceIdList.get(id)) {
+                subtypeIdLists.get(interfaceId).add(id);
+            }
+        }
+        List<int[]> subtypeIdList = subtypeIdLists.stream()
+                .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                .toList();
+
+        List<int[]> usedClassIdList = new ArrayList<>(Collections.nCopies(classCount, new int[0]));
+        List<int[]> usingClassIdList = new ArrayList<>(Collections.nCopies(classCount, new int[0]));
+
+        Map<Integer, List<Integer>> usedClassIdMap = new HashMap<>();
+        classUsageMap.forEach((usedClass, usingClasses) -> {
+            int usedClassId = idAssigner.getOrAssignId(usedClass);
+            int[] usingIds = usingClasses.stream().mapToInt(idAssigner::getOrAssignId).toArray();
+            usingClassIdList.set(usedClassId, usingIds);
+
+            for (int usingId : usingIds) {
+                usedClassIdMap.computeIfAbsent(usingId, _ -> new ArrayList<>()).add(usedClassId);
+            }
+        });
+        usedClassIdMap.forEach((usingId, usedIds) ->
+                usedClassIdList.set(usingId, usedIds.stream().mapToInt(Integer::intValue).toArray()));
+
+        return new ClassGraph(
+                idAssigner.getClassDescs(),
+                universeClassCount,
+                classFlagList.stream().mapToInt(Integer::intValue).toArray(),
+                superclassIdList.stream().mapToInt(Integer::intValue).toArray(),
+                Csr.from(interfaceIdList),
+                Csr.from(subtypeIdList),
+                Csr.from(usedClassIdList),
+                Csr.from(usingClassIdList)
+        );
+    }
+
+    public int size() {
+        return classDescs.size();
+    }
+
+    public OptionalInt findClassId(ClassDesc classDesc) {
+        Integer id = classIds.get(classDesc);
+        return id == null ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    public ClassDesc getClassDesc(int classId) {
+        return classDescs.get(classId);
+    }
+
+    /**
+     * Returns all classes in the graph, indexed by class ID, so including the used classes and JDK supertypes.
+     */
+    public ImmutableList<ClassDesc> getAllClassDescs() {
+        return classDescs;
+    }
+
+    /**
+     * Returns the number of classes of the universe, which have class IDs 0 until this number.
+     */
+    public int getUniverseClassCount() {
+        return universeClassCount;
+    }
+
+    public boolean isInterface(int classId) {
+        return (classFlags[classId] & INTERFACE_FLAG) != 0;
+    }
+
+    public int getSuperclassId(int classId) {
+        return superclassIds[classId];
+    }
+
+    public int[] getInterfaceIds(int classId) {
+        return Arrays.copyOfRange(interfaceIds, interfaceOffsets[classId], interfaceOffsets[classId + 1]);
+    }
+
+    public int[] getSubtypeIds(int classId) {
+        return Arrays.copyOfRange(subtypeIds, subtypeOffsets[classId], subtypeOffsets[classId + 1]);
+    }
+
+    public int[] getUsedClassIds(int classId) {
+        return Arrays.copyOfRange(usedClassIds, usedClassOffsets[classId], usedClassOffsets[classId + 1]);
+    }
+
+    public int[] getUsingClassIds(int classId) {
+        return Arrays.copyOfRange(usingClassIds, usingClassOffsets[classId], usingClassOffsets[classId + 1]);
+    }
+
+    /**
+     * Returns the class itself and its superclasses, nearest first, followed by all its interfaces, in the same order
+     * as {@link ClassUniverse#findAllSupertypeDescsOrSelf(ClassDesc)}.
+     */
+    public int[] findAllSupertypeIdsOrSelf(int classId) {
+        Objects.checkIndex(classId, size());
+
+        IdList result = new IdList(size());
+        for (int id = classId; id != NO_CLASS_ID; id = superclassIds[id]) {
+            result.add(id);
+        }
+        addAllInterfaceIds(classId, result);
+        return result.toArray();
+    }
+
+    /**
+     * Returns all direct and indirect subtypes in the universe, excluding the class itself, in breadth-first order.
+     */
+    public int[] findAllSubtypeIds(int classId) {
+        int[] subtypeIdsOrSelf = traverse(classId, (id, queue) -> {
+            for (int i = subtypeOffsets[id]; i < subtypeOffsets[id + 1]; i++) {
+                queue.accept(subtypeIds[i]);
+            }
+        });
+        return Arrays.copyOfRange(subtypeIdsOrSelf, 1, subtypeIdsOrSelf.length);
+    }
+
+    /**
+     * Returns the class itself and all classes that directly or indirectly use it, in breadth-first order.
+     */
+    public int[] findAllUsingClassIdsOrSelf(int classId) {
+        return traverse(classId, (id, queue) -> {
+            for (int i = usingClassOffsets[id]; i < usingClassOffsets[id + 1]; i++) {
+                queue.accept(usingClassIds[i]);
+            }
+        });
+    }
+
+    /**
+     * Returns the class itself and all classes that it directly or indirectly uses, in breadth-first order.
+     */
+    public int[] findAllUsedClassIdsOrSelf(int classId) {
+        return traverse(classId, (id, queue) -> {
+            for (int i = usedClassOffsets[id]; i < usedClassOffsets[id + 1]; i++) {
+                queue.accept(usedClassIds[i]);
+            }
+        });
+    }
+
+    public ImmutableList<ClassDesc> toClassDescs(int[] classIds) {
+        return Arrays.stream(classIds).mapToObj(classDescs::get).collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns the classes of the universe, like {@link ClassUniverse#getClassDescs()}.
+     */
+    @Override
+    public ImmutableSet<ClassDesc> getClassDescs() {
+        return universeClassDescs;
+    }
+
+    @Override
+    public boolean containsClass(ClassDesc classDesc) {
+        return universeClassDescs.contains(classDesc);
+    }
+
+    /**
+     * Returns the class itself, its superclasses, and all its interfaces, without duplicates. An exception is thrown if
+     * the class is not in the graph.
+     */
+    @Override
+    public ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        Preconditions.checkArgument(classId.isPresent(), "Class not in graph: %s", classDesc);
+
+        return toClassDescs(findAllSupertypeIdsOrSelf(classId.getAsInt()));
+    }
+
+    @Override
+    public ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        return classId.isPresent() ? toClassDescs(findAllSubtypeIds(classId.getAsInt())) : ImmutableList.of();
+    }
+
+    /**
+     * Returns true if the class is an interface. Classes that are not in the graph are not considered interfaces.
+     */
+    @Override
+    public boolean isInterface(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        return classId.isPresent() && isInterface(classId.getAsInt());
+    }
+
+    // Package-private access to the raw arrays, for other indexes in this package
+
+    int[] classFlags() {
+        return classFlags;
+    }
+
+    int[] superclassIds() {
+        return superclassIds;
+    }
+
+    int[] interfaceOffsets() {
+        return interfaceOffsets;
+    }
+
+    int[] interfaceIds() {
+        return interfaceIds;
+    }
+
+    int[] subtypeOffsets() {
+        return subtypeOffsets;
+    }
+
+    int[] subtypeIds() {
+        return subtypeIds;
+    }
+
+    int[] usedClassOffsets() {
+        return usedClassOffsets;
+    }
+
+    int[] usedClassIds() {
+        return usedClassIds;
+    }
+
+    int[] usingClassOffsets() {
+        return usingClassOffsets;
+    }
+
+    int[] usingClassIds() {
+        return usingClassIds;
+    }
+
+    @FunctionalInterface
+    private interface Successors {
+
+        void forEach(int classId, IntConsumer consumer);
+    }
+
+    private void addAllInterfaceIds(int classId, IdList result) {
+        // Same order as ClassUniverse: own interfaces, each followed by its superinterfaces, then those of the superclass
+        for (int i = interfaceOffsets[classId]; i < interfaceOffsets[classId + 1]; i++) {
+            // If the interface has been added before, its superinterfaces have been added as well
+            if (result.add(interfaceIds[i])) {
+                addAllInterfaceIds(interfaceIds[i], result);
+            }
+        }
+        if (superclassIds[classId] != NO_CLASS_ID) {
+            addAllInterfaceIds(superclassIds[classId], result);
+        }
+    }
+
+    private int[] traverse(int startClassId, Successors successors) {
+        Objects.checkIndex(startClassId, size());
+
+        // Breadth-first, using an array as queue, since each class is enqueued at most once
+        int[] queue = new int[size()];
+        BitSet visited = new BitSet(size());
+        int head = 0;
+        int[] tail = {0}; // Mutable from within the lambda below
+
+        queue[tail[0]++] = startClassId;
+        visited.set(startClassId);
+
+        while (head < tail[0]) {
+            successors.forEach(queue[head++], next -> {
+                if (next != NO_CLASS_ID && !visited.get(next)) {
+                    visited.set(next);
+                    queue[tail[0]++] = next;
+                }
+            });
+        }
+        return Arrays.copyOf(queue, tail[0]);
+    }
+
+    private static Optional<ClassModel> tryResolveClass(ClassUniverse classUniverse, ClassDesc classDesc) {
+        if (!classDesc.isClassOrInterface()) {
+            return Optional.empty();
+        } else if (classUniverse.containsClass(classDesc)) {
+            return Optional.of(classUniverse.resolveClass(classDesc));
+        } else if (JdkClassResolver.getInstance().isJdkClass(classDesc)) {
+            try {
+                return Optional.of(JdkClassResolver.getInstance().resolveClass(classDesc));
+            } catch (UncheckedIOException e) {
+                return Optional.empty();
+            }
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Adjacency lists in CSR format. The successors of node i are targets[offsets[i]] until targets[offsets[i + 1]].
+     */
+    private record Csr(int[] offsets, int[] targets) {
+
+        static Csr from(List<int[]> adjacencyLists) {
+            int[] offsets = new int[adjacencyLists.size() + 1];
+            for (int i = 0; i < adjacencyLists.size(); i++) {
+                offsets[i + 1] = offsets[i] + adjacencyLists.get(i).length;
+            }
+
+            int[] targets = new int[offsets[adjacencyLists.size()]];
+            for (int i = 0; i < adjacencyLists.size(); i++) {
+                int[] adjacencyList = adjacencyLists.get(i);
+                System.arraycopy(adjacencyList, 0, targets, offsets[i], adjacencyList.length);
+            }
+            return new Csr(offsets, targets);
+        }
+    }
+
+    /**
+     * List of distinct class IDs, in insertion order.
+     */
+    static final class IdList {
+
+        private final int[] ids;
+        private final BitSet added;
+        private int size;
+
+        IdList(int classCount) {
+            this.ids = new int[classCount];
+            this.added = new BitSet(classCount);
+        }
+
+        /**
+         * Adds the class ID, unless already added, and returns true if it has been added.
+         */
+        boolean add(int classId) {
+            if (added.get(classId)) {
+                return false;
+            }
+            added.set(classId);
+            ids[size++] = classId;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * Assigner of dense int IDs to classes, in order of first occurrence.
+     */
+    private static final class IdAssigner {
+
+        private final Map<ClassDesc, Integer> ids = new HashMap<>();
+        private final List<ClassDesc> classDescs = new ArrayList<>();
+
+        int getOrAssignId(ClassDesc classDesc) {
+            Integer id = ids.get(classDesc);
+            if (id != null) {
+                return id;
+            }
+            int newId = classDescs.size();
+            ids.put(classDesc, newId);
+            classDescs.add(classDesc);
+            return newId;
+        }
+
+        int size() {
+            return classDescs.size();
+        }
+
+        ClassDesc getClassDesc(int id) {
+            return classDescs.get(id);
+        }
+
+        ImmutableList<ClassDesc> getClassDescs() {
+            return ImmutableList.copyOf(classDescs);
+        }
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import eu.cdevreeze.tryjava25.classfiles.data.LocatedInstruction;
+import eu.cdevreeze.tryjava25.classfiles.data.MethodAndContainingClass;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
+import eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse;
+import eu.cdevreeze.tryjava25.classfiles.parse.SummaryClassUniverse;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Method-level call graph index, from called methods to their call sites. The index is built in one pass over the
+ * code of the classes in scope, after which finding the callers of a method is a lookup instead of a bytecode scan.
+ * <p>
+ * The index is purely symbolic, so it does not retain any {@link ClassModel} or {@link MethodModel}. Call sites are
+ * identified by the calling method and the bytecode offset of the invoke instruction within that method.
+ * <p>
+ * Invoke-dynamic instructions bootstrapped by the {@link java.lang.invoke.LambdaMetafactory} are indexed as well, as calls
+ * to the implementation method, which is either the synthetic method holding the lambda body, or the target of the
+ * method reference. Hence, the code in lambda bodies is connected to the enclosing method. These call sites have opcode
+ * "invokedynamic".
+ * <p>
+ * All symbols in the index are canonicalized through the shared {@link SymbolTable}, so the many call sites referring
+ * to the same methods and classes share the same instances.
+ * <p>
+ * Like the class usage map of an {@link eu.cdevreeze.tryjava25.classfiles.parse.EnhancedClassUniverse}, the index
+ * by default only knows about the owner of the method as mentioned in the invoke instruction. Optionally, virtual calls
+ * are resolved by a {@link CallResolver}, in which case each call site is indexed under all its possible targets.
+ * <p>
+ * When only the call sites of some called methods are indexed, classes whose constant pool mentions none of those
+ * methods are skipped, without inflating their code. The fraction of skipped classes is available as
+ * {@link PrefilterStatistics}. The prefilter is cheapest for predicates created with {@link #isAnyOf(Set)}, since then
+ * only the names and owners of the method references in the constant pool are compared, without parsing any method
+ * descriptor of a non-matching method reference.
+ * <p>
+ * The index can also be built from a {@link SummaryClassUniverse}, whose class summaries already hold the invoke
+ * instructions. No code is inflated then, so the prefilter is not used, and there are no prefilter statistics.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Chris de Vreeze
+ */
+public final class MethodCallIndex {
+
+    /**
+     * Method reference, as owner, method name and method type descriptor. The owner is not necessarily the class
+     * declaring the method.
+     */
+    public record MethodRef(ClassDesc owner, String methodName, MethodTypeDesc methodTypeDesc) {
+
+        public static MethodRef of(MethodModel methodModel) {
+            SymbolTable symbolTable = SymbolTable.getShared();
+            return new MethodRef(
+                    symbolTable.intern(methodModel.parent().orElseThrow().thisClass().asSymbol()),
+                    symbolTable.intern(methodModel.methodName().stringValue()),
+                    symbolTable.intern(methodModel.methodTypeSymbol())
+            );
+        }
+
+        public static MethodRef of(InvokeInstruction invokeInstruction) {
+            SymbolTable symbolTable = SymbolTable.getShared();
+            return new MethodRef(
+                    symbolTable.intern(invokeInstruction.owner().asSymbol()),
+                    symbolTable.intern(invokeInstruction.name().stringValue()),
+                    symbolTable.intern(invokeInstruction.typeSymbol())
+            );
+        }
+
+        public static MethodRef of(DescriptorModel.Method method) {
+            return new MethodRef(method.parent(), method.methodName(), method.methodTypeDesc());
+        }
+    }
+
+    /**
+     * Call site, as invoke instruction, the method containing it, and the bytecode offset of the instruction in that method.
+     */
+    public record CallSite(
+            DescriptorModel.InvokeInstruction invokeInstruction,
+            DescriptorModel.Method callerMethod,
+            int bytecodeOffset
+    ) {
+
+        public MethodRef callee() {
+            return new MethodRef(invokeInstruction.owner(), invokeInstruction.name(), invokeInstruction.typeSymbol());
+        }
+
+        public MethodRef caller() {
+            return MethodRef.of(callerMethod);
+        }
+
+        public DescriptorModel.InvokeInstructionAndContainingMethod toDescriptorModel() {
+            return new DescriptorModel.InvokeInstructionAndContainingMethod(invokeInstruction, callerMethod);
+        }
+    }
+
+    /**
+     * Statistics of the constant pool prefilter, which skips classes that cannot contain any call site to be indexed.
+     */
+    public record PrefilterStatistics(int classCount, int skippedClassCount) {
+
+        public double skipRate() {
+            return classCount == 0 ? 0.0 : (double) skippedClassCount / classCount;
+        }
+    }
+
+    /**
+     * Predicate matching the methods in a set, also holding the names and owners (as they occur in the constant pool)
+     * of those methods.
+     */
+    private record MethodRefSet(
+            ImmutableSet<MethodRef> methodRefs,
+            ImmutableSet<String> methodNames,
+            ImmutableSet<String> ownerInternalNames
+    ) implements Predicate<MethodRef> {
+
+        @Override
+        public boolean test(MethodRef methodRef) {
+            return methodRefs.contains(methodRef);
+        }
+
+        boolean mayContain(MemberRefEntry methodRefEntry) {
+            return methodNames.contains(methodRefEntry.name().stringValue()) &&
+                    ownerInternalNames.contains(methodRefEntry.owner().name().stringValue());
+        }
+    }
+
+    private static final ClassDesc CD_LAMBDA_METAFACTORY = ClassDesc.of("java.lang.invoke.LambdaMetafactory");
+
+    private static final Predicate<MethodRef> ANY_METHOD = _ -> true;
+
+    private final ImmutableListMultimap<MethodRef, CallSite> callSites;
+    private final Optional<PrefilterStatistics> prefilterStatistics;
+
+    private MethodCallIndex(
+            ImmutableListMultimap<MethodRef, CallSite> callSites,
+            Optional<PrefilterStatistics> prefilterStatistics) {
+        this.callSites = callSites;
+        this.prefilterStatistics = prefilterStatistics;
+    }
+
+    /**
+     * Returns a predicate matching the given methods, to be used for the called methods that must be indexed. The
+     * returned predicate makes the constant pool prefilter cheaper than an arbitrary predicate, such as
+     * {@code methodRefs::contains}, would.
+     */
+    public static Predicate<MethodRef> isAnyOf(Set<MethodRef> methodRefs) {
+        ImmutableSet<MethodRef> methodRefSet = ImmutableSet.copyOf(methodRefs);
+
+        return new MethodRefSet(
+                methodRefSet,
+                methodRefSet.stream().map(MethodRef::methodName).collect(ImmutableSet.toImmutableSet()),
+                methodRefSet.stream().map(m -> toInternalName(m.owner())).collect(ImmutableSet.toImmutableSet())
+        );
+    }
+
+    /**
+     * Returns a predicate matching all methods, to be used if the calls to all methods must be indexed.
+     */
+    public static Predicate<MethodRef> isAnyMethod() {
+        return ANY_METHOD;
+    }
+
+    /**
+     * Returns a textual description of the called methods matching the given predicate, if the predicate has been
+     * created with {@link #isAnyOf(Set)} or {@link #isAnyMethod()}. The description does not depend on the order of the
+     * methods, so it identifies the indexed called methods across program runs. Other predicates cannot be described.
+     */
+    public static Optional<String> describeCalleeFilter(Predicate<MethodRef> calleeMustBeIndexed) {
+        return switch (calleeMustBeIndexed) {
+            case MethodRefSet methodRefSet -> Optional.of(
+                    methodRefSet.methodRefs().stream()
+                            .map(m -> m.owner().descriptorString() + "." + m.methodName() + m.methodTypeDesc().descriptorString())
+                            .sorted()
+                            .collect(Collectors.joining(" ", "[", "]"))
+            );
+            case Predicate<MethodRef> p when p == ANY_METHOD -> Optional.of("*");
+            default -> Optional.empty();
+        };
+    }
+
+    /**
+     * Creates the index from all code in the classes of the given class universe that match the given predicate.
+     */
+    public static MethodCallIndex create(ClassUniverse classUniverse, Predicate<ClassDesc> mustBeIndexed) {
+        CodeScanner codeScanner = new CodeScanner(_ -> true, false);
+        ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+
+        // Works for lazily loaded class universes as well, since class models are not retained here
+        classUniverse.getClassDescs().stream()
+                .filter(mustBeIndexed)
+                .forEach(classDesc ->
+                        codeScanner.findCallSites(classUniverse.resolveClass(classDesc))
+                                .forEach(callSite -> builder.put(callSite.callee(), callSite))
+                );
+
+        return new MethodCallIndex(builder.build(), codeScanner.getStatistics());
+    }
+
+    /**
+     * Creates the index from all code in the classes of the given class universe that match the first predicate,
+     * keeping only the call sites of the called methods that match the second predicate. For example, to answer a batch
+     * of queries at once, the second predicate can be a lookup in a hash set of queried methods.
+     * <p>
+     * Classes whose constant pool contains no method reference matching the second predicate are skipped, without
+     * inflating any code. See {@link #getPrefilterStatistics()}.
+     */
+    public static MethodCallIndex create(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            Predicate<MethodRef> calleeMustBeIndexed) {
+        CodeScanner codeScanner = new CodeScanner(calleeMustBeIndexed, true);
+        ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+
+        classUniverse.getClassDescs().stream()
+                .filter(mustBeIndexed)
+                .forEach(classDesc ->
+                        codeScanner.findCallSites(classUniverse.resolveClass(classDesc))
+                                .forEach(callSite -> builder.put(callSite.callee(), callSite))
+                );
+
+        return new MethodCallIndex(builder.build(), codeScanner.getStatistics());
+    }
+
+    /**
+     * Creates the index from all code in the classes of the given class universe that match the given predicate,
+     * indexing each call site under all possible target methods, as resolved by the given {@link CallResolver}.
+     * Hence, looking up a method also finds the calls via subtypes and via interfaces that may end up in that method.
+     */
+    public static MethodCallIndex create(ClassUniverse classUniverse, Predicate<ClassDesc> mustBeIndexed, CallResolver callResolver) {
+        return create(classUniverse, mustBeIndexed, callResolver, _ -> true);
+    }
+
+    /**
+     * Like {@link #create(ClassUniverse, Predicate, CallResolver)}, but only indexing each call site under the possible
+     * target methods that match the last predicate. For example, to answer a batch of queries at once, that predicate
+     * can be a lookup in a hash set of queried methods. This keeps the index small, even if a call may target many
+     * overriding methods.
+     */
+    public static MethodCallIndex create(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            CallResolver callResolver,
+            Predicate<MethodRef> targetMustBeIndexed) {
+        CodeScanner codeScanner = new CodeScanner(_ -> true, false);
+        ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+
+        classUniverse.getClassDescs().stream()
+                .filter(mustBeIndexed)
+                .forEach(classDesc ->
+                        codeScanner.findCallSites(classUniverse.resolveClass(classDesc)).forEach(callSite ->
+                                callResolver.resolveTargets(callSite.invokeInstruction().opcode(), callSite.callee())
+                                        .stream()
+                                        .filter(targetMustBeIndexed)
+                                        .forEach(target -> builder.put(target, callSite))
+                        )
+                );
+
+        return new MethodCallIndex(builder.build(), codeScanner.getStatistics());
+    }
+
+    /**
+     * Parallel version of {@link #create(ClassUniverse, Predicate, Predicate)}, using a dedicated {@link ForkJoinPool}
+     * with the given parallelism. The result is the same as that of the sequential version.
+     */
+    public static MethodCallIndex createInParallel(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            Predicate<MethodRef> calleeMustBeIndexed,
+            int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        CodeScanner codeScanner = new CodeScanner(calleeMustBeIndexed, true);
+
+        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+            // Encounter order is retained, so the call sites are in the same order as for the sequential version
+            List<ImmutableList<CallSite>> callSitesPerClass = forkJoinPool.submit(() ->
+                    classUniverse.getClassDescs().parallelStream()
+                            .filter(mustBeIndexed)
+                            .map(classDesc -> codeScanner.findCallSites(classUniverse.resolveClass(classDesc)))
+                            .toList()
+            ).join();
+
+            ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+            callSitesPerClass.forEach(callSites -> callSites.forEach(callSite -> builder.put(callSite.callee(), callSite)));
+            return new MethodCallIndex(builder.build(), codeScanner.getStatistics());
+        }
+    }
+
+    /**
+     * Parallel version of {@link #create(ClassUniverse, Predicate, CallResolver, Predicate)}, using a dedicated
+     * {@link ForkJoinPool} with the given parallelism. The {@link CallResolver} is thread-safe, so it is shared by all
+     * workers. The result is the same as that of the sequential version.
+     */
+    public static MethodCallIndex createInParallel(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            CallResolver callResolver,
+            Predicate<MethodRef> targetMustBeIndexed,
+            int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        CodeScanner codeScanner = new CodeScanner(_ -> true, false);
+
+        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+            // The targets are resolved by the workers as well. Encounter order is retained, so the call sites are in
+            // the same order as for the sequential version
+            List<List<Map.Entry<MethodRef, CallSite>>> indexEntriesPerClass = forkJoinPool.submit(() ->
+                    classUniverse.getClassDescs().parallelStream()
+                            .filter(mustBeIndexed)
+                            .map(classDesc -> codeScanner.findCallSites(classUniverse.resolveClass(classDesc)).stream()
+                                    .flatMap(callSite ->
+                                            callResolver.resolveTargets(callSite.invokeInstruction().opcode(), callSite.callee())
+                                                    .stream()
+                                                    .filter(targetMustBeIndexed)
+                                                    .map(target -> Map.entry(target, callSite))
+                                    )
+                                    .toList())
+                            .toList()
+            ).join();
+
+            ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+            indexEntriesPerClass.forEach(builder::putAll);
+            return new MethodCallIndex(builder.build(), codeScanner.getStatistics());
+        }
+    }
+
+    /**
+     * Creates the index from the summaries of the classes in the given summary class universe that match the first
+     * predicate, keeping only the call sites of the called methods that match the second predicate. The result is the
+     * same as that of {@link #create(ClassUniverse, Predicate, Predicate)} for the corresponding class universe,
+     * except for the prefilter statistics.
+     */
+    public static MethodCallIndex create(
+            SummaryClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            Predicate<MethodRef> calleeMustBeIndexed) {
+        ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+
+        List<ClassSummary> summaries = classUniverse.getSummaries().values().stream()
+                .filter(summary -> mustBeIndexed.test(summary.thisClass()))
+                .toList();
+        summaries.forEach(summary ->
+                findAllCallSites(summary, calleeMustBeIndexed).forEach(callSite -> builder.put(callSite.callee(), callSite))
+        );
+
+        return new MethodCallIndex(builder.build(), Optional.empty());
+    }
+
+    /**
+     * Parallel version of {@link #create(SummaryClassUniverse, Predicate, Predicate)}, using a dedicated
+     * {@link ForkJoinPool} with the given parallelism. The result is the same as that of the sequential version.
+     */
+    public static MethodCallIndex createInParallel(
+            SummaryClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeIndexed,
+            Predicate<MethodRef> calleeMustBeIndexed,
+            int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+            List<ImmutableList<CallSite>> callSitesPerClass = forkJoinPool.submit(() ->
+                    classUniverse.getSummaries().values().parallelStream()
+                            .filter(summary -> mustBeIndexed.test(summary.thisClass()))
+                            .map(summary -> findAllCallSites(summary, calleeMustBeIndexed))
+                            .toList()
+            ).join();
+
+            ImmutableListMultimap.Builder<MethodRef, CallSite> builder = ImmutableListMultimap.builder();
+            callSitesPerClass.forEach(callSites -> callSites.forEach(callSite -> builder.put(callSite.callee(), callSite)));
+            return new MethodCallIndex(builder.build(), Optional.empty());
+        }
+    }
+
+    public ImmutableList<CallSite> findCallSites(MethodRef callee) {
+        return callSites.get(callee);
+    }
+
+    public ImmutableSet<MethodRef> getCallees() {
+        return callSites.keySet();
+    }
+
+    public int size() {
+        return callSites.size();
+    }
+
+    /**
+     * Returns the statistics of the constant pool prefilter, if the prefilter has been used to build this index.
+     */
+    public Optional<PrefilterStatistics> getPrefilterStatistics() {
+        return prefilterStatistics;
+    }
+
+    /**
+     * Returns true if the constant pool of the class contains a method reference matching the predicate. Invoke instructions
+     * refer to such method references, and so do method handles (as used for lambdas and method references).
+     */
+    private static boolean mayContainCallSites(ClassModel classModel, Predicate<MethodRef> calleeMustBeIndexed) {
+        for (PoolEntry poolEntry : classModel.constantPool()) {
+            boolean isMatch = switch (poolEntry) {
+                case MethodRefEntry e -> mayMatch(e, calleeMustBeIndexed);
+                case InterfaceMethodRefEntry e -> mayMatch(e, calleeMustBeIndexed);
+                default -> false;
+            };
+
+            if (isMatch) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean mayMatch(MemberRefEntry methodRefEntry, Predicate<MethodRef> calleeMustBeIndexed) {
+        // The method descriptor is only parsed if the name and owner match, which is cheap for a MethodRefSet
+        if (calleeMustBeIndexed instanceof MethodRefSet methodRefSet && !methodRefSet.mayContain(methodRefEntry)) {
+            return false;
+        }
+        return calleeMustBeIndexed.test(
+                new MethodRef(
+                        methodRefEntry.owner().asSymbol(),
+                        methodRefEntry.name().stringValue(),
+                        MethodTypeDesc.ofDescriptor(methodRefEntry.type().stringValue())
+                )
+        );
+    }
+
+    private static String toInternalName(ClassDesc classDesc) {
+        // Array types (for example as owner of "clone") occur as descriptor in the constant pool
+        String descriptor = classDesc.descriptorString();
+        return classDesc.isArray() ? descriptor : descriptor.substring(1, descriptor.length() - 1);
+    }
+
+    private static ImmutableList<CallSite> findAllCallSites(ClassModel classModel, Predicate<MethodRef> calleeMustBeIndexed) {
+        ImmutableList.Builder<CallSite> result = ImmutableList.builder();
+
+        for (MethodModel methodModel : classModel.methods()) {
+            if (methodModel.code().isEmpty()) {
+                continue;
+            }
+
+            // One descriptor of the calling method, shared by all its call sites
+            DescriptorModel.@Nullable Method callerMethod = null;
+
+            List<LocatedInstruction<Instruction>> instructions = LocatedInstruction.findAll(
+                    methodModel.code().orElseThrow(),
+                    instr -> instr instanceof InvokeInstruction || instr instanceof InvokeDynamicInstruction
+            );
+
+            for (LocatedInstruction<Instruction> instr : instructions) {
+                Optional<DescriptorModel.InvokeInstruction> invokeInstructionOption = switch (instr.instruction()) {
+                    case InvokeInstruction ivk -> Optional.of(toDescriptorModel(ivk));
+                    case InvokeDynamicInstruction ivk -> findLambdaImplementation(ivk.bootstrapMethod(), ivk.bootstrapArgs());
+                    default -> Optional.empty();
+                };
+
+                if (invokeInstructionOption.isPresent()) {
+                    DescriptorModel.InvokeInstruction invokeInstruction = invokeInstructionOption.get();
+                    MethodRef callee = new MethodRef(invokeInstruction.owner(), invokeInstruction.name(), invokeInstruction.typeSymbol());
+
+                    if (calleeMustBeIndexed.test(callee)) {
+                        if (callerMethod == null) {
+                            callerMethod = MethodAndContainingClass.of(methodModel).toDescriptorModel();
+                        }
+                        result.add(new CallSite(invokeInstruction, callerMethod, instr.bytecodeOffset()));
+                    }
+                }
+            }
+        }
+        return result.build();
+    }
+
+    private static ImmutableList<CallSite> findAllCallSites(ClassSummary summary, Predicate<MethodRef> calleeMustBeIndexed) {
+        ImmutableList.Builder<CallSite> result = ImmutableList.builder();
+
+        for (ClassSummary.MethodSummary methodSummary : summary.methods()) {
+            for (ClassSummary.InstructionSummary instr : methodSummary.instructions()) {
+                Optional<DescriptorModel.InvokeInstruction> invokeInstructionOption = switch (instr.instruction()) {
+                    case DescriptorModel.InvokeInstruction ivk -> Optional.of(ivk);
+                    case DescriptorModel.InvokeDynamicInstruction ivk ->
+                            findLambdaImplementation(ivk.bootstrapMethod(), ivk.bootstrapArgs());
+                    default -> Optional.empty();
+                };
+
+                invokeInstructionOption
+                        .filter(ivk -> calleeMustBeIndexed.test(new MethodRef(ivk.owner(), ivk.name(), ivk.typeSymbol())))
+                        .ifPresent(ivk -> result.add(new CallSite(ivk, methodSummary.method(), instr.bytecodeOffset())));
+            }
+        }
+        return result.build();
+    }
+
+    /**
+     * Returns the implementation method of the lambda or method reference created by the given invoke-dynamic instruction,
+     * if any, as "invokedynamic" instruction with the implementation method as owner, name and type. These are the call
+     * edges from the enclosing methods to the lambda implementations, as indexed by this class.
+     */
+    public static Optional<DescriptorModel.InvokeInstruction> findLambdaImplementation(
+            DescriptorModel.InvokeDynamicInstruction invokeDynamicInstruction) {
+        return findLambdaImplementation(invokeDynamicInstruction.bootstrapMethod(), invokeDynamicInstruction.bootstrapArgs());
+    }
+
+    /**
+     * Returns the implementation method of a lambda or method reference, if the invoke-dynamic instruction is bootstrapped
+     * by the {@link java.lang.invoke.LambdaMetafactory}. It is returned as "invokedynamic" instruction with the
+     * implementation method as owner, name and type. For both "metafactory" and "altMetafactory", the implementation
+     * method handle is the second bootstrap argument. Method handles of field accesses (which are not produced by
+     * javac for lambdas, but are allowed by the bootstrap method) are ignored, since they do not refer to any method.
+     */
+    private static Optional<DescriptorModel.InvokeInstruction> findLambdaImplementation(
+            DirectMethodHandleDesc bootstrapMethod,
+            List<ConstantDesc> bootstrapArgs) {
+        if (!bootstrapMethod.owner().equals(CD_LAMBDA_METAFACTORY) ||
+                bootstrapArgs.size() < 2 ||
+                !(bootstrapArgs.get(1) instanceof DirectMethodHandleDesc implementation) ||
+                isFieldAccess(implementation.kind())) {
+            return Optional.empty();
+        }
+
+        return Optional.of(
+                SymbolTable.getShared().invokeInstruction(
+                        Opcode.INVOKEDYNAMIC,
+                        implementation.owner(),
+                        implementation.methodName(),
+                        MethodTypeDesc.ofDescriptor(implementation.lookupDescriptor()),
+                        implementation.isOwnerInterface()
+                )
+        );
+    }
+
+    private static boolean isFieldAccess(DirectMethodHandleDesc.Kind kind) {
+        return switch (kind) {
+            case GETTER, SETTER, STATIC_GETTER, STATIC_SETTER -> true;
+            default -> false;
+        };
+    }
+
+    private static DescriptorModel.InvokeInstruction toDescriptorModel(InvokeInstruction invokeInstruction) {
+        return SymbolTable.getShared().invokeInstruction(
+                invokeInstruction.opcode(),
+                invokeInstruction.owner().asSymbol(),
+                invokeInstruction.name().stringValue(),
+                invokeInstruction.typeSymbol(),
+                invokeInstruction.isInterface()
+        );
+    }
+
+    /**
+     * Finder of call sites in classes, optionally using the constant pool prefilter, and counting the skipped classes.
+     * It can safely be used from multiple threads.
+     */
+    private static final class CodeScanner {
+
+        private final Predicate<MethodRef> calleeMustBeIndexed;
+        private final boolean usePrefilter;
+        private final AtomicInteger classCount = new AtomicInteger();
+        private final AtomicInteger skippedClassCount = new AtomicInteger();
+
+        CodeScanner(Predicate<MethodRef> calleeMustBeIndexed, boolean usePrefilter) {
+            this.calleeMustBeIndexed = calleeMustBeIndexed;
+            this.usePrefilter = usePrefilter;
+        }
+
+        ImmutableList<CallSite> findCallSites(ClassModel classModel) {
+            classCount.incrementAndGet();
+
+            if (usePrefilter && !mayContainCallSites(classModel, calleeMustBeIndexed)) {
+                skippedClassCount.incrementAndGet();
+                return ImmutableList.of();
+            }
+            return findAllCallSites(classModel, calleeMustBeIndexed);
+        }
+
+        Optional<PrefilterStatistics> getStatistics() {
+            return usePrefilter ?
+                    Optional.of(new PrefilterStatistics(classCount.get(), skippedClassCount.get())) :
+                    Optional.empty();
+        }
+    }
+}
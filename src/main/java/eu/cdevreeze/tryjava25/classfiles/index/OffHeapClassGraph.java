@@ -0,0 +1,307 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.parse.TypeHierarchy;
+
+/**
+ * Off-heap counterpart of {@link ClassGraph}, for very large class universes. The class names and the CSR-style
+ * ("compressed sparse row") edge arrays live in one {@link MemorySegment}, as "struct of arrays", so they are neither
+ * scanned by the garbage collector nor counted against the Java heap.
+ * <p>
+ * The segment is allocated by an {@link Arena}, and may be written to a file, and later mapped back into memory
+ * (see {@link #writeTo(Path)} and {@link #map(Path, Arena)}). This graph can only be used as long as the arena is alive.
+ * <p>
+ * Like {@link ClassGraph}, this graph is a {@link TypeHierarchy}, answering the same queries in the same order.
+ * <p>
+ * This class is immutable and thread-safe, provided the arena allows access from multiple threads.
+ *
+ * @author Chris de Vreeze
+ */
+public final class OffHeapClassGraph implements TypeHierarchy {
+
+    public static final int NO_CLASS_ID = ClassGraph.NO_CLASS_ID;
+
+    private static final int MAGIC = 0x43475246; // "CGRF"
+
+    private static final int CLASS_NAMES = 0;
+    private static final int UNIVERSE_CLASS_COUNT = CLASS_NAMES + OffHeapStringTable.SECTION_COUNT;
+    private static final int CLASS_FLAGS = UNIVERSE_CLASS_COUNT + 1;
+    private static final int SUPERCLASS_IDS = CLASS_FLAGS + 1;
+    private static final int INTERFACE_OFFSETS = SUPERCLASS_IDS + 1;
+    private static final int INTERFACE_IDS = INTERFACE_OFFSETS + 1;
+    private static final int SUBTYPE_OFFSETS = INTERFACE_IDS + 1;
+    private static final int SUBTYPE_IDS = SUBTYPE_OFFSETS + 1;
+    private static final int USED_CLASS_OFFSETS = SUBTYPE_IDS + 1;
+    private static final int USED_CLASS_IDS = USED_CLASS_OFFSETS + 1;
+    private static final int USING_CLASS_OFFSETS = USED_CLASS_IDS + 1;
+    private static final int USING_CLASS_IDS = USING_CLASS_OFFSETS + 1;
+    private static final int SECTION_COUNT = USING_CLASS_IDS + 1;
+
+    private final SegmentSections sections;
+    private final OffHeapStringTable classNames; // class descriptor strings, indexed by class ID
+    private final int universeClassCount;
+    private final MemorySegment classFlags;
+    private final MemorySegment superclassIds;
+    private final MemorySegment interfaceOffsets;
+    private final MemorySegment interfaceIds;
+    private final MemorySegment subtypeOffsets;
+    private final MemorySegment subtypeIds;
+    private final MemorySegment usedClassOffsets;
+    private final MemorySegment usedClassIds;
+    private final MemorySegment usingClassOffsets;
+    private final MemorySegment usingClassIds;
+
+    private OffHeapClassGraph(SegmentSections sections) {
+        this.sections = sections;
+        this.classNames = OffHeapStringTable.of(sections, CLASS_NAMES);
+        this.universeClassCount = sections.section(UNIVERSE_CLASS_COUNT).getAtIndex(ValueLayout.JAVA_INT, 0);
+        this.classFlags = sections.section(CLASS_FLAGS);
+        this.superclassIds = sections.section(SUPERCLASS_IDS);
+        this.interfaceOffsets = sections.section(INTERFACE_OFFSETS);
+        this.interfaceIds = sections.section(INTERFACE_IDS);
+        this.subtypeOffsets = sections.section(SUBTYPE_OFFSETS);
+        this.subtypeIds = sections.section(SUBTYPE_IDS);
+        this.usedClassOffsets = sections.section(USED_CLASS_OFFSETS);
+        this.usedClassIds = sections.section(USED_CLASS_IDS);
+        this.usingClassOffsets = sections.section(USING_CLASS_OFFSETS);
+        this.usingClassIds = sections.section(USING_CLASS_IDS);
+    }
+
+    /**
+     * Copies the given class graph into off-heap memory allocated by the given arena. The class IDs are retained.
+     */
+    public static OffHeapClassGraph create(ClassGraph classGraph, Arena arena) {
+        SegmentSections.Builder builder = new SegmentSections.Builder(MAGIC);
+
+        OffHeapStringTable.addSections(
+                classGraph.getAllClassDescs().stream().map(ClassDesc::descriptorString).toList(),
+                builder
+        );
+        builder.addInts(new int[]{classGraph.getUniverseClassCount()})
+                .addInts(classGraph.classFlags())
+                .addInts(classGraph.superclassIds())
+                .addInts(classGraph.interfaceOffsets())
+                .addInts(classGraph.interfaceIds())
+                .addInts(classGraph.subtypeOffsets())
+                .addInts(classGraph.subtypeIds())
+                .addInts(classGraph.usedClassOffsets())
+                .addInts(classGraph.usedClassIds())
+                .addInts(classGraph.usingClassOffsets())
+                .addInts(classGraph.usingClassIds());
+
+        return new OffHeapClassGraph(builder.build(arena));
+    }
+
+    /**
+     * Maps a class graph file, as written by {@link #writeTo(Path)}, into memory. The file is not read eagerly.
+     */
+    public static OffHeapClassGraph map(Path file, Arena arena) {
+        return new OffHeapClassGraph(SegmentSections.map(file, arena, MAGIC, SECTION_COUNT));
+    }
+
+    public void writeTo(Path file) {
+        sections.writeTo(file);
+    }
+
+    public int size() {
+        return classNames.size();
+    }
+
+    public OptionalInt findClassId(ClassDesc classDesc) {
+        return classNames.find(classDesc.descriptorString());
+    }
+
+    public ClassDesc getClassDesc(int classId) {
+        return ClassDesc.ofDescriptor(classNames.get(classId));
+    }
+
+    public int getUniverseClassCount() {
+        return universeClassCount;
+    }
+
+    public boolean isInterface(int classId) {
+        return (classFlags.getAtIndex(ValueLayout.JAVA_INT, classId) & ClassGraph.INTERFACE_FLAG) != 0;
+    }
+
+    public int getSuperclassId(int classId) {
+        return superclassIds.getAtIndex(ValueLayout.JAVA_INT, classId);
+    }
+
+    public int[] getInterfaceIds(int classId) {
+        return adjacentIds(interfaceOffsets, interfaceIds, classId);
+    }
+
+    public int[] getSubtypeIds(int classId) {
+        return adjacentIds(subtypeOffsets, subtypeIds, classId);
+    }
+
+    public int[] getUsedClassIds(int classId) {
+        return adjacentIds(usedClassOffsets, usedClassIds, classId);
+    }
+
+    public int[] getUsingClassIds(int classId) {
+        return adjacentIds(usingClassOffsets, usingClassIds, classId);
+    }
+
+    /**
+     * Returns the class itself and its superclasses, nearest first, followed by all its interfaces, in the same order
+     * as {@link ClassGraph#findAllSupertypeIdsOrSelf(int)}.
+     */
+    public int[] findAllSupertypeIdsOrSelf(int classId) {
+        Objects.checkIndex(classId, size());
+
+        ClassGraph.IdList result = new ClassGraph.IdList(size());
+        for (int id = classId; id != NO_CLASS_ID; id = getSuperclassId(id)) {
+            result.add(id);
+        }
+        addAllInterfaceIds(classId, result);
+        return result.toArray();
+    }
+
+    /**
+     * Returns all direct and indirect subtypes in the universe, excluding the class itself, in breadth-first order.
+     */
+    public int[] findAllSubtypeIds(int classId) {
+        int[] subtypeIdsOrSelf =
+                traverse(classId, (id, queue) -> forEachAdjacentId(subtypeOffsets, subtypeIds, id, queue));
+        return Arrays.copyOfRange(subtypeIdsOrSelf, 1, subtypeIdsOrSelf.length);
+    }
+
+    /**
+     * Returns the class itself and all classes that directly or indirectly use it, in breadth-first order.
+     */
+    public int[] findAllUsingClassIdsOrSelf(int classId) {
+        return traverse(classId, (id, queue) -> forEachAdjacentId(usingClassOffsets, usingClassIds, id, queue));
+    }
+
+    /**
+     * Returns the class itself and all classes that it directly or indirectly uses, in breadth-first order.
+     */
+    public int[] findAllUsedClassIdsOrSelf(int classId) {
+        return traverse(classId, (id, queue) -> forEachAdjacentId(usedClassOffsets, usedClassIds, id, queue));
+    }
+
+    public ImmutableList<ClassDesc> toClassDescs(int[] classIds) {
+        return Arrays.stream(classIds).mapToObj(this::getClassDesc).collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns the classes of the universe. The returned set is created on each call, and is not retained by this graph.
+     */
+    @Override
+    public ImmutableSet<ClassDesc> getClassDescs() {
+        return IntStream.range(0, universeClassCount)
+                .mapToObj(this::getClassDesc)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    @Override
+    public boolean containsClass(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        return classId.isPresent() && classId.getAsInt() < universeClassCount;
+    }
+
+    /**
+     * Returns the class itself, its superclasses, and all its interfaces, without duplicates. An exception is thrown if
+     * the class is not in the graph.
+     */
+    @Override
+    public ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        Preconditions.checkArgument(classId.isPresent(), "Class not in graph: %s", classDesc);
+
+        return toClassDescs(findAllSupertypeIdsOrSelf(classId.getAsInt()));
+    }
+
+    @Override
+    public ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        return classId.isPresent() ? toClassDescs(findAllSubtypeIds(classId.getAsInt())) : ImmutableList.of();
+    }
+
+    /**
+     * Returns true if the class is an interface. Classes that are not in the graph are not considered interfaces.
+     */
+    @Override
+    public boolean isInterface(ClassDesc classDesc) {
+        OptionalInt classId = findClassId(classDesc);
+        return classId.isPresent() && isInterface(classId.getAsInt());
+    }
+
+    private void addAllInterfaceIds(int classId, ClassGraph.IdList result) {
+        // Same order as ClassGraph: own interfaces, each followed by its superinterfaces, then those of the superclass
+        int end = interfaceOffsets.getAtIndex(ValueLayout.JAVA_INT, classId + 1);
+        for (int i = interfaceOffsets.getAtIndex(ValueLayout.JAVA_INT, classId); i < end; i++) {
+            int interfaceId = interfaceIds.getAtIndex(ValueLayout.JAVA_INT, i);
+            // If the interface has been added before, its superinterfaces have been added as well
+            if (result.add(interfaceId)) {
+                addAllInterfaceIds(interfaceId, result);
+            }
+        }
+        if (getSuperclassId(classId) != NO_CLASS_ID) {
+            addAllInterfaceIds(getSuperclassId(classId), result);
+        }
+    }
+
+    private static int[] adjacentIds(MemorySegment offsets, MemorySegment targets, int classId) {
+        int start = offsets.getAtIndex(ValueLayout.JAVA_INT, classId);
+        int end = offsets.getAtIndex(ValueLayout.JAVA_INT, classId + 1);
+        return targets.asSlice(start * ValueLayout.JAVA_INT.byteSize(), (end - start) * ValueLayout.JAVA_INT.byteSize())
+                .toArray(ValueLayout.JAVA_INT);
+    }
+
+    private static void forEachAdjacentId(MemorySegment offsets, MemorySegment targets, int classId, IntConsumer consumer) {
+        int end = offsets.getAtIndex(ValueLayout.JAVA_INT, classId + 1);
+        for (int i = offsets.getAtIndex(ValueLayout.JAVA_INT, classId); i < end; i++) {
+            consumer.accept(targets.getAtIndex(ValueLayout.JAVA_INT, i));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Successors {
+
+        void forEach(int classId, IntConsumer consumer);
+    }
+
+    private int[] traverse(int startClassId, Successors successors) {
+        Objects.checkIndex(startClassId, size());
+
+        // Breadth-first, as in ClassGraph; the (transient) query state lives on the heap
+        int[] queue = new int[size()];
+        BitSet visited = new BitSet(size());
+        int head = 0;
+        int[] tail = {0}; // Mutable from within the lambda below
+
+        queue[tail[0]++] = startClassId;
+        visited.set(startClassId);
+
+        while (head < tail[0]) {
+            successors.forEach(queue[head++], next -> {
+                if (next != NO_CLASS_ID && !visited.get(next)) {
+                    visited.set(next);
+                    queue[tail[0]++] = next;
+                }
+            });
+        }
+        return Arrays.copyOf(queue, tail[0]);
+    }
+}
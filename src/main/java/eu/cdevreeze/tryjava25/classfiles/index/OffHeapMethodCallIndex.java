@@ -0,0 +1,325 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.desc.DescriptorModel;
+import eu.cdevreeze.tryjava25.classfiles.desc.SymbolTable;
+
+/**
+ * Off-heap counterpart of {@link MethodCallIndex}, for very large class universes. All symbols (class names, method
+ * names and method descriptors) get int IDs, and so do the methods. The methods and call sites are stored as "struct
+ * of arrays" in one {@link MemorySegment}, with the call sites grouped per called method, in CSR-style ("compressed
+ * sparse row") format. Hence, millions of call sites cost no Java objects at all, until they are queried.
+ * <p>
+ * The segment is allocated by an {@link Arena}, and may be written to a file, and later mapped back into memory
+ * (see {@link #writeTo(Path)} and {@link #map(Path, Arena)}). This index can only be used as long as the arena is alive.
+ * Query results are created on the heap, through the shared {@link SymbolTable}.
+ * <p>
+ * This class is immutable and thread-safe, provided the arena allows access from multiple threads.
+ *
+ * @author Chris de Vreeze
+ */
+public final class OffHeapMethodCallIndex {
+
+    private static final int MAGIC = 0x4d43494e; // "MCIN"
+
+    private static final int SYMBOLS = 0;
+    private static final int METHOD_OWNERS = SYMBOLS + OffHeapStringTable.SECTION_COUNT;
+    private static final int METHOD_NAMES = METHOD_OWNERS + 1;
+    private static final int METHOD_TYPES = METHOD_NAMES + 1;
+    private static final int METHOD_FLAGS = METHOD_TYPES + 1;
+    private static final int METHOD_HASH_SLOTS = METHOD_FLAGS + 1;
+    private static final int CALL_SITE_OFFSETS = METHOD_HASH_SLOTS + 1;
+    private static final int CALL_SITE_INVOKED_METHODS = CALL_SITE_OFFSETS + 1;
+    private static final int CALL_SITE_CALLERS = CALL_SITE_INVOKED_METHODS + 1;
+    private static final int CALL_SITE_BYTECODE_OFFSETS = CALL_SITE_CALLERS + 1;
+    private static final int CALL_SITE_OPCODES = CALL_SITE_BYTECODE_OFFSETS + 1;
+    private static final int CALL_SITE_INTERFACE_FLAGS = CALL_SITE_OPCODES + 1;
+    private static final int SECTION_COUNT = CALL_SITE_INTERFACE_FLAGS + 1;
+
+    private static final int EMPTY_SLOT = 0; // Slots hold the method ID plus 1
+
+    private static final ImmutableMap<Integer, Opcode> INVOKE_OPCODES =
+            Stream.of(Opcode.INVOKEVIRTUAL, Opcode.INVOKESPECIAL, Opcode.INVOKESTATIC, Opcode.INVOKEINTERFACE, Opcode.INVOKEDYNAMIC)
+                    .collect(ImmutableMap.toImmutableMap(Opcode::bytecode, opcode -> opcode));
+
+    private final SegmentSections sections;
+    private final OffHeapStringTable symbols;
+    private final MemorySegment methodOwners;
+    private final MemorySegment methodNames;
+    private final MemorySegment methodTypes;
+    private final MemorySegment methodFlags;
+    private final MemorySegment methodHashSlots;
+    private final MemorySegment callSiteOffsets; // only for the called methods, which have the lowest method IDs
+    private final MemorySegment callSiteInvokedMethods;
+    private final MemorySegment callSiteCallers;
+    private final MemorySegment callSiteBytecodeOffsets;
+    private final MemorySegment callSiteOpcodes;
+    private final MemorySegment callSiteInterfaceFlags;
+
+    private OffHeapMethodCallIndex(SegmentSections sections) {
+        this.sections = sections;
+        this.symbols = OffHeapStringTable.of(sections, SYMBOLS);
+        this.methodOwners = sections.section(METHOD_OWNERS);
+        this.methodNames = sections.section(METHOD_NAMES);
+        this.methodTypes = sections.section(METHOD_TYPES);
+        this.methodFlags = sections.section(METHOD_FLAGS);
+        this.methodHashSlots = sections.section(METHOD_HASH_SLOTS);
+        this.callSiteOffsets = sections.section(CALL_SITE_OFFSETS);
+        this.callSiteInvokedMethods = sections.section(CALL_SITE_INVOKED_METHODS);
+        this.callSiteCallers = sections.section(CALL_SITE_CALLERS);
+        this.callSiteBytecodeOffsets = sections.section(CALL_SITE_BYTECODE_OFFSETS);
+        this.callSiteOpcodes = sections.section(CALL_SITE_OPCODES);
+        this.callSiteInterfaceFlags = sections.section(CALL_SITE_INTERFACE_FLAGS);
+    }
+
+    /**
+     * Copies the given method call index into off-heap memory allocated by the given arena.
+     */
+    public static OffHeapMethodCallIndex create(MethodCallIndex methodCallIndex, Arena arena) {
+        MethodTable methodTable = new MethodTable();
+
+        // First the called methods, so that they get the lowest method IDs, in the order of the CSR offsets
+        ImmutableSet<MethodCallIndex.MethodRef> callees = methodCallIndex.getCallees();
+        callees.forEach(methodTable::getOrAssignId);
+
+        int callSiteCount = methodCallIndex.size();
+        int[] callSiteOffsets = new int[callees.size() + 1];
+        int[] invokedMethods = new int[callSiteCount];
+        int[] callers = new int[callSiteCount];
+        int[] bytecodeOffsets = new int[callSiteCount];
+        byte[] opcodes = new byte[callSiteCount];
+        byte[] interfaceFlags = new byte[callSiteCount];
+
+        int calleeId = 0;
+        int callSiteIndex = 0;
+        for (MethodCallIndex.MethodRef callee : callees) {
+            for (MethodCallIndex.CallSite callSite : methodCallIndex.findCallSites(callee)) {
+                DescriptorModel.InvokeInstruction invokeInstruction = callSite.invokeInstruction();
+
+                invokedMethods[callSiteIndex] = methodTable.getOrAssignId(
+                        new MethodCallIndex.MethodRef(invokeInstruction.owner(), invokeInstruction.name(), invokeInstruction.typeSymbol())
+                );
+                callers[callSiteIndex] = methodTable.getOrAssignId(callSite.caller());
+                methodTable.setFlags(callers[callSiteIndex], callSite.callerMethod().accessFlags());
+                bytecodeOffsets[callSiteIndex] = callSite.bytecodeOffset();
+                opcodes[callSiteIndex] = (byte) invokeInstruction.opcode().bytecode();
+                interfaceFlags[callSiteIndex] = (byte) (invokeInstruction.isInterface() ? 1 : 0);
+                callSiteIndex++;
+            }
+            callSiteOffsets[++calleeId] = callSiteIndex;
+        }
+
+        SegmentSections.Builder builder = new SegmentSections.Builder(MAGIC);
+        methodTable.addSections(builder);
+        builder.addInts(callSiteOffsets)
+                .addInts(invokedMethods)
+                .addInts(callers)
+                .addInts(bytecodeOffsets)
+                .addBytes(opcodes)
+                .addBytes(interfaceFlags);
+
+        return new OffHeapMethodCallIndex(builder.build(arena));
+    }
+
+    /**
+     * Maps a method call index file, as written by {@link #writeTo(Path)}, into memory. The file is not read eagerly.
+     */
+    public static OffHeapMethodCallIndex map(Path file, Arena arena) {
+        return new OffHeapMethodCallIndex(SegmentSections.map(file, arena, MAGIC, SECTION_COUNT));
+    }
+
+    public void writeTo(Path file) {
+        sections.writeTo(file);
+    }
+
+    /**
+     * Returns the call sites of the given method, in the same order as {@link MethodCallIndex#findCallSites(MethodCallIndex.MethodRef)}.
+     */
+    public ImmutableList<MethodCallIndex.CallSite> findCallSites(MethodCallIndex.MethodRef callee) {
+        OptionalInt methodIdOption = findMethodId(callee);
+
+        if (methodIdOption.isEmpty() || methodIdOption.getAsInt() >= getCalleeCount()) {
+            return ImmutableList.of();
+        }
+
+        int methodId = methodIdOption.getAsInt();
+        int start = callSiteOffsets.getAtIndex(ValueLayout.JAVA_INT, methodId);
+        int end = callSiteOffsets.getAtIndex(ValueLayout.JAVA_INT, methodId + 1);
+
+        return IntStream.range(start, end).mapToObj(this::getCallSite).collect(ImmutableList.toImmutableList());
+    }
+
+    public int getCalleeCount() {
+        return (int) (callSiteOffsets.byteSize() / ValueLayout.JAVA_INT.byteSize()) - 1;
+    }
+
+    public int getMethodCount() {
+        return (int) (methodOwners.byteSize() / ValueLayout.JAVA_INT.byteSize());
+    }
+
+    /**
+     * Returns the number of call sites, like {@link MethodCallIndex#size()}.
+     */
+    public int size() {
+        return (int) (callSiteCallers.byteSize() / ValueLayout.JAVA_INT.byteSize());
+    }
+
+    private OptionalInt findMethodId(MethodCallIndex.MethodRef methodRef) {
+        OptionalInt ownerId = symbols.find(methodRef.owner().descriptorString());
+        OptionalInt nameId = symbols.find(methodRef.methodName());
+        OptionalInt typeId = symbols.find(methodRef.methodTypeDesc().descriptorString());
+
+        if (ownerId.isEmpty() || nameId.isEmpty() || typeId.isEmpty()) {
+            return OptionalInt.empty();
+        }
+
+        long slotCount = methodHashSlots.byteSize() / ValueLayout.JAVA_INT.byteSize();
+        long slot = MethodTable.hash(ownerId.getAsInt(), nameId.getAsInt(), typeId.getAsInt()) & (slotCount - 1);
+
+        while (true) {
+            int slotValue = methodHashSlots.getAtIndex(ValueLayout.JAVA_INT, slot);
+            if (slotValue == EMPTY_SLOT) {
+                return OptionalInt.empty();
+            }
+
+            int methodId = slotValue - 1;
+            if (methodOwners.getAtIndex(ValueLayout.JAVA_INT, methodId) == ownerId.getAsInt() &&
+                    methodNames.getAtIndex(ValueLayout.JAVA_INT, methodId) == nameId.getAsInt() &&
+                    methodTypes.getAtIndex(ValueLayout.JAVA_INT, methodId) == typeId.getAsInt()) {
+                return OptionalInt.of(methodId);
+            }
+            slot = (slot + 1) & (slotCount - 1);
+        }
+    }
+
+    private MethodCallIndex.CallSite getCallSite(int callSiteIndex) {
+        SymbolTable symbolTable = SymbolTable.getShared();
+        int invokedMethodId = callSiteInvokedMethods.getAtIndex(ValueLayout.JAVA_INT, callSiteIndex);
+        int callerId = callSiteCallers.getAtIndex(ValueLayout.JAVA_INT, callSiteIndex);
+
+        DescriptorModel.InvokeInstruction invokeInstruction = symbolTable.invokeInstruction(
+                Objects.requireNonNull(INVOKE_OPCODES.get(callSiteOpcodes.get(ValueLayout.JAVA_BYTE, callSiteIndex) & 0xff)),
+                getMethodOwner(invokedMethodId),
+                getMethodName(invokedMethodId),
+                getMethodType(invokedMethodId),
+                callSiteInterfaceFlags.get(ValueLayout.JAVA_BYTE, callSiteIndex) != 0
+        );
+        DescriptorModel.Method callerMethod = symbolTable.method(
+                getMethodName(callerId),
+                getMethodType(callerId),
+                getMethodOwner(callerId),
+                ImmutableSet.copyOf(
+                        AccessFlag.maskToAccessFlags(methodFlags.getAtIndex(ValueLayout.JAVA_INT, callerId), AccessFlag.Location.METHOD)
+                )
+        );
+
+        return new MethodCallIndex.CallSite(
+                invokeInstruction,
+                callerMethod,
+                callSiteBytecodeOffsets.getAtIndex(ValueLayout.JAVA_INT, callSiteIndex)
+        );
+    }
+
+    private ClassDesc getMethodOwner(int methodId) {
+        return ClassDesc.ofDescriptor(symbols.get(methodOwners.getAtIndex(ValueLayout.JAVA_INT, methodId)));
+    }
+
+    private String getMethodName(int methodId) {
+        return symbols.get(methodNames.getAtIndex(ValueLayout.JAVA_INT, methodId));
+    }
+
+    private MethodTypeDesc getMethodType(int methodId) {
+        return MethodTypeDesc.ofDescriptor(symbols.get(methodTypes.getAtIndex(ValueLayout.JAVA_INT, methodId)));
+    }
+
+    /**
+     * Assigner of dense int IDs to symbols and methods, in order of first occurrence, used (on the heap) while building the index.
+     */
+    private static final class MethodTable {
+
+        private record MethodKey(int ownerId, int nameId, int typeId) {
+        }
+
+        private final Map<String, Integer> symbolIds = new HashMap<>();
+        private final List<String> symbols = new ArrayList<>();
+        private final Map<MethodKey, Integer> methodIds = new HashMap<>();
+        private final List<MethodKey> methods = new ArrayList<>();
+        private final Map<Integer, Integer> methodFlags = new HashMap<>();
+
+        int getOrAssignId(MethodCallIndex.MethodRef methodRef) {
+            MethodKey methodKey = new MethodKey(
+                    getOrAssignSymbolId(methodRef.owner().descriptorString()),
+                    getOrAssignSymbolId(methodRef.methodName()),
+                    getOrAssignSymbolId(methodRef.methodTypeDesc().descriptorString())
+            );
+
+            Integer id = methodIds.get(methodKey);
+            if (id != null) {
+                return id;
+            }
+            int newId = methods.size();
+            methodIds.put(methodKey, newId);
+            methods.add(methodKey);
+            return newId;
+        }
+
+        void setFlags(int methodId, Set<AccessFlag> accessFlags) {
+            methodFlags.put(methodId, accessFlags.stream().mapToInt(AccessFlag::mask).reduce(0, (a, b) -> a | b));
+        }
+
+        void addSections(SegmentSections.Builder builder) {
+            OffHeapStringTable.addSections(symbols, builder);
+
+            int[] hashSlots = new int[OffHeapStringTable.hashTableCapacity(methods.size())];
+            for (int id = 0; id < methods.size(); id++) {
+                MethodKey methodKey = methods.get(id);
+                int slot = hash(methodKey.ownerId(), methodKey.nameId(), methodKey.typeId()) & (hashSlots.length - 1);
+                while (hashSlots[slot] != EMPTY_SLOT) {
+                    slot = (slot + 1) & (hashSlots.length - 1);
+                }
+                hashSlots[slot] = id + 1;
+            }
+
+            builder.addInts(methods.stream().mapToInt(MethodKey::ownerId).toArray())
+                    .addInts(methods.stream().mapToInt(MethodKey::nameId).toArray())
+                    .addInts(methods.stream().mapToInt(MethodKey::typeId).toArray())
+                    .addInts(IntStream.range(0, methods.size()).map(id -> methodFlags.getOrDefault(id, 0)).toArray())
+                    .addInts(hashSlots);
+        }
+
+        static int hash(int ownerId, int nameId, int typeId) {
+            int hash = (ownerId * 31 + nameId) * 31 + typeId;
+            return (hash ^ (hash >>> 16)) * 0x9e3779b1;
+        }
+
+        private int getOrAssignSymbolId(String symbol) {
+            Integer id = symbolIds.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            int newId = symbols.size();
+            symbolIds.put(symbol, newId);
+            symbols.add(symbol);
+            return newId;
+        }
+    }
+}
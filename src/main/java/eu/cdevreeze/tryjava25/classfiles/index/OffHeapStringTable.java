@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+
+/**
+ * Off-heap table of distinct strings, assigning dense int IDs to them, stored in 3 sections of a {@link SegmentSections}.
+ * The first section holds the (long) start offsets of the strings, the second one the UTF-8 bytes of all strings,
+ * and the third one an open-addressing hash table (with linear probing) from strings to their IDs.
+ * <p>
+ * Lookups by string do not create any string on the heap, since the UTF-8 bytes are compared off-heap.
+ *
+ * @author Chris de Vreeze
+ */
+final class OffHeapStringTable {
+
+    static final int SECTION_COUNT = 3;
+
+    private static final int EMPTY_SLOT = 0; // Slots hold the ID plus 1
+
+    private final MemorySegment offsets;
+    private final MemorySegment bytes;
+    private final MemorySegment hashSlots;
+    private final int size;
+
+    private OffHeapStringTable(MemorySegment offsets, MemorySegment bytes, MemorySegment hashSlots) {
+        this.offsets = offsets;
+        this.bytes = bytes;
+        this.hashSlots = hashSlots;
+        this.size = (int) (offsets.byteSize() / ValueLayout.JAVA_LONG.byteSize()) - 1;
+    }
+
+    /**
+     * Adds the sections for the given distinct strings to the builder. The ID of each string is its index in the list.
+     */
+    static void addSections(List<String> strings, SegmentSections.Builder builder) {
+        long[] offsets = new long[strings.size() + 1];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] hashSlots = new int[hashTableCapacity(strings.size())];
+
+        for (int id = 0; id < strings.size(); id++) {
+            byte[] utf8 = strings.get(id).getBytes(StandardCharsets.UTF_8);
+            bytes.writeBytes(utf8);
+            offsets[id + 1] = offsets[id] + utf8.length;
+
+            int slot = hash(MemorySegment.ofArray(utf8), 0, utf8.length) & (hashSlots.length - 1);
+            while (hashSlots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & (hashSlots.length - 1);
+            }
+            hashSlots[slot] = id + 1;
+        }
+
+        builder.addLongs(offsets).addBytes(bytes.toByteArray()).addInts(hashSlots);
+    }
+
+    static OffHeapStringTable of(SegmentSections sections, int firstSectionIndex) {
+        return new OffHeapStringTable(
+                sections.section(firstSectionIndex),
+                sections.section(firstSectionIndex + 1),
+                sections.section(firstSectionIndex + 2)
+        );
+    }
+
+    int size() {
+        return size;
+    }
+
+    String get(int id) {
+        Objects.checkIndex(id, size);
+
+        long start = offsets.getAtIndex(ValueLayout.JAVA_LONG, id);
+        long end = offsets.getAtIndex(ValueLayout.JAVA_LONG, id + 1);
+        return new String(bytes.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+    }
+
+    OptionalInt find(String string) {
+        MemorySegment utf8 = MemorySegment.ofArray(string.getBytes(StandardCharsets.UTF_8));
+        long slotCount = hashSlots.byteSize() / ValueLayout.JAVA_INT.byteSize();
+        long slot = hash(utf8, 0, utf8.byteSize()) & (slotCount - 1);
+
+        while (true) {
+            int slotValue = hashSlots.getAtIndex(ValueLayout.JAVA_INT, slot);
+            if (slotValue == EMPTY_SLOT) {
+                return OptionalInt.empty();
+            }
+
+            int id = slotValue - 1;
+            long start = offsets.getAtIndex(ValueLayout.JAVA_LONG, id);
+            long end = offsets.getAtIndex(ValueLayout.JAVA_LONG, id + 1);
+
+            if (MemorySegment.mismatch(bytes, start, end, utf8, 0, utf8.byteSize()) == -1) {
+                return OptionalInt.of(id);
+            }
+            slot = (slot + 1) & (slotCount - 1);
+        }
+    }
+
+    /**
+     * Returns the capacity of an open-addressing hash table for the given number of entries: a power of 2, with
+     * a load factor of at most 0.5.
+     */
+    static int hashTableCapacity(int entryCount) {
+        return Integer.highestOneBit(Math.max(entryCount, 1) * 2 - 1) << 1;
+    }
+
+    /**
+     * FNV-1a hash of the given bytes.
+     */
+    private static int hash(MemorySegment segment, long start, long end) {
+        int hash = 0x811c9dc5;
+        for (long i = start; i < end; i++) {
+            hash ^= segment.get(ValueLayout.JAVA_BYTE, i) & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+
+/**
+ * One {@link MemorySegment} holding a fixed number of sections, each section being a primitive array. The segment starts
+ * with a header and a table of section descriptors, followed by the sections themselves, each 8-byte aligned. This layout
+ * is described by {@link MemoryLayout} instances, so the same bytes can be written to a file, and mapped back into memory
+ * without any parsing.
+ * <p>
+ * Values are stored in native byte order. The magic number in the header makes sure that a file written on a platform
+ * with another byte order (or for another kind of index) is rejected.
+ *
+ * @author Chris de Vreeze
+ */
+final class SegmentSections {
+
+    private static final StructLayout HEADER_LAYOUT = MemoryLayout.structLayout(
+            ValueLayout.JAVA_INT.withName("magic"),
+            ValueLayout.JAVA_INT.withName("sectionCount")
+    );
+
+    private static final StructLayout SECTION_LAYOUT = MemoryLayout.structLayout(
+            ValueLayout.JAVA_LONG.withName("offset"),
+            ValueLayout.JAVA_LONG.withName("byteSize")
+    );
+
+    private static final VarHandle MAGIC =
+            HEADER_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("magic"));
+    private static final VarHandle SECTION_COUNT =
+            HEADER_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("sectionCount"));
+    private static final VarHandle SECTION_OFFSET =
+            SECTION_LAYOUT.arrayElementVarHandle(MemoryLayout.PathElement.groupElement("offset"));
+    private static final VarHandle SECTION_BYTE_SIZE =
+            SECTION_LAYOUT.arrayElementVarHandle(MemoryLayout.PathElement.groupElement("byteSize"));
+
+    private static final long ALIGNMENT = 8;
+    private static final long WRITE_CHUNK_SIZE = 1L << 30;
+
+    private final MemorySegment segment;
+    private final int sectionCount;
+
+    private SegmentSections(MemorySegment segment, int sectionCount) {
+        this.segment = segment;
+        this.sectionCount = sectionCount;
+    }
+
+    /**
+     * Wraps the given segment, checking the magic number and section count in the header.
+     */
+    static SegmentSections of(MemorySegment segment, int expectedMagic, int expectedSectionCount) {
+        Preconditions.checkArgument(segment.byteSize() >= HEADER_LAYOUT.byteSize(), "Segment too small");
+        Preconditions.checkArgument((int) MAGIC.get(segment, 0L) == expectedMagic, "Unexpected magic number");
+        Preconditions.checkArgument((int) SECTION_COUNT.get(segment, 0L) == expectedSectionCount, "Unexpected section count");
+
+        return new SegmentSections(segment, expectedSectionCount);
+    }
+
+    /**
+     * Maps the given file (as written by {@link #writeTo(Path)}) into memory, read-only, for the lifetime of the arena.
+     */
+    static SegmentSections map(Path file, Arena arena, int expectedMagic, int expectedSectionCount) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena), expectedMagic, expectedSectionCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    MemorySegment segment() {
+        return segment;
+    }
+
+    MemorySegment section(int sectionIndex) {
+        Objects.checkIndex(sectionIndex, sectionCount);
+
+        long offset = (long) SECTION_OFFSET.get(segment, HEADER_LAYOUT.byteSize(), (long) sectionIndex);
+        long byteSize = (long) SECTION_BYTE_SIZE.get(segment, HEADER_LAYOUT.byteSize(), (long) sectionIndex);
+        return segment.asSlice(offset, byteSize, ALIGNMENT);
+    }
+
+    void writeTo(Path file) {
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Byte buffers are limited to 2 GB, so the segment is written in chunks
+            for (long offset = 0; offset < segment.byteSize(); offset += WRITE_CHUNK_SIZE) {
+                ByteBuffer buffer = segment.asSlice(offset, Math.min(WRITE_CHUNK_SIZE, segment.byteSize() - offset)).asByteBuffer();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builder of a {@link SegmentSections}, collecting the sections in order. The section index of each section is
+     * the number of sections added before it.
+     */
+    static final class Builder {
+
+        private final int magic;
+        private final List<MemorySegment> sections = new ArrayList<>();
+
+        Builder(int magic) {
+            this.magic = magic;
+        }
+
+        Builder addInts(int[] values) {
+            sections.add(MemorySegment.ofArray(values));
+            return this;
+        }
+
+        Builder addLongs(long[] values) {
+            sections.add(MemorySegment.ofArray(values));
+            return this;
+        }
+
+        Builder addBytes(byte[] values) {
+            sections.add(MemorySegment.ofArray(values));
+            return this;
+        }
+
+        /**
+         * Copies the sections into one segment allocated by the given allocator.
+         */
+        SegmentSections build(SegmentAllocator allocator) {
+            long tableOffset = HEADER_LAYOUT.byteSize();
+            long[] sectionOffsets = new long[sections.size()];
+            long size = align(tableOffset + sections.size() * SECTION_LAYOUT.byteSize());
+
+            for (int i = 0; i < sections.size(); i++) {
+                sectionOffsets[i] = size;
+                size = align(size + sections.get(i).byteSize());
+            }
+
+            MemorySegment segment = allocator.allocate(size, ALIGNMENT);
+            MAGIC.set(segment, 0L, magic);
+            SECTION_COUNT.set(segment, 0L, sections.size());
+
+            for (int i = 0; i < sections.size(); i++) {
+                MemorySegment section = sections.get(i);
+                SECTION_OFFSET.set(segment, tableOffset, (long) i, sectionOffsets[i]);
+                SECTION_BYTE_SIZE.set(segment, tableOffset, (long) i, section.byteSize());
+                MemorySegment.copy(section, 0, segment, sectionOffsets[i], section.byteSize());
+            }
+            return new SegmentSections(segment, sections.size());
+        }
+
+        private static long align(long offset) {
+            return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Precomputed indexes on top of a {@link eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse}, such as a compact
+ * class graph, in order to answer queries without repeatedly walking {@link java.lang.classfile.ClassModel} instances.
+ * <p>
+ * For very large class universes, some indexes have off-heap counterparts, stored in (optionally file-mapped)
+ * {@link java.lang.foreign.MemorySegment} instances.
+ *
+ * @author Chris de Vreeze
+ */
+@NullMarked
+package eu.cdevreeze.tryjava25.classfiles.index;
+
+import org.jspecify.annotations.NullMarked;
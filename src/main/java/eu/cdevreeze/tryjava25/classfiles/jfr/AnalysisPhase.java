@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import module java.base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timing of analysis phases. Each phase is recorded as {@link AnalysisPhaseEvent} (if JFR recording is on),
+ * and summarized in one log line (at info level).
+ *
+ * @author Chris de Vreeze
+ */
+public final class AnalysisPhase {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPhase.class);
+
+    private AnalysisPhase() {
+    }
+
+    /**
+     * Runs the given phase, and returns its result. The given function returns the number of items in the result.
+     */
+    public static <T> T run(String phase, Supplier<T> phaseBody, ToIntFunction<T> itemCounter) {
+        AnalysisPhaseEvent event = new AnalysisPhaseEvent();
+        long start = System.nanoTime();
+        event.begin();
+
+        T result = phaseBody.get();
+
+        event.end();
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        int itemCount = itemCounter.applyAsInt(result);
+
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.itemCount = itemCount;
+            event.commit();
+        }
+
+        logger.atInfo()
+                .setMessage("Phase {} took {} ms ({} items)")
+                .addArgument(phase)
+                .addArgument(durationInMillis)
+                .addArgument(itemCount)
+                .log();
+        return result;
+    }
+
+    /**
+     * Like {@link #run(String, Supplier, ToIntFunction)}, but for phases without a result, such as writing output.
+     */
+    public static void run(String phase, Runnable phaseBody) {
+        run(
+                phase,
+                () -> {
+                    phaseBody.run();
+                    return Boolean.TRUE;
+                },
+                _ -> 0
+        );
+    }
+}
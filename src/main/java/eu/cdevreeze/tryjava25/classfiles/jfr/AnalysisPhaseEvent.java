@@ -0,0 +1,45 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for an analysis phase, such as parsing the classpath or building the class usage map.
+ * The duration of the event is the duration of the phase. See {@link AnalysisPhase}.
+ *
+ * @author Chris de Vreeze
+ */
+@Name("eu.cdevreeze.tryjava25.classfiles.AnalysisPhase")
+@Label("Analysis Phase")
+@Category({"Tryjava25", "Classfiles"})
+@Description("A phase of classpath analysis, such as parsing or index building")
+@StackTrace(false)
+public final class AnalysisPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase = "";
+
+    @Label("Item Count")
+    @Description("Number of items (such as classes or call sites) produced by the phase")
+    public int itemCount;
+}
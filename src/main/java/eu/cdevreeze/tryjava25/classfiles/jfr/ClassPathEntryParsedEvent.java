@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a parsed classpath entry, that is, a JAR file or directory. The duration of the event is the parse time.
+ *
+ * @author Chris de Vreeze
+ */
+@Name("eu.cdevreeze.tryjava25.classfiles.ClassPathEntryParsed")
+@Label("Classpath Entry Parsed")
+@Category({"Tryjava25", "Classfiles"})
+@Description("A JAR file or directory on the inspected classpath has been parsed")
+@StackTrace(false)
+public final class ClassPathEntryParsedEvent extends Event {
+
+    @Label("Path")
+    public String path = "";
+
+    @Label("Class Count")
+    public int classCount;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
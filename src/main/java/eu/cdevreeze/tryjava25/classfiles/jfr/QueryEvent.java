@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a query against the class universe and its indexes, such as finding the callers of a method.
+ *
+ * @author Chris de Vreeze
+ */
+@Name("eu.cdevreeze.tryjava25.classfiles.Query")
+@Label("Query")
+@Category({"Tryjava25", "Classfiles"})
+@Description("A query against the class universe or its indexes")
+@StackTrace(false)
+public final class QueryEvent extends Event {
+
+    @Label("Query Type")
+    public String queryType = "";
+
+    @Label("Query")
+    public String query = "";
+
+    @Label("Result Count")
+    public int resultCount;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for resolving a class in a {@link eu.cdevreeze.tryjava25.classfiles.parse.ClassUniverse}.
+ * <p>
+ * The outcome is one of "HIT" (class in the universe, already parsed), "MISS" (class in a lazily loaded universe,
+ * parsed on demand), "JRT_HIT" (JDK class, already parsed) and "JRT_MISS" (JDK class, read from the "jrt" file system).
+ * <p>
+ * Classes are resolved very often, so this event is disabled by default. Enable it in the recording settings,
+ * for example with "-XX:StartFlightRecording:eu.cdevreeze.tryjava25.classfiles.ResolveClass#enabled=true".
+ *
+ * @author Chris de Vreeze
+ */
+@Name("eu.cdevreeze.tryjava25.classfiles.ResolveClass")
+@Label("Resolve Class")
+@Category({"Tryjava25", "Classfiles"})
+@Description("A class has been resolved in the class universe, or else as JDK class")
+@StackTrace(false)
+@Enabled(false)
+public final class ResolveClassEvent extends Event {
+
+    public static final String HIT = "HIT";
+    public static final String MISS = "MISS";
+    public static final String JRT_HIT = "JRT_HIT";
+    public static final String JRT_MISS = "JRT_MISS";
+
+    @Label("Class Name")
+    public String className = "";
+
+    @Label("Outcome")
+    public String outcome = "";
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Custom JDK Flight Recorder events for classpath analysis, and timing of the analysis phases. When no recording
+ * is running, the events cost next to nothing. Start a recording with, for example, JVM option
+ * "-XX:StartFlightRecording:filename=analysis.jfr", and view the events with "jfr print --categories Classfiles".
+ *
+ * @author Chris de Vreeze
+ */
+@NullMarked
+package eu.cdevreeze.tryjava25.classfiles.jfr;
+
+import org.jspecify.annotations.NullMarked;
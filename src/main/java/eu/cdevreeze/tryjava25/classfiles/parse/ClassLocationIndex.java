@@ -0,0 +1,195 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Compact index from class names to the locations of their class files, without parsing any class file.
+ * The class name is derived from the path of the class file (in a directory or JAR file), relative to the class path
+ * entry. In JAR files, the following layouts are taken into account explicitly:
+ * <ul>
+ *     <li>Entries under "META-INF/versions/" (multi-release JAR files) are skipped, so only the base versions
+ *     of classes are indexed</li>
+ *     <li>Prefixes "BOOT-INF/classes/" (Spring Boot executable JAR files) and "WEB-INF/classes/" (WAR files)
+ *     are stripped from the entry names</li>
+ * </ul>
+ * Duplicate classes are resolved like in {@link ClassModelParser#parseClassPath(String)}, so the last one wins.
+ * <p>
+ * The JAR files remain open (memory-mapped, so off-heap) as long as the index is in use, so the index must
+ * be closed after use. Lazy class universes backed by the index (see {@link ClassUniverse#lazy(ClassLocationIndex, long)})
+ * can no longer load classes once the index has been closed, so they become invalid at that point.
+ *
+ * @author Chris de Vreeze
+ */
+public final class ClassLocationIndex implements AutoCloseable {
+
+    public sealed interface ClassLocation permits ClassFileLocation, MappedJarEntryLocation, JarEntryLocation {
+    }
+
+    public record ClassFileLocation(Path classFile) implements ClassLocation {
+    }
+
+    public record MappedJarEntryLocation(MappedJarFile jarFile, MappedJarFile.Entry entry) implements ClassLocation {
+    }
+
+    public record JarEntryLocation(JarFile jarFile, String entryName) implements ClassLocation {
+    }
+
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
+    private static final ImmutableList<String> STRIPPED_JAR_ENTRY_PREFIXES =
+            ImmutableList.of("BOOT-INF/classes/", "WEB-INF/classes/");
+
+    private final ClassModelParser classModelParser;
+    private final ImmutableMap<ClassDesc, ClassLocation> classLocations;
+    private final ImmutableList<AutoCloseable> openJarFiles;
+
+    private ClassLocationIndex(
+            ClassModelParser classModelParser,
+            ImmutableMap<ClassDesc, ClassLocation> classLocations,
+            ImmutableList<AutoCloseable> openJarFiles) {
+        this.classModelParser = classModelParser;
+        this.classLocations = classLocations;
+        this.openJarFiles = openJarFiles;
+    }
+
+    public static ClassLocationIndex create(ClassModelParser classModelParser, String classPath) {
+        ImmutableMap.Builder<ClassDesc, ClassLocation> builder = ImmutableMap.builder();
+        ImmutableList.Builder<AutoCloseable> openJarFilesBuilder = ImmutableList.builder();
+
+        try {
+            for (Path cpEntry : ClassModelParser.splitClassPath(classPath)) {
+                if (Files.isDirectory(cpEntry)) {
+                    indexExplodedDirectory(cpEntry, builder);
+                } else {
+                    Preconditions.checkState(Files.isRegularFile(cpEntry));
+
+                    if (cpEntry.getFileName().toString().endsWith(".jar")) {
+                        indexJarFile(cpEntry, builder, openJarFilesBuilder);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            openJarFilesBuilder.build().forEach(ClassLocationIndex::closeQuietly);
+            throw new UncheckedIOException(e);
+        }
+
+        return new ClassLocationIndex(classModelParser, builder.buildKeepingLast(), openJarFilesBuilder.build());
+    }
+
+    public ImmutableMap<ClassDesc, ClassLocation> getClassLocations() {
+        return classLocations;
+    }
+
+    public boolean containsClass(ClassDesc classDesc) {
+        return classLocations.containsKey(classDesc);
+    }
+
+    /**
+     * Parses the class from its class file, without any caching. Throws an exception if the class is not in the index.
+     */
+    public ClassModel loadClass(ClassDesc classDesc) {
+        ClassLocation classLocation = classLocations.get(classDesc);
+        Preconditions.checkArgument(classLocation != null, "Class not found: %s", classDesc);
+
+        try {
+            return switch (classLocation) {
+                case ClassFileLocation(Path classFile) -> classModelParser.parseClassFile(classFile);
+                case MappedJarEntryLocation(MappedJarFile jarFile, MappedJarFile.Entry entry) ->
+                        classModelParser.classFile().parse(jarFile.readEntry(entry));
+                case JarEntryLocation(JarFile jarFile, String entryName) ->
+                        classModelParser.parseJarEntry(jarFile.getJarEntry(entryName), jarFile);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        openJarFiles.forEach(ClassLocationIndex::closeQuietly);
+    }
+
+    private static void indexExplodedDirectory(Path directory, ImmutableMap.Builder<ClassDesc, ClassLocation> builder) throws IOException {
+        try (Stream<Path> fileStream = Files.walk(directory)) {
+            fileStream
+                    .filter(Files::isRegularFile)
+                    .filter(f -> f.getFileName().toString().endsWith(".class"))
+                    .forEach(f -> {
+                        String relativePath = directory.relativize(f).toString().replace(File.separatorChar, '/');
+                        builder.put(toClassDesc(relativePath), new ClassFileLocation(f));
+                    });
+        }
+    }
+
+    private static void indexJarFile(
+            Path jarFile,
+            ImmutableMap.Builder<ClassDesc, ClassLocation> builder,
+            ImmutableList.Builder<AutoCloseable> openJarFilesBuilder) throws IOException {
+        try {
+            MappedJarFile mappedJarFile = MappedJarFile.open(jarFile);
+            openJarFilesBuilder.add(mappedJarFile);
+
+            mappedJarFile.getClassFileEntries()
+                    .stream()
+                    .filter(entry -> !entry.name().startsWith(VERSIONS_DIRECTORY))
+                    .forEach(entry -> builder.put(
+                            toClassDesc(stripJarEntryPrefix(entry.name())),
+                            new MappedJarEntryLocation(mappedJarFile, entry)
+                    ));
+        } catch (ZipException e) {
+            // Fall back to JarFile, like ClassModelParser does
+            JarFile jar = new JarFile(jarFile.toFile());
+            openJarFilesBuilder.add(jar);
+
+            try (Stream<JarEntry> jarEntryStream = jar.versionedStream()) {
+                jarEntryStream
+                        .filter(entry -> entry.getName().endsWith(".class"))
+                        .filter(entry -> !entry.getName().startsWith(VERSIONS_DIRECTORY))
+                        .forEach(entry -> builder.put(
+                                toClassDesc(stripJarEntryPrefix(entry.getName())),
+                                new JarEntryLocation(jar, entry.getName())
+                        ));
+            }
+        }
+    }
+
+    private static String stripJarEntryPrefix(String entryName) {
+        return STRIPPED_JAR_ENTRY_PREFIXES.stream()
+                .filter(entryName::startsWith)
+                .findFirst()
+                .map(prefix -> entryName.substring(prefix.length()))
+                .orElse(entryName);
+    }
+
+    private static ClassDesc toClassDesc(String classFilePath) {
+        String internalName = classFilePath.substring(0, classFilePath.length() - ".class".length());
+        return ClassDesc.ofInternalName(internalName);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Ignore
+        }
+    }
+}
@@ -19,6 +19,8 @@ package eu.cdevreeze.tryjava25.classfiles.parse;
 import module java.base;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+import eu.cdevreeze.tryjava25.classfiles.jfr.ClassPathEntryParsedEvent;
 
 /**
  * Utility methods to parse class files into {@link ClassModel} objects.
@@ -72,6 +74,10 @@ public record ClassModelParser(ClassFile classFile) {
     }
 
     public ImmutableMap<ClassDesc, ClassModel> parseJarFile(Path jarFile) {
+        return parseJarFile(jarFile, Function.identity());
+    }
+
+    private <T> ImmutableMap<ClassDesc, T> parseJarFile(Path jarFile, Function<ClassModel, T> extractor) {
         Preconditions.checkArgument(Files.isRegularFile(jarFile));
         Preconditions.checkArgument(jarFile.getFileName().toString().endsWith(".jar"));
 
@@ -81,12 +87,21 @@ public record ClassModelParser(ClassFile classFile) {
             return jarEntryStream
                     .filter(entry -> entry.getName().endsWith(".class"))
                     .map(entry -> parseJarEntry(entry, jar))
-                    .collect(ImmutableMap.toImmutableMap(c -> c.thisClass().asSymbol(), c -> c));
+                    .collect(ImmutableMap.toImmutableMap(c -> c.thisClass().asSymbol(), extractor));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Like {@link #parseJarFile(Path)}, but reading the JAR file as {@link MappedJarFile}, thus avoiding most of the
+     * per-entry allocations done by {@link JarFile}. If the JAR file cannot be read that way (e.g. for ZIP64 archives),
+     * this method falls back to {@link #parseJarFile(Path)}.
+     */
+    public ImmutableMap<ClassDesc, ClassModel> parseMappedJarFile(Path jarFile) {
+        return parseMappedJarFile(jarFile, false, Function.identity());
+    }
+
     public ClassModel parseJdkModuleClass(String moduleName, String className) {
         try {
             FileSystem fs = FileSystems.getFileSystem(URI.create("jrt:/"));
@@ -113,22 +128,75 @@ public record ClassModelParser(ClassFile classFile) {
     public ImmutableMap<ClassDesc, ClassModel> parseClassPath(String classPath) {
         // Expecting a Unix-style classpath string, using colons as separator instead of semicolons
 
-        String colon = Pattern.quote(":");
-        List<Path> cpEntries = Arrays.stream(classPath.split(colon)).map(Path::of).toList();
+        List<Path> cpEntries = splitClassPath(classPath);
 
-        ImmutableMap.Builder<ClassDesc, ClassModel> builder = ImmutableMap.builder();
-        for (Path cpEntry : cpEntries) {
-            if (Files.isDirectory(cpEntry)) {
-                builder.putAll(parseExplodedDirectory(cpEntry));
-            } else {
-                Preconditions.checkState(Files.isRegularFile(cpEntry));
+        return AnalysisPhase.run("parseClassPath", () -> {
+            ImmutableMap.Builder<ClassDesc, ClassModel> builder = ImmutableMap.builder();
+            for (Path cpEntry : cpEntries) {
+                if (Files.isDirectory(cpEntry)) {
+                    builder.putAll(parseClassPathEntryRecorded(cpEntry, this::parseExplodedDirectory));
+                } else {
+                    Preconditions.checkState(Files.isRegularFile(cpEntry));
 
-                if (cpEntry.getFileName().toString().endsWith(".jar")) {
-                    builder.putAll(parseJarFile(cpEntry));
+                    if (cpEntry.getFileName().toString().endsWith(".jar")) {
+                        builder.putAll(parseClassPathEntryRecorded(cpEntry, this::parseJarFile));
+                    }
                 }
             }
-        }
-        return builder.buildKeepingLast();
+            return builder.buildKeepingLast();
+        }, Map::size);
+    }
+
+    /**
+     * Parallel version of {@link #parseClassPath(String)}, using as parallelism the number of available processors.
+     */
+    public ImmutableMap<ClassDesc, ClassModel> parseClassPathInParallel(String classPath) {
+        return parseClassPathInParallel(classPath, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parallel version of {@link #parseClassPath(String)}. The work is spread over a dedicated {@link ForkJoinPool}
+     * with the given parallelism, both across classpath entries and across the class files within each entry.
+     * JAR files are read as {@link MappedJarFile}.
+     * <p>
+     * The result is the same as that of {@link #parseClassPath(String)}. That is, the per-entry results are combined
+     * in classpath order, and for duplicate classes the last one wins (as per "buildKeepingLast").
+     */
+    public ImmutableMap<ClassDesc, ClassModel> parseClassPathInParallel(String classPath, int parallelism) {
+        return parseClassPathInParallel(classPath, parallelism, Function.identity());
+    }
+
+    /**
+     * Like {@link #parseClassPathInParallel(String, int)}, but passing each {@link ClassModel} to the given extractor
+     * right after parsing it, and only keeping the extracted result. Hence, the class models and their class file bytes
+     * can be garbage collected while the remainder of the classpath is still being parsed.
+     */
+    public <T> ImmutableMap<ClassDesc, T> parseClassPathInParallel(
+            String classPath,
+            int parallelism,
+            Function<ClassModel, T> extractor) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        List<Path> cpEntries = splitClassPath(classPath);
+
+        // Parallel streams started from within a ForkJoinPool task run in that same pool, including the nested ones
+        return AnalysisPhase.run("parseClassPath", () -> {
+            try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+                List<ImmutableMap<ClassDesc, T>> parsedCpEntries = forkJoinPool.submit(() ->
+                        cpEntries.parallelStream()
+                                .map(cpEntry -> parseClassPathEntryRecorded(
+                                        cpEntry,
+                                        entry -> parseClassPathEntryInParallel(entry, extractor)
+                                ))
+                                .toList()
+                ).join();
+
+                // Encounter order of the classpath entries has been retained, so the result is deterministic
+                ImmutableMap.Builder<ClassDesc, T> builder = ImmutableMap.builder();
+                parsedCpEntries.forEach(builder::putAll);
+                return builder.buildKeepingLast();
+            }
+        }, Map::size);
     }
 
     /**
@@ -168,9 +236,106 @@ public record ClassModelParser(ClassFile classFile) {
     }
 
     public boolean isJavaSeClass(Class<?> javaClass) {
-        ModuleReference javaSeModuleRef = ModuleFinder.ofSystem().find("java.se").orElseThrow();
-        Set<String> packages = javaSeModuleRef.descriptor().packages();
-        return packages.contains(javaClass.getPackage().getName());
+        return JdkClassResolver.getInstance().isJavaSePackage(javaClass.getPackageName());
+    }
+
+    /**
+     * Parses the classpath entry with the given parser, emitting a {@link ClassPathEntryParsedEvent}.
+     * Only if JFR recording is on, the size of the classpath entry is computed.
+     */
+    private <T> ImmutableMap<ClassDesc, T> parseClassPathEntryRecorded(
+            Path cpEntry,
+            Function<Path, ImmutableMap<ClassDesc, T>> classPathEntryParser) {
+        ClassPathEntryParsedEvent event = new ClassPathEntryParsedEvent();
+        event.begin();
+
+        ImmutableMap<ClassDesc, T> result = classPathEntryParser.apply(cpEntry);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = cpEntry.toString();
+            event.classCount = result.size();
+            event.bytes = sizeInBytes(cpEntry);
+            event.commit();
+        }
+        return result;
+    }
+
+    private long sizeInBytes(Path cpEntry) {
+        try {
+            if (Files.isDirectory(cpEntry)) {
+                try (Stream<Path> fileStream = Files.walk(cpEntry)) {
+                    return fileStream.filter(this::isClassFile).mapToLong(f -> f.toFile().length()).sum();
+                }
+            } else {
+                return Files.size(cpEntry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> ImmutableMap<ClassDesc, T> parseClassPathEntryInParallel(Path cpEntry, Function<ClassModel, T> extractor) {
+        if (Files.isDirectory(cpEntry)) {
+            return parseExplodedDirectoryInParallel(cpEntry, extractor);
+        } else {
+            Preconditions.checkState(Files.isRegularFile(cpEntry));
+
+            if (cpEntry.getFileName().toString().endsWith(".jar")) {
+                return parseMappedJarFile(cpEntry, true, extractor);
+            } else {
+                return ImmutableMap.of();
+            }
+        }
+    }
+
+    private <T> ImmutableMap<ClassDesc, T> parseExplodedDirectoryInParallel(Path directory, Function<ClassModel, T> extractor) {
+        Preconditions.checkArgument(Files.isDirectory(directory));
+
+        List<Path> classFiles;
+        try (Stream<Path> fileStream = Files.walk(directory)) {
+            classFiles = fileStream
+                    .filter(Files::isRegularFile)
+                    .filter(this::isClassFile)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return classFiles.parallelStream()
+                .map(this::parseClassFile)
+                .collect(ImmutableMap.toImmutableMap(c -> c.thisClass().asSymbol(), extractor));
+    }
+
+    private <T> ImmutableMap<ClassDesc, T> parseMappedJarFile(Path jarFile, boolean parallel, Function<ClassModel, T> extractor) {
+        Preconditions.checkArgument(Files.isRegularFile(jarFile));
+        Preconditions.checkArgument(jarFile.getFileName().toString().endsWith(".jar"));
+
+        // A MappedJarFile can safely be read from multiple threads
+        try (MappedJarFile jar = MappedJarFile.open(jarFile)) {
+            List<MappedJarFile.Entry> classEntries = jar.getClassFileEntries();
+
+            return (parallel ? classEntries.parallelStream() : classEntries.stream())
+                    .map(entry -> parseMappedJarEntry(entry, jar))
+                    .collect(ImmutableMap.toImmutableMap(c -> c.thisClass().asSymbol(), extractor));
+        } catch (ZipException e) {
+            return parseJarFile(jarFile, extractor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ClassModel parseMappedJarEntry(MappedJarFile.Entry entry, MappedJarFile jar) {
+        try {
+            return classFile.parse(jar.readEntry(entry));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<Path> splitClassPath(String classPath) {
+        String colon = Pattern.quote(":");
+        return Arrays.stream(classPath.split(colon)).map(Path::of).toList();
     }
 
     private boolean isClassFile(Path file) {
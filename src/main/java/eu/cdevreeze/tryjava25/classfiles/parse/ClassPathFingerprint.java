@@ -0,0 +1,76 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Cheap fingerprint of a classpath, used to detect whether anything on the classpath has changed since the
+ * fingerprint was taken.
+ * <p>
+ * For a JAR file, the entry fingerprint consists of the size and last modification time of the JAR file.
+ * For a directory, it consists of the number of class files in it, their total size and their latest
+ * modification time. No file content is read.
+ *
+ * @author Chris de Vreeze
+ */
+public record ClassPathFingerprint(ImmutableList<EntryFingerprint> entries) {
+
+    public record EntryFingerprint(String path, long size, long lastModifiedMillis, int fileCount) {
+    }
+
+    public static ClassPathFingerprint of(String classPath) {
+        return new ClassPathFingerprint(
+                ClassModelParser.splitClassPath(classPath)
+                        .stream()
+                        .map(ClassPathFingerprint::fingerprintEntry)
+                        .collect(ImmutableList.toImmutableList())
+        );
+    }
+
+    public static EntryFingerprint fingerprintEntry(Path cpEntry) {
+        try {
+            if (Files.isDirectory(cpEntry)) {
+                long size = 0;
+                long lastModifiedMillis = 0;
+                int fileCount = 0;
+
+                try (Stream<Path> fileStream = Files.walk(cpEntry)) {
+                    for (Path file : fileStream.filter(ClassPathFingerprint::isClassFile).toList()) {
+                        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                        size += attrs.size();
+                        lastModifiedMillis = Math.max(lastModifiedMillis, attrs.lastModifiedTime().toMillis());
+                        fileCount += 1;
+                    }
+                }
+                return new EntryFingerprint(cpEntry.toString(), size, lastModifiedMillis, fileCount);
+            } else if (Files.isRegularFile(cpEntry)) {
+                BasicFileAttributes attrs = Files.readAttributes(cpEntry, BasicFileAttributes.class);
+                return new EntryFingerprint(cpEntry.toString(), attrs.size(), attrs.lastModifiedTime().toMillis(), 1);
+            } else {
+                return new EntryFingerprint(cpEntry.toString(), -1, -1, 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isClassFile(Path file) {
+        return Files.isRegularFile(file) && file.getFileName().toString().endsWith(".class");
+    }
+}
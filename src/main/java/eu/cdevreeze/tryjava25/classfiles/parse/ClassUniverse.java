@@ -18,30 +18,182 @@ package eu.cdevreeze.tryjava25.classfiles.parse;
 
 import module java.base;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
-import eu.cdevreeze.tryjava25.classfiles.internal.MyGatherers;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.jfr.ResolveClassEvent;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Utility methods to get all ancestor classes of a class, all implemented interfaces, etc.
  * <p>
  * Of course, it is naive and very inefficient to "load" all classes (except for JDK classes) eagerly.
+ * Hence the alternative of a lazily loaded class universe, created with method {@link #lazy(ClassLocationIndex, long)}.
+ * Such a universe only holds a {@link ClassLocationIndex}, and parses classes on demand, keeping only a bounded
+ * number of them in a cache.
+ * <p>
+ * Supertype closures are memoized per class (as class names), reusing the memoized closures of the direct supertypes.
+ * Hence, in diamond-shaped interface hierarchies, or across calls, the same closure is never computed twice. That logic
+ * is shared with {@link SummaryClassUniverse}, see {@link TypeHierarchySupport}.
+ * <p>
+ * To also navigate downward (subclasses and implementors), a reverse index from classes to their direct subtypes
+ * is built when subtypes are first queried, so creating a class universe does not resolve any class. For lazily
+ * loaded class universes, building that index parses all classes once.
+ * <p>
+ * After some classes have been added, changed or removed, method {@link #update(ImmutableMap, Set)} creates an updated
+ * universe that reuses the memoized data not involving those classes, without resolving any other class.
  *
  * @author Chris de Vreeze
  */
-public final class ClassUniverse {
+public final class ClassUniverse implements TypeHierarchy {
 
-    private final ImmutableMap<ClassDesc, ClassModel> universe; // excludes JDK classes
-    private final FileSystem jrtFileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+    private final ImmutableSet<ClassDesc> classDescs; // excludes JDK classes
+    private final @Nullable ImmutableMap<ClassDesc, ClassModel> universe; // excludes JDK classes; null if lazily loaded
+    private final Function<ClassDesc, ClassModel> classModelResolver;
+    private final Predicate<ClassDesc> isParsed; // only used for JFR events
+
+    // Memoized supertype closures, holding class names only (so they do not defeat the cache of lazy class universes)
+    private final TypeHierarchySupport typeHierarchySupport =
+            new TypeHierarchySupport(c -> TypeHierarchySupport.DirectSupertypes.of(resolveClass(c)));
+
+    // Reverse hierarchy index, from (possibly JDK) supertypes to their direct subtypes in this universe, built lazily
+    private volatile @Nullable SubtypeIndex directSubtypes;
+
+    /**
+     * Reverse hierarchy index, as a fully built multimap, along with patched entries that take precedence over it.
+     */
+    private record SubtypeIndex(
+            ImmutableListMultimap<ClassDesc, ClassDesc> directSubtypes,
+            ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> patchedDirectSubtypes
+    ) {
+
+        ImmutableList<ClassDesc> get(ClassDesc classDesc) {
+            ImmutableList<ClassDesc> patched = patchedDirectSubtypes.get(classDesc);
+            return patched != null ? patched : directSubtypes.get(classDesc);
+        }
+    }
 
     public ClassUniverse(ImmutableMap<ClassDesc, ClassModel> universe) {
+        this.classDescs = universe.keySet();
         this.universe = universe;
+        this.classModelResolver = c -> Objects.requireNonNull(universe.get(c));
+        this.isParsed = _ -> true;
+    }
+
+    private ClassUniverse(
+            ImmutableSet<ClassDesc> classDescs,
+            Function<ClassDesc, ClassModel> classModelResolver,
+            Predicate<ClassDesc> isParsed) {
+        this.classDescs = classDescs;
+        this.universe = null;
+        this.classModelResolver = classModelResolver;
+        this.isParsed = isParsed;
+    }
+
+    /**
+     * Creates a lazily loaded class universe, parsing classes on first use, and caching at most the given number of them.
+     * Cached {@link ClassModel} instances are softly referenced, so they can also be evicted under memory pressure.
+     * <p>
+     * The returned class universe is only valid as long as the class location index has not been closed.
+     */
+    public static ClassUniverse lazy(ClassLocationIndex classLocationIndex, long maximumCacheSize) {
+        return lazy(classLocationIndex.getClassLocations().keySet(), classLocationIndex::loadClass, maximumCacheSize);
     }
 
+    /**
+     * Creates a lazily loaded class universe for the given class names, parsing classes on first use with the given
+     * class loader function, and caching at most the given number of them.
+     */
+    static ClassUniverse lazy(
+            ImmutableSet<ClassDesc> classDescs,
+            Function<ClassDesc, ClassModel> classLoader,
+            long maximumCacheSize) {
+        LoadingCache<ClassDesc, ClassModel> cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumCacheSize)
+                .softValues()
+                .build(CacheLoader.from(classLoader::apply));
+
+        return new ClassUniverse(classDescs, cache::getUnchecked, c -> cache.getIfPresent(c) != null);
+    }
+
+    /**
+     * Returns an updated class universe for the given (eagerly loaded) universe, in which only the given classes have been
+     * added, changed or removed. Memoized supertype closures that do not contain any of those classes are reused, and the
+     * reverse subtype index, if already built, is patched for those classes only. No other class is resolved.
+     * <p>
+     * This class universe must be eagerly loaded, and it is not affected by this method.
+     */
+    public ClassUniverse update(ImmutableMap<ClassDesc, ClassModel> newUniverse, Set<ClassDesc> addedChangedOrRemovedClasses) {
+        Preconditions.checkState(universe != null, "Not supported for lazily loaded class universes");
+
+        ClassUniverse result = new ClassUniverse(newUniverse);
+        typeHierarchySupport.copyUnaffectedClosuresTo(result.typeHierarchySupport, addedChangedOrRemovedClasses);
+
+        SubtypeIndex oldSubtypeIndex = directSubtypes;
+
+        if (oldSubtypeIndex != null) {
+            Map<ClassDesc, Set<ClassDesc>> patchedEntries = new LinkedHashMap<>();
+
+            // First remove the old edges, and then add the new ones
+            for (ClassDesc classDesc : addedChangedOrRemovedClasses) {
+                @Nullable ClassModel oldClassModel = universe.get(classDesc);
+
+                if (oldClassModel != null) {
+                    TypeHierarchySupport.DirectSupertypes.of(oldClassModel).stream().forEach(sc ->
+                            patchedEntries.computeIfAbsent(sc, _ -> new LinkedHashSet<>(oldSubtypeIndex.get(sc))).remove(classDesc)
+                    );
+                }
+            }
+            for (ClassDesc classDesc : addedChangedOrRemovedClasses) {
+                @Nullable ClassModel newClassModel = newUniverse.get(classDesc);
+
+                if (newClassModel != null) {
+                    TypeHierarchySupport.DirectSupertypes.of(newClassModel).stream().forEach(sc ->
+                            patchedEntries.computeIfAbsent(sc, _ -> new LinkedHashSet<>(oldSubtypeIndex.get(sc))).add(classDesc)
+                    );
+                }
+            }
+
+            ImmutableMap.Builder<ClassDesc, ImmutableList<ClassDesc>> patchedDirectSubtypes = ImmutableMap.builder();
+            patchedDirectSubtypes.putAll(oldSubtypeIndex.patchedDirectSubtypes());
+            patchedEntries.forEach((sc, subtypes) -> patchedDirectSubtypes.put(sc, ImmutableList.copyOf(subtypes)));
+
+            result.directSubtypes =
+                    new SubtypeIndex(oldSubtypeIndex.directSubtypes(), patchedDirectSubtypes.buildKeepingLast());
+        }
+        return result;
+    }
+
+    /**
+     * Returns all (non-JDK) classes as a map. Throws an exception for lazily loaded class universes, for which
+     * methods {@link #getClassDescs()} and {@link #resolveClass(ClassDesc)} should be used instead.
+     */
     public ImmutableMap<ClassDesc, ClassModel> getUniverse() {
+        Preconditions.checkState(universe != null, "Not supported for lazily loaded class universes");
         return universe;
     }
 
+    /**
+     * Returns all (non-JDK) class names, without loading any class.
+     */
+    @Override
+    public ImmutableSet<ClassDesc> getClassDescs() {
+        return classDescs;
+    }
+
+    public boolean isLazilyLoaded() {
+        return universe == null;
+    }
+
+    @Override
+    public boolean containsClass(ClassDesc classDesc) {
+        return classDescs.contains(classDesc);
+    }
+
     public ImmutableList<ClassModel> findAllSuperclasses(ClassModel classModel) {
         Preconditions.checkArgument(isClassOrInterface(classModel));
 
@@ -54,31 +206,13 @@ public final class ClassUniverse {
     public ImmutableList<ClassModel> findAllSuperclassesOrSelf(ClassModel classModel) {
         Preconditions.checkArgument(isClassOrInterface(classModel));
 
-        Optional<ClassModel> currentSuperclassOption = classModel.superclass().map(this::resolveClass);
-
-        ImmutableList.Builder<ClassModel> builder = ImmutableList.builder();
-
-        while (currentSuperclassOption.isPresent()) {
-            builder.add(currentSuperclassOption.orElseThrow());
-            currentSuperclassOption = currentSuperclassOption.flatMap(ClassModel::superclass).map(this::resolveClass);
-        }
-
-        return builder.build();
+        return resolveClasses(findAllSuperclassDescsOrSelf(classModel.thisClass().asSymbol()));
     }
 
     public ImmutableList<ClassModel> findAllSupertypesOrSelf(ClassModel classModel) {
         Preconditions.checkArgument(isClassOrInterface(classModel));
 
-        ImmutableList.Builder<ClassModel> builder = ImmutableList.builder();
-
-        builder.add(classModel);
-        builder.addAll(findAllSuperclasses(classModel));
-        builder.addAll(findAllInterfaces(classModel));
-
-        return builder.build()
-                .stream()
-                .gather(MyGatherers.distinctBy(cm -> cm.thisClass().asSymbol()))
-                .collect(ImmutableList.toImmutableList());
+        return resolveClasses(findAllSupertypeDescsOrSelf(classModel.thisClass().asSymbol()));
     }
 
     /**
@@ -88,39 +222,106 @@ public final class ClassUniverse {
     public ImmutableList<ClassModel> findAllInterfaces(ClassModel classModel) {
         Preconditions.checkArgument(isClassOrInterface(classModel));
 
-        // This finds all own implemented/extended interfaces, those of superclasses, and
-        // those extending the found interfaces
+        return resolveClasses(findAllInterfaceDescs(classModel.thisClass().asSymbol()));
+    }
 
-        return findAllSuperclassesOrSelf(classModel)
-                .stream()
-                .flatMap(c -> c.interfaces().stream().map(this::resolveClass))
-                .gather(MyGatherers.distinctBy(cm -> cm.thisClass().asSymbol()))
-                .flatMap(itf -> findAllExtendedInterfacesOrSelf(itf).stream())
-                .gather(MyGatherers.distinctBy(cm -> cm.thisClass().asSymbol()))
-                .collect(ImmutableList.toImmutableList());
+    /**
+     * Returns the class itself followed by all its superclasses, nearest first. The result is memoized.
+     */
+    public ImmutableList<ClassDesc> findAllSuperclassDescsOrSelf(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllSuperclassDescsOrSelf(classDesc);
     }
 
-    private ImmutableList<ClassModel> findAllExtendedInterfacesOrSelf(ClassModel interfaceModel) {
-        Preconditions.checkArgument(isInterface(interfaceModel));
+    /**
+     * Returns all directly or indirectly extended/implemented interfaces, excluding the class itself if it is an
+     * interface. The result is memoized.
+     */
+    public ImmutableList<ClassDesc> findAllInterfaceDescs(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllInterfaceDescs(classDesc);
+    }
 
-        ImmutableList.Builder<ClassModel> builder = ImmutableList.builder();
+    /**
+     * Returns the class itself, its superclasses, and all its interfaces, without duplicates. The result is
+     * built from memoized results.
+     */
+    @Override
+    public ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllSupertypeDescsOrSelf(classDesc);
+    }
 
-        builder.add(interfaceModel);
+    /**
+     * Returns the supertypes (or self) of all (non-JDK) classes in the universe. Due to memoization, the supertypes
+     * of each class (including JDK classes) are computed only once, reusing the results for its direct supertypes.
+     */
+    public ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> findAllSupertypeDescsOrSelfOfAllClasses() {
+        return classDescs.stream()
+                .filter(ClassDesc::isClassOrInterface)
+                .collect(ImmutableMap.toImmutableMap(c -> c, this::findAllSupertypeDescsOrSelf));
+    }
 
-        // Recursive
-        builder.addAll(
-                interfaceModel.interfaces()
-                        .stream()
-                        .flatMap(itf -> findAllExtendedInterfacesOrSelf(resolveClass(itf)).stream())
-                        .toList()
-        );
+    /**
+     * Returns the direct subclasses and directly implementing/extending subtypes in this universe.
+     */
+    public ImmutableList<ClassDesc> findDirectSubtypeDescs(ClassDesc classDesc) {
+        return getDirectSubtypes().get(classDesc);
+    }
 
-        return builder.build()
-                .stream()
-                .gather(MyGatherers.distinctBy(cm -> cm.thisClass().asSymbol()))
+    /**
+     * Returns all direct and indirect subtypes in this universe, excluding the class itself, in breadth-first order.
+     * This takes time proportional to the size of the result, not to the size of the universe.
+     */
+    @Override
+    public ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc) {
+        return TypeHierarchySupport.findAllSubtypeDescs(classDesc, getDirectSubtypes()::get);
+    }
+
+    public ImmutableList<ClassModel> findAllSubtypes(ClassModel classModel) {
+        Preconditions.checkArgument(isClassOrInterface(classModel));
+
+        return resolveClasses(findAllSubtypeDescs(classModel.thisClass().asSymbol()));
+    }
+
+    /**
+     * Finds all classes (not interfaces) in this universe that directly or indirectly implement the given interface.
+     */
+    public ImmutableList<ClassModel> findAllImplementors(ClassModel interfaceModel) {
+        Preconditions.checkArgument(isInterface(interfaceModel));
+
+        return findAllSubtypes(interfaceModel).stream()
+                .filter(this::isRegularClass)
                 .collect(ImmutableList.toImmutableList());
     }
 
+    private SubtypeIndex getDirectSubtypes() {
+        SubtypeIndex result = directSubtypes;
+
+        if (result == null) {
+            synchronized (this) {
+                result = directSubtypes;
+                if (result == null) {
+                    result = new SubtypeIndex(
+                            TypeHierarchySupport.computeDirectSubtypes(
+                                    classDescs,
+                                    c -> TypeHierarchySupport.DirectSupertypes.of(resolveClass(c))
+                            ),
+                            ImmutableMap.of()
+                    );
+                    directSubtypes = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ImmutableList<ClassModel> resolveClasses(List<ClassDesc> classDescs) {
+        return classDescs.stream().map(this::resolveClass).collect(ImmutableList.toImmutableList());
+    }
+
+    @Override
+    public boolean isInterface(ClassDesc classDesc) {
+        return classDesc.isClassOrInterface() && isInterface(resolveClass(classDesc));
+    }
+
     public boolean isInterface(ClassModel classModel) {
         return isClassOrInterface(classModel) && classModel.flags().has(AccessFlag.INTERFACE);
     }
@@ -141,27 +342,34 @@ public final class ClassUniverse {
         // Somehow "Optional.ofNullable(universe.get(classDesc))" did not work
         // This might have to do with the fact that ClassModel data is lazily loaded
 
-        if (universe.containsKey(classDesc)) {
-            return Objects.requireNonNull(universe.get(classDesc));
+        ResolveClassEvent event = new ResolveClassEvent();
+
+        if (classDescs.contains(classDesc)) {
+            if (event.isEnabled()) {
+                event.outcome = isParsed.test(classDesc) ? ResolveClassEvent.HIT : ResolveClassEvent.MISS;
+            }
+            event.begin();
+            ClassModel classModel = classModelResolver.apply(classDesc);
+            commit(event, classDesc);
+            return classModel;
         } else {
-            return parseJavaSeClass(classDesc);
+            if (event.isEnabled()) {
+                event.outcome = JdkClassResolver.getInstance().isParsed(classDesc) ?
+                        ResolveClassEvent.JRT_HIT :
+                        ResolveClassEvent.JRT_MISS;
+            }
+            event.begin();
+            ClassModel classModel = JdkClassResolver.getInstance().resolveClass(classDesc);
+            commit(event, classDesc);
+            return classModel;
         }
     }
 
-    private ClassModel parseJavaSeClass(ClassDesc classDesc) {
-        try {
-            Preconditions.checkArgument(classDesc.isClassOrInterface());
-
-            String packageNameAsPath = classDesc.packageName().replace('.', '/');
-            String simpleClassNameAsFileName = classDesc.displayName() + ".class";
-            String classNameAsPath = packageNameAsPath.isEmpty() ? simpleClassNameAsFileName : packageNameAsPath + "/" + simpleClassNameAsFileName;
-
-            // TODO Module java.se
-            Path classFilePath = jrtFileSystem.getPath("modules", "java.base", classNameAsPath);
-
-            return ClassFile.of().parse(classFilePath);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    private static void commit(ResolveClassEvent event, ClassDesc classDesc) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = classDesc.descriptorString();
+            event.commit();
         }
     }
 }
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+
+/**
+ * Versioned binary on-disk snapshot of a {@link ClassUniverse}, that is, of its class files, along with optional
+ * snapshots of class usage maps of {@link EnhancedClassUniverse} instances. A snapshot is only used if the
+ * {@link ClassPathFingerprint} stored in it matches the current one.
+ * <p>
+ * The universe snapshot does not depend on any root packages, so tools using different root packages can share
+ * one snapshot file. Each class usage map, on the other hand, depends on the root packages it has been built for.
+ * Therefore, it is stored in its own file next to the universe snapshot, named after the snapshot file and a hash
+ * of the root packages (see {@link #classUsageMapFile(Path, List)}).
+ * <p>
+ * Loading the universe snapshot memory-maps it, and only scans the class names and the locations of the class file
+ * bytes in the mapped file. No class file is copied or parsed at that point. The result is a lazily loaded
+ * {@link ClassUniverse}, parsing classes from the mapped file on first use, and caching at most
+ * {@link #DEFAULT_MAXIMUM_CACHE_SIZE} of them. The mapping lives as long as that class universe is reachable.
+ * <p>
+ * The universe snapshot format is as follows, with all numbers in big-endian order, and all strings as UTF-8 bytes
+ * prefixed by their length as int:
+ * <ul>
+ *     <li>magic number and format version, both as int</li>
+ *     <li>classpath fingerprint: entry count, and per entry the path, size (long), last modification time (long)
+ *     and file count (int)</li>
+ *     <li>classes: count, and per class the class descriptor and the class file bytes (length-prefixed)</li>
+ * </ul>
+ * The class usage map format starts with another magic number, the format version and the classpath fingerprint,
+ * followed by the root packages (count, and the package name prefixes), and the class usage map (count, and per
+ * used class the class descriptor and the descriptors of the using classes, count-prefixed).
+ *
+ * @author Chris de Vreeze
+ */
+public final class ClassUniverseSnapshot {
+
+    public static final int FORMAT_VERSION = 2;
+
+    public static final long DEFAULT_MAXIMUM_CACHE_SIZE = 20_000;
+
+    private static final int MAGIC = 0x43555356; // "CUSV"
+    private static final int CLASS_USAGE_MAP_MAGIC = 0x43554D50; // "CUMP"
+
+    private static final ValueLayout.OfInt INT_BE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG_BE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Location of the class file bytes of one class in the mapped snapshot file.
+     */
+    private record ClassBytesLocation(long offset, int length) {
+    }
+
+    @FunctionalInterface
+    private interface DataWriter {
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private ClassUniverseSnapshot() {
+    }
+
+    /**
+     * Returns the {@link ClassUniverse} stored in the given snapshot file, if the snapshot is up-to-date w.r.t. the
+     * given classpath. That class universe is lazily loaded. Otherwise, the universe is created with the given creator
+     * function, and it is written as new snapshot file.
+     */
+    public static ClassUniverse loadOrCreate(
+            Path snapshotFile,
+            String classPath,
+            ClassFile classFile,
+            Supplier<ClassUniverse> universeCreator) {
+        return loadOrCreate(snapshotFile, ClassPathFingerprint.of(classPath), classFile, universeCreator);
+    }
+
+    /**
+     * Like {@link #loadOrCreate(Path, String, ClassFile, Supplier)}, but also returning the class usage map for the
+     * given root packages. If there is no up-to-date class usage map snapshot for those root packages, the class usage
+     * map is created from the class universe with the given function, and it is written to its own snapshot file.
+     */
+    public static EnhancedClassUniverse loadOrCreate(
+            Path snapshotFile,
+            String classPath,
+            List<String> packageNameStartStrings,
+            ClassFile classFile,
+            Supplier<ClassUniverse> universeCreator,
+            Function<ClassUniverse, EnhancedClassUniverse> enhancedUniverseCreator) {
+        ClassPathFingerprint fingerprint = ClassPathFingerprint.of(classPath);
+        ClassUniverse classUniverse = loadOrCreate(snapshotFile, fingerprint, classFile, universeCreator);
+        Path classUsageMapFile = classUsageMapFile(snapshotFile, packageNameStartStrings);
+
+        return readClassUsageMap(classUsageMapFile, fingerprint, packageNameStartStrings)
+                .map(classUsageMap -> new EnhancedClassUniverse(classUniverse, classUsageMap))
+                .orElseGet(() -> {
+                    EnhancedClassUniverse enhancedClassUniverse = enhancedUniverseCreator.apply(classUniverse);
+                    writeClassUsageMap(classUsageMapFile, fingerprint, packageNameStartStrings, enhancedClassUniverse.getClassUsageMap());
+                    return enhancedClassUniverse;
+                });
+    }
+
+    private static ClassUniverse loadOrCreate(
+            Path snapshotFile,
+            ClassPathFingerprint fingerprint,
+            ClassFile classFile,
+            Supplier<ClassUniverse> universeCreator) {
+        Optional<ClassUniverse> snapshotOption = AnalysisPhase.run(
+                "loadUniverseSnapshot",
+                () -> read(snapshotFile, fingerprint, classFile),
+                opt -> opt.map(u -> u.getClassDescs().size()).orElse(0)
+        );
+
+        return snapshotOption.orElseGet(() -> {
+            ClassUniverse classUniverse = universeCreator.get();
+            write(snapshotFile, fingerprint, classUniverse, classFile);
+            return classUniverse;
+        });
+    }
+
+    /**
+     * Returns the path of the class usage map snapshot file for the given universe snapshot file and root packages.
+     */
+    public static Path classUsageMapFile(Path snapshotFile, List<String> packageNameStartStrings) {
+        // Hash collisions are harmless, since the root packages are stored in the file, and checked when reading it
+        String hash = HexFormat.of().toHexDigits(packageNameStartStrings.hashCode());
+        return snapshotFile.resolveSibling(snapshotFile.getFileName().toString() + ".usage-" + hash);
+    }
+
+    /**
+     * Reads the snapshot file, returning an empty Optional if the file does not exist, is of another format version,
+     * is corrupt, or does not match the given fingerprint. Only the class names and the locations of the class file
+     * bytes are read, and the returned class universe parses the classes on demand, from the mapped file.
+     */
+    public static Optional<ClassUniverse> read(Path snapshotFile, ClassPathFingerprint fingerprint, ClassFile classFile) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            // The mapping lives as long as the returned class universe is reachable, and it can be read from any thread
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+            SegmentReader reader = new SegmentReader(segment);
+
+            if (segment.byteSize() < 8 || reader.readInt() != MAGIC || reader.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            if (!readFingerprint(reader).equals(fingerprint)) {
+                return Optional.empty();
+            }
+
+            int classCount = reader.readInt();
+            ImmutableMap.Builder<ClassDesc, ClassBytesLocation> classesBuilder = ImmutableMap.builderWithExpectedSize(classCount);
+            for (int i = 0; i < classCount; i++) {
+                ClassDesc classDesc = ClassDesc.ofDescriptor(reader.readString());
+                classesBuilder.put(classDesc, reader.skipBytes());
+            }
+            ImmutableMap<ClassDesc, ClassBytesLocation> classes = classesBuilder.build();
+
+            return Optional.of(
+                    ClassUniverse.lazy(
+                            classes.keySet(),
+                            classDesc -> {
+                                ClassBytesLocation location = Objects.requireNonNull(classes.get(classDesc));
+                                return classFile.parse(
+                                        segment.asSlice(location.offset(), location.length()).toArray(ValueLayout.JAVA_BYTE)
+                                );
+                            },
+                            DEFAULT_MAXIMUM_CACHE_SIZE
+                    )
+            );
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Truncated or otherwise corrupt snapshot file, to be replaced by a new one
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the snapshot file, replacing any existing one. The class file bytes are written as produced by the given
+     * {@link ClassFile}, if the classes have not been parsed from class file bytes.
+     */
+    public static void write(Path snapshotFile, ClassPathFingerprint fingerprint, ClassUniverse classUniverse, ClassFile classFile) {
+        writeAtomically(snapshotFile, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeFingerprint(out, fingerprint);
+
+            out.writeInt(classUniverse.getClassDescs().size());
+            for (ClassDesc classDesc : classUniverse.getClassDescs()) {
+                writeString(out, classDesc.descriptorString());
+                byte[] classBytes = toBytes(classUniverse.resolveClass(classDesc), classFile);
+                out.writeInt(classBytes.length);
+                out.write(classBytes);
+            }
+        });
+    }
+
+    /**
+     * Reads the class usage map snapshot file, returning an empty Optional if the file does not exist, is of another
+     * format version, is corrupt, or does not match the given fingerprint and root packages.
+     */
+    public static Optional<ImmutableMap<ClassDesc, ImmutableList<ClassDesc>>> readClassUsageMap(
+            Path classUsageMapFile,
+            ClassPathFingerprint fingerprint,
+            List<String> packageNameStartStrings) {
+        if (!Files.isRegularFile(classUsageMapFile)) {
+            return Optional.empty();
+        }
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(classUsageMapFile, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            SegmentReader reader = new SegmentReader(segment);
+
+            if (segment.byteSize() < 8 || reader.readInt() != CLASS_USAGE_MAP_MAGIC || reader.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            if (!readFingerprint(reader).equals(fingerprint) || !readStrings(reader).equals(packageNameStartStrings)) {
+                return Optional.empty();
+            }
+
+            int usageCount = reader.readInt();
+            ImmutableMap.Builder<ClassDesc, ImmutableList<ClassDesc>> usageMapBuilder = ImmutableMap.builderWithExpectedSize(usageCount);
+            for (int i = 0; i < usageCount; i++) {
+                ClassDesc usedClass = ClassDesc.ofDescriptor(reader.readString());
+                ImmutableList<ClassDesc> usingClasses = readStrings(reader).stream()
+                        .map(ClassDesc::ofDescriptor)
+                        .collect(ImmutableList.toImmutableList());
+                usageMapBuilder.put(usedClass, usingClasses);
+            }
+            return Optional.of(usageMapBuilder.build());
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Truncated or otherwise corrupt snapshot file, to be replaced by a new one
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the class usage map snapshot file, replacing any existing one.
+     */
+    public static void writeClassUsageMap(
+            Path classUsageMapFile,
+            ClassPathFingerprint fingerprint,
+            List<String> packageNameStartStrings,
+            ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> classUsageMap) {
+        writeAtomically(classUsageMapFile, out -> {
+            out.writeInt(CLASS_USAGE_MAP_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeFingerprint(out, fingerprint);
+            writeStrings(out, packageNameStartStrings);
+
+            out.writeInt(classUsageMap.size());
+            for (Map.Entry<ClassDesc, ImmutableList<ClassDesc>> usageEntry : classUsageMap.entrySet()) {
+                writeString(out, usageEntry.getKey().descriptorString());
+                writeStrings(out, usageEntry.getValue().stream().map(ClassDesc::descriptorString).toList());
+            }
+        });
+    }
+
+    /**
+     * Writes the file, replacing any existing one. The file is first written to a temporary file, which is then moved
+     * to the given file path.
+     */
+    private static void writeAtomically(Path file, DataWriter dataWriter) {
+        Path absoluteFile = file.toAbsolutePath();
+
+        try {
+            Path tempFile = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(), ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                dataWriter.write(out);
+            }
+
+            Files.move(tempFile, absoluteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] toBytes(ClassModel classModel, ClassFile classFile) {
+        // A parsed ClassModel has a ClassReader as constant pool, giving access to the original class file bytes
+        if (classModel.constantPool() instanceof ClassReader classReader) {
+            return classReader.readBytes(0, classReader.classfileLength());
+        } else {
+            return classFile.transformClass(classModel, ClassTransform.ACCEPT_ALL);
+        }
+    }
+
+    private static void writeFingerprint(DataOutputStream out, ClassPathFingerprint fingerprint) throws IOException {
+        out.writeInt(fingerprint.entries().size());
+        for (ClassPathFingerprint.EntryFingerprint entry : fingerprint.entries()) {
+            writeString(out, entry.path());
+            out.writeLong(entry.size());
+            out.writeLong(entry.lastModifiedMillis());
+            out.writeInt(entry.fileCount());
+        }
+    }
+
+    private static ClassPathFingerprint readFingerprint(SegmentReader reader) {
+        int entryCount = reader.readInt();
+        ImmutableList.Builder<ClassPathFingerprint.EntryFingerprint> builder = ImmutableList.builderWithExpectedSize(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            builder.add(
+                    new ClassPathFingerprint.EntryFingerprint(
+                            reader.readString(),
+                            reader.readLong(),
+                            reader.readLong(),
+                            reader.readInt()
+                    )
+            );
+        }
+        return new ClassPathFingerprint(builder.build());
+    }
+
+    private static ImmutableList<String> readStrings(SegmentReader reader) {
+        int count = reader.readInt();
+        ImmutableList.Builder<String> builder = ImmutableList.builderWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            builder.add(reader.readString());
+        }
+        return builder.build();
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Sequential reader of a (memory-mapped) {@link MemorySegment}, reading data written by a {@link DataOutputStream}.
+     */
+    private static final class SegmentReader {
+
+        private final MemorySegment segment;
+        private long offset;
+
+        SegmentReader(MemorySegment segment) {
+            this.segment = segment;
+            this.offset = 0;
+        }
+
+        int readInt() {
+            int result = segment.get(INT_BE, offset);
+            offset += Integer.BYTES;
+            return result;
+        }
+
+        long readLong() {
+            long result = segment.get(LONG_BE, offset);
+            offset += Long.BYTES;
+            return result;
+        }
+
+        byte[] readBytes() {
+            int length = readInt();
+            byte[] result = new byte[length];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset, result, 0, length);
+            offset += length;
+            return result;
+        }
+
+        /**
+         * Skips length-prefixed bytes, without copying them, returning their location. Throws an exception if they
+         * do not fit in the segment.
+         */
+        ClassBytesLocation skipBytes() {
+            int length = readInt();
+            Objects.checkFromIndexSize(offset, length, segment.byteSize());
+            ClassBytesLocation result = new ClassBytesLocation(offset, length);
+            offset += length;
+            return result;
+        }
+
+        String readString() {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
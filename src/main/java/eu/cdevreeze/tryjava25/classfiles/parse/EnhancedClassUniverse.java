@@ -16,19 +16,25 @@
 
 package eu.cdevreeze.tryjava25.classfiles.parse;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import eu.cdevreeze.tryjava25.classfiles.data.InvokeInstructionAndContainingMethod;
-import eu.cdevreeze.tryjava25.classfiles.data.MethodAndContainingClass;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
 
 import java.lang.classfile.ClassModel;
+import java.lang.classfile.CodeModel;
 import java.lang.classfile.instruction.InvokeInstruction;
 import java.lang.constant.ClassDesc;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
 
 /**
@@ -68,43 +74,157 @@ public final class EnhancedClassUniverse {
     }
 
     public static EnhancedClassUniverse create(ClassUniverse classUniverse, Predicate<ClassDesc> mustBeInClassUsageMap) {
-        Map<ClassDesc, List<ClassDesc>> classUsageMapBuilder = new HashMap<>();
-
-        List<ClassModel> classesThatMustBeInClassUsageMap = classUniverse.getUniverse().values().stream()
-                .filter(c -> mustBeInClassUsageMap.test(c.thisClass().asSymbol()))
-                .toList();
-
-        for (ClassModel classModel : classesThatMustBeInClassUsageMap) {
-            classModel.methods().stream()
-                    .filter(m -> m.code().isPresent())
-                    .map(MethodAndContainingClass::of)
-                    .flatMap(m ->
-                            m.getMethodModel().code().orElseThrow().elementStream().flatMap(codeElem ->
-                                    codeElem instanceof InvokeInstruction invokeInstruction ?
-                                            Stream.of(new InvokeInstructionAndContainingMethod(invokeInstruction, m)) :
-                                            Stream.empty()
-                            )
-                    )
-                    .forEach(ivk -> {
-                        ClassDesc classOwningMethod = ivk.getInvokeInstruction().owner().asSymbol();
-
-                        if (!classUsageMapBuilder.containsKey(classOwningMethod)) {
-                            classUsageMapBuilder.put(classOwningMethod, new ArrayList<>());
-                        }
-                        classUsageMapBuilder.get(classOwningMethod).add(ivk.getMethodAndContainingClass().getClassDesc());
-                    });
+        // Works for lazily loaded class universes as well, since class models are not retained here
+        Map<ClassDesc, Set<ClassDesc>> classUsageMap = AnalysisPhase.run(
+                "scanClassUsage",
+                () -> classUniverse.getClassDescs().stream()
+                        .filter(mustBeInClassUsageMap)
+                        .collect(classUsageMapCollector(classUniverse)),
+                Map::size
+        );
+
+        return new EnhancedClassUniverse(
+                classUniverse,
+                AnalysisPhase.run("buildClassUsageMap", () -> toImmutableClassUsageMap(classUsageMap), Map::size)
+        );
+    }
+
+    public static EnhancedClassUniverse createInParallel(ClassUniverse classUniverse, List<String> packageNameStartStrings, int parallelism) {
+        return createInParallel(
+                classUniverse,
+                c -> packageNameStartStrings.stream().anyMatch(s -> c.packageName().startsWith(s)),
+                parallelism
+        );
+    }
+
+    /**
+     * Parallel version of {@link #create(ClassUniverse, Predicate)}, using a dedicated {@link ForkJoinPool} with the
+     * given parallelism. Each worker fills its own partial class usage map, and the partial maps are merged afterward,
+     * so no locking is needed. The result is the same as that of {@link #create(ClassUniverse, Predicate)}.
+     */
+    public static EnhancedClassUniverse createInParallel(
+            ClassUniverse classUniverse,
+            Predicate<ClassDesc> mustBeInClassUsageMap,
+            int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism <= 0 not allowed");
+
+        try (ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism)) {
+            Map<ClassDesc, Set<ClassDesc>> classUsageMap = AnalysisPhase.run(
+                    "scanClassUsage",
+                    () -> forkJoinPool.submit(() ->
+                            classUniverse.getClassDescs().parallelStream()
+                                    .filter(mustBeInClassUsageMap)
+                                    .collect(classUsageMapCollector(classUniverse))
+                    ).join(),
+                    Map::size
+            );
+
+            return new EnhancedClassUniverse(
+                    classUniverse,
+                    AnalysisPhase.run("buildClassUsageMap", () -> toImmutableClassUsageMap(classUsageMap), Map::size)
+            );
         }
+    }
+
+    /**
+     * Returns an updated {@link EnhancedClassUniverse} for the given updated {@link ClassUniverse}, in which only the given
+     * classes have been added, changed or removed. Only the code of those classes (before and after the update) is
+     * inspected. The class usage map is patched for the affected used classes only, and all other entries are reused as-is.
+     * <p>
+     * The predicate must be the same one that has been used to create this {@link EnhancedClassUniverse}.
+     */
+    public EnhancedClassUniverse update(
+            ClassUniverse newClassUniverse,
+            Set<ClassDesc> addedChangedOrRemovedClasses,
+            Predicate<ClassDesc> mustBeInClassUsageMap) {
+        Map<ClassDesc, ImmutableSet<ClassDesc>> oldUsedClasses =
+                findUsedClasses(classUniverse, addedChangedOrRemovedClasses, mustBeInClassUsageMap);
+        Map<ClassDesc, ImmutableSet<ClassDesc>> newUsedClasses =
+                findUsedClasses(newClassUniverse, addedChangedOrRemovedClasses, mustBeInClassUsageMap);
+
+        Set<ClassDesc> affectedUsedClasses = new LinkedHashSet<>();
+        oldUsedClasses.values().forEach(affectedUsedClasses::addAll);
+        newUsedClasses.values().forEach(affectedUsedClasses::addAll);
+
+        Map<ClassDesc, ImmutableList<ClassDesc>> patchedEntries = new LinkedHashMap<>();
+
+        for (ClassDesc usedClass : affectedUsedClasses) {
+            LinkedHashSet<ClassDesc> usingClasses = new LinkedHashSet<>(classUsageMap.getOrDefault(usedClass, ImmutableList.of()));
+            usingClasses.removeAll(addedChangedOrRemovedClasses);
+
+            newUsedClasses.forEach((usingClass, usedClasses) -> {
+                if (usedClasses.contains(usedClass)) {
+                    usingClasses.add(usingClass);
+                }
+            });
+
+            patchedEntries.put(usedClass, ImmutableList.copyOf(usingClasses));
+        }
+
+        ImmutableMap.Builder<ClassDesc, ImmutableList<ClassDesc>> classUsageMapBuilder = ImmutableMap.builder();
+        classUsageMap.forEach((usedClass, usingClasses) -> {
+            if (!patchedEntries.containsKey(usedClass)) {
+                classUsageMapBuilder.put(usedClass, usingClasses);
+            }
+        });
+        patchedEntries.forEach((usedClass, usingClasses) -> {
+            if (!usingClasses.isEmpty()) {
+                classUsageMapBuilder.put(usedClass, usingClasses);
+            }
+        });
+
+        return new EnhancedClassUniverse(newClassUniverse, classUsageMapBuilder.build());
+    }
 
-        ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> classUsageMap = classUsageMapBuilder
-                .entrySet()
+    /**
+     * Returns a {@link Collector} from using classes to the class usage map, with set semantics for the using classes.
+     * Partial maps are combined in encounter order, so the using classes are in the same order as for a sequential stream.
+     */
+    private static Collector<ClassDesc, ?, Map<ClassDesc, Set<ClassDesc>>> classUsageMapCollector(ClassUniverse classUniverse) {
+        return Collector.of(
+                HashMap::new,
+                (Map<ClassDesc, Set<ClassDesc>> acc, ClassDesc usingClass) ->
+                        findUsedClasses(classUniverse.resolveClass(usingClass)).forEach(usedClass ->
+                                acc.computeIfAbsent(usedClass, _ -> new LinkedHashSet<>()).add(usingClass)
+                        ),
+                (acc1, acc2) -> {
+                    acc2.forEach((usedClass, usingClasses) ->
+                            acc1.computeIfAbsent(usedClass, _ -> new LinkedHashSet<>()).addAll(usingClasses)
+                    );
+                    return acc1;
+                }
+        );
+    }
+
+    private static ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> toImmutableClassUsageMap(Map<ClassDesc, Set<ClassDesc>> classUsageMap) {
+        return classUsageMap.entrySet()
                 .stream()
-                .collect(
-                        ImmutableMap.toImmutableMap(
-                                Map.Entry::getKey,
-                                kv -> kv.getValue().stream().distinct().collect(ImmutableList.toImmutableList())
-                        )
-                );
-
-        return new EnhancedClassUniverse(classUniverse, classUsageMap);
+                .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, kv -> ImmutableList.copyOf(kv.getValue())));
+    }
+
+    private static Map<ClassDesc, ImmutableSet<ClassDesc>> findUsedClasses(
+            ClassUniverse classUniverse,
+            Set<ClassDesc> classes,
+            Predicate<ClassDesc> mustBeInClassUsageMap) {
+        Map<ClassDesc, ImmutableSet<ClassDesc>> result = new LinkedHashMap<>();
+
+        for (ClassDesc classDesc : classes) {
+            if (mustBeInClassUsageMap.test(classDesc) && classUniverse.containsClass(classDesc)) {
+                result.put(classDesc, findUsedClasses(classUniverse.resolveClass(classDesc)));
+            }
+        }
+        return result;
+    }
+
+    private static ImmutableSet<ClassDesc> findUsedClasses(ClassModel classModel) {
+        return classModel.methods().stream()
+                .flatMap(m -> m.code().stream())
+                .flatMap(CodeModel::elementStream)
+                .flatMap(codeElem ->
+                        codeElem instanceof InvokeInstruction invokeInstruction ?
+                                Stream.of(invokeInstruction.owner().asSymbol()) :
+                                Stream.empty()
+                )
+                .collect(ImmutableSet.toImmutableSet());
     }
 }
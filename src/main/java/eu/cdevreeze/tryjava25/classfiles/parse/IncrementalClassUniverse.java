@@ -0,0 +1,227 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Holder of an {@link EnhancedClassUniverse} that can be updated incrementally, after some class files or JAR files
+ * on the classpath have been added, changed or removed. For example, after a "mvn compile" typically only a few
+ * class files in "target/classes" have changed.
+ * <p>
+ * Change detection is based on file size and last modification time. Directories are tracked per class file, and JAR
+ * files as a whole. Only added and changed class files and JAR files are parsed again. The class usage map is
+ * patched using {@link EnhancedClassUniverse#update(ClassUniverse, Set, Predicate)}, and the memoized supertype closures
+ * and subtype index are patched using {@link ClassUniverse#update(ImmutableMap, Set)}, so no unchanged class is resolved.
+ * <p>
+ * This class is not thread-safe, but the {@link EnhancedClassUniverse} instances it hands out are immutable.
+ *
+ * @author Chris de Vreeze
+ */
+public final class IncrementalClassUniverse {
+
+    public record UpdateResult(
+            ImmutableSet<ClassDesc> addedClasses,
+            ImmutableSet<ClassDesc> changedClasses,
+            ImmutableSet<ClassDesc> removedClasses
+    ) {
+
+        public boolean isEmpty() {
+            return addedClasses.isEmpty() && changedClasses.isEmpty() && removedClasses.isEmpty();
+        }
+
+        public ImmutableSet<ClassDesc> allClasses() {
+            return ImmutableSet.<ClassDesc>builder()
+                    .addAll(addedClasses)
+                    .addAll(changedClasses)
+                    .addAll(removedClasses)
+                    .build();
+        }
+    }
+
+    private record FileState(long size, long lastModifiedMillis, ClassModel classModel) {
+    }
+
+    /**
+     * State of one classpath entry. For a directory, the class files are tracked individually, and for a JAR file
+     * the fingerprint of the JAR file is used.
+     */
+    private record EntryState(
+            ClassPathFingerprint.EntryFingerprint fingerprint,
+            ImmutableMap<Path, FileState> classFiles,
+            ImmutableMap<ClassDesc, ClassModel> classes
+    ) {
+    }
+
+    private final ClassModelParser classModelParser;
+    private final Predicate<ClassDesc> mustBeInClassUsageMap;
+
+    private ImmutableMap<Path, EntryState> entryStates;
+    private EnhancedClassUniverse classUniverse;
+
+    private IncrementalClassUniverse(ClassModelParser classModelParser, Predicate<ClassDesc> mustBeInClassUsageMap) {
+        this.classModelParser = classModelParser;
+        this.mustBeInClassUsageMap = mustBeInClassUsageMap;
+        this.entryStates = ImmutableMap.of();
+        this.classUniverse = EnhancedClassUniverse.create(new ClassUniverse(ImmutableMap.of()), mustBeInClassUsageMap);
+    }
+
+    public static IncrementalClassUniverse create(ClassModelParser classModelParser, String classPath, List<String> packageNameStartStrings) {
+        return create(
+                classModelParser,
+                classPath,
+                c -> packageNameStartStrings.stream().anyMatch(s -> c.packageName().startsWith(s))
+        );
+    }
+
+    public static IncrementalClassUniverse create(ClassModelParser classModelParser, String classPath, Predicate<ClassDesc> mustBeInClassUsageMap) {
+        IncrementalClassUniverse result = new IncrementalClassUniverse(classModelParser, mustBeInClassUsageMap);
+        result.entryStates = result.computeEntryStates(ClassModelParser.splitClassPath(classPath));
+        result.classUniverse = EnhancedClassUniverse.create(new ClassUniverse(result.computeUniverse()), mustBeInClassUsageMap);
+        return result;
+    }
+
+    public EnhancedClassUniverse getClassUniverse() {
+        return classUniverse;
+    }
+
+    /**
+     * Updates this object for the same classpath as before, re-parsing only what has changed.
+     */
+    public UpdateResult update() {
+        return update(entryStates.keySet().asList());
+    }
+
+    /**
+     * Updates this object for the given (possibly changed) classpath, re-parsing only what has changed.
+     */
+    public UpdateResult update(String classPath) {
+        return update(ClassModelParser.splitClassPath(classPath));
+    }
+
+    private UpdateResult update(List<Path> cpEntries) {
+        ImmutableMap<ClassDesc, ClassModel> oldUniverse = classUniverse.getClassUniverse().getUniverse();
+
+        entryStates = computeEntryStates(cpEntries);
+        ImmutableMap<ClassDesc, ClassModel> newUniverse = computeUniverse();
+
+        UpdateResult updateResult = new UpdateResult(
+                Sets.difference(newUniverse.keySet(), oldUniverse.keySet()).immutableCopy(),
+                newUniverse.keySet().stream()
+                        .filter(oldUniverse::containsKey)
+                        // Unchanged classes have been reused, so a different ClassModel instance means a change
+                        .filter(c -> newUniverse.get(c) != oldUniverse.get(c))
+                        .collect(ImmutableSet.toImmutableSet()),
+                Sets.difference(oldUniverse.keySet(), newUniverse.keySet()).immutableCopy()
+        );
+
+        if (!updateResult.isEmpty()) {
+            // Patching the memoized supertype closures and subtype index, instead of starting from scratch
+            ClassUniverse newClassUniverse = classUniverse.getClassUniverse().update(newUniverse, updateResult.allClasses());
+            classUniverse = classUniverse.update(newClassUniverse, updateResult.allClasses(), mustBeInClassUsageMap);
+        }
+        return updateResult;
+    }
+
+    private ImmutableMap<Path, EntryState> computeEntryStates(List<Path> cpEntries) {
+        ImmutableMap.Builder<Path, EntryState> builder = ImmutableMap.builder();
+        for (Path cpEntry : cpEntries) {
+            Optional<EntryState> previousStateOption = Optional.ofNullable(entryStates.get(cpEntry));
+            builder.put(cpEntry, computeEntryState(cpEntry, previousStateOption));
+        }
+        return builder.buildKeepingLast();
+    }
+
+    private EntryState computeEntryState(Path cpEntry, Optional<EntryState> previousStateOption) {
+        if (Files.isDirectory(cpEntry)) {
+            return computeDirectoryState(cpEntry, previousStateOption);
+        }
+
+        ClassPathFingerprint.EntryFingerprint fingerprint = ClassPathFingerprint.fingerprintEntry(cpEntry);
+
+        if (previousStateOption.isPresent() && previousStateOption.get().fingerprint().equals(fingerprint)) {
+            return previousStateOption.get();
+        } else if (Files.isRegularFile(cpEntry) && cpEntry.getFileName().toString().endsWith(".jar")) {
+            return new EntryState(fingerprint, ImmutableMap.of(), classModelParser.parseMappedJarFile(cpEntry));
+        } else {
+            // Removed JAR file, or not a JAR file at all
+            return new EntryState(fingerprint, ImmutableMap.of(), ImmutableMap.of());
+        }
+    }
+
+    private EntryState computeDirectoryState(Path directory, Optional<EntryState> previousStateOption) {
+        Preconditions.checkArgument(Files.isDirectory(directory));
+
+        ImmutableMap<Path, FileState> previousClassFiles =
+                previousStateOption.map(EntryState::classFiles).orElse(ImmutableMap.of());
+
+        ImmutableMap.Builder<Path, FileState> classFilesBuilder = ImmutableMap.builder();
+
+        try (Stream<Path> fileStream = Files.walk(directory)) {
+            List<Path> classFiles = fileStream
+                    .filter(Files::isRegularFile)
+                    .filter(f -> f.getFileName().toString().endsWith(".class"))
+                    .toList();
+
+            for (Path classFile : classFiles) {
+                BasicFileAttributes attrs = Files.readAttributes(classFile, BasicFileAttributes.class);
+                long size = attrs.size();
+                long lastModifiedMillis = attrs.lastModifiedTime().toMillis();
+
+                FileState previousFileState = previousClassFiles.get(classFile);
+
+                if (previousFileState != null &&
+                        previousFileState.size() == size &&
+                        previousFileState.lastModifiedMillis() == lastModifiedMillis) {
+                    classFilesBuilder.put(classFile, previousFileState);
+                } else {
+                    classFilesBuilder.put(classFile, new FileState(size, lastModifiedMillis, classModelParser.parseClassFile(classFile)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ImmutableMap<Path, FileState> classFileStates = classFilesBuilder.build();
+
+        ImmutableMap<ClassDesc, ClassModel> classes = classFileStates.values().stream()
+                .map(FileState::classModel)
+                .collect(ImmutableMap.toImmutableMap(c -> c.thisClass().asSymbol(), c -> c));
+
+        return new EntryState(
+                new ClassPathFingerprint.EntryFingerprint(
+                        directory.toString(),
+                        classFileStates.values().stream().mapToLong(FileState::size).sum(),
+                        classFileStates.values().stream().mapToLong(FileState::lastModifiedMillis).max().orElse(0),
+                        classFileStates.size()
+                ),
+                classFileStates,
+                classes
+        );
+    }
+
+    private ImmutableMap<ClassDesc, ClassModel> computeUniverse() {
+        // Same shadowing semantics as ClassModelParser.parseClassPath
+        ImmutableMap.Builder<ClassDesc, ClassModel> builder = ImmutableMap.builder();
+        entryStates.values().forEach(entryState -> builder.putAll(entryState.classes()));
+        return builder.buildKeepingLast();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Process-wide thread-safe resolver of JDK classes, reading them from the "jrt:/" file system.
+ * <p>
+ * The mapping from packages to system modules is computed once, so JDK classes are found in any system module,
+ * and not just in module "java.base". Parsed {@link ClassModel} instances are memoized by method
+ * {@link #resolveClass(ClassDesc)}, so a class like "java.lang.Object" is parsed only once per process.
+ * Method {@link #parseClass(ClassDesc)} does not memoize anything.
+ *
+ * @author Chris de Vreeze
+ */
+public final class JdkClassResolver {
+
+    private static final JdkClassResolver INSTANCE = new JdkClassResolver();
+
+    private final FileSystem jrtFileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+    private final ImmutableMap<String, String> packageToModuleMap;
+    private final ImmutableSet<String> javaSePackages;
+    private final ConcurrentMap<ClassDesc, ClassModel> classModelCache = new ConcurrentHashMap<>();
+
+    private JdkClassResolver() {
+        Set<ModuleReference> systemModules = ModuleFinder.ofSystem().findAll();
+
+        this.packageToModuleMap = systemModules.stream()
+                .map(ModuleReference::descriptor)
+                .flatMap(md -> md.packages().stream().map(pkg -> Map.entry(pkg, md.name())))
+                .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, Map.Entry::getValue, (m1, m2) -> m1));
+
+        ImmutableSet<String> javaSeModules = findModuleAndRequiredModules("java.se", systemModules);
+        this.javaSePackages = packageToModuleMap.entrySet().stream()
+                .filter(kv -> javaSeModules.contains(kv.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    public static JdkClassResolver getInstance() {
+        return INSTANCE;
+    }
+
+    public Optional<String> findModuleName(String packageName) {
+        return Optional.ofNullable(packageToModuleMap.get(packageName));
+    }
+
+    public boolean isJdkClass(ClassDesc classDesc) {
+        return classDesc.isClassOrInterface() && packageToModuleMap.containsKey(classDesc.packageName());
+    }
+
+    /**
+     * Returns true if the package is in module "java.se" or in one of the modules it (indirectly) requires.
+     */
+    public boolean isJavaSePackage(String packageName) {
+        return javaSePackages.contains(packageName);
+    }
+
+    /**
+     * Returns the memoized {@link ClassModel} of the given JDK class, parsing it on first use.
+     * An {@link UncheckedIOException} is thrown if the class cannot be found.
+     */
+    public ClassModel resolveClass(ClassDesc classDesc) {
+        Preconditions.checkArgument(classDesc.isClassOrInterface());
+
+        ClassModel cachedClassModel = classModelCache.get(classDesc);
+        if (cachedClassModel != null) {
+            return cachedClassModel;
+        }
+        return classModelCache.computeIfAbsent(classDesc, this::parseClass);
+    }
+
+    /**
+     * Returns true if the given JDK class has already been parsed (and memoized), without parsing it.
+     */
+    boolean isParsed(ClassDesc classDesc) {
+        return classModelCache.containsKey(classDesc);
+    }
+
+    /**
+     * Parses the given JDK class, without memoizing the result. This is meant for callers that only extract some data
+     * from the {@link ClassModel}, and do not want it to be retained for the lifetime of the process.
+     * An {@link UncheckedIOException} is thrown if the class cannot be found.
+     */
+    public ClassModel parseClass(ClassDesc classDesc) {
+        Preconditions.checkArgument(classDesc.isClassOrInterface());
+
+        try {
+            String packageNameAsPath = classDesc.packageName().replace('.', '/');
+            String simpleClassNameAsFileName = classDesc.displayName() + ".class";
+            String classNameAsPath = packageNameAsPath.isEmpty() ? simpleClassNameAsFileName : packageNameAsPath + "/" + simpleClassNameAsFileName;
+
+            String moduleName = findModuleName(classDesc.packageName())
+                    .orElseThrow(() -> new NoSuchFileException(classNameAsPath, null, "Not in any system module"));
+            Path classFilePath = jrtFileSystem.getPath("modules", moduleName, classNameAsPath);
+
+            return ClassFile.of().parse(classFilePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ImmutableSet<String> findModuleAndRequiredModules(String moduleName, Set<ModuleReference> systemModules) {
+        Map<String, ModuleDescriptor> moduleDescriptors = systemModules.stream()
+                .map(ModuleReference::descriptor)
+                .collect(Collectors.toMap(ModuleDescriptor::name, md -> md));
+
+        Set<String> result = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>(List.of(moduleName));
+
+        while (!queue.isEmpty()) {
+            String currentModuleName = queue.removeFirst();
+
+            if (moduleDescriptors.containsKey(currentModuleName) && result.add(currentModuleName)) {
+                moduleDescriptors.get(currentModuleName).requires()
+                        .forEach(req -> queue.addLast(req.name()));
+            }
+        }
+        return ImmutableSet.copyOf(result);
+    }
+}
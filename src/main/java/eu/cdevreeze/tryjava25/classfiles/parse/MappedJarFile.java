@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Read-only JAR file that is memory-mapped as one {@link MemorySegment}, reading the ZIP central directory itself
+ * instead of going through {@link JarFile}.
+ * <p>
+ * The only per-entry allocation when reading an entry is the resulting byte array. STORED entries are copied
+ * straight from the mapped segment into that array, and DEFLATED entries are inflated from the mapped segment
+ * into that array, using pooled {@link Inflater} instances. Note that the byte array cannot be reused, because
+ * the lazily evaluated {@link ClassModel} parsed from it keeps referring to it.
+ * <p>
+ * Entries under "META-INF/versions/" are skipped, which is what {@link JarFile#versionedStream()} does for
+ * multi-release JAR files opened with the base version. ZIP64 archives are not supported; opening them fails
+ * with a {@link ZipException}.
+ * <p>
+ * Instances are thread-safe and must be closed after use.
+ *
+ * @author Chris de Vreeze
+ */
+public final class MappedJarFile implements AutoCloseable {
+
+    public record Entry(String name, int method, long compressedSize, long uncompressedSize, long localHeaderOffset) {
+    }
+
+    private static final ValueLayout.OfShort SHORT_LE = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
+    private final Path path;
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final ImmutableList<Entry> entries;
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    private MappedJarFile(Path path, Arena arena, MemorySegment segment) throws ZipException {
+        this.path = path;
+        this.arena = arena;
+        this.segment = segment;
+        this.entries = readCentralDirectory();
+    }
+
+    public static MappedJarFile open(Path jarFile) throws IOException {
+        Preconditions.checkArgument(Files.isRegularFile(jarFile));
+
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(jarFile, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return new MappedJarFile(jarFile, arena, segment);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public ImmutableList<Entry> getEntries() {
+        return entries;
+    }
+
+    public ImmutableList<Entry> getClassFileEntries() {
+        return entries.stream()
+                .filter(entry -> entry.name().endsWith(".class"))
+                .collect(ImmutableList.toImmutableList());
+    }
+
+    /**
+     * Returns the uncompressed content of the given entry, as one newly allocated byte array.
+     */
+    public byte[] readEntry(Entry entry) throws ZipException {
+        long dataOffset = findDataOffset(entry);
+        byte[] bytes = new byte[Math.toIntExact(entry.uncompressedSize())];
+
+        switch (entry.method()) {
+            case ZipEntry.STORED -> {
+                checkZip(entry.compressedSize() == entry.uncompressedSize(), "Corrupt STORED entry " + entry.name());
+                MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, dataOffset, bytes, 0, bytes.length);
+            }
+            case ZipEntry.DEFLATED -> inflate(segment.asSlice(dataOffset, entry.compressedSize()), bytes, entry);
+            default -> throw new ZipException("Unsupported compression method " + entry.method() + " for " + entry.name());
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+        arena.close();
+    }
+
+    private void inflate(MemorySegment compressedData, byte[] target, Entry entry) throws ZipException {
+        Inflater inflater = Optional.ofNullable(inflaters.poll()).orElseGet(() -> new Inflater(true));
+        try {
+            inflater.setInput(compressedData.asByteBuffer());
+
+            int offset = 0;
+            while (offset < target.length) {
+                int count = inflater.inflate(target, offset, target.length - offset);
+                checkZip(count > 0 || !(inflater.finished() || inflater.needsInput() || inflater.needsDictionary()),
+                        "Truncated DEFLATED entry " + entry.name());
+                offset += count;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt DEFLATED entry " + entry.name() + ": " + e.getMessage());
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+
+    private long findDataOffset(Entry entry) throws ZipException {
+        long offset = entry.localHeaderOffset();
+        checkZip(segment.get(INT_LE, offset) == LOCAL_FILE_HEADER_SIGNATURE, "No local header found for " + entry.name());
+
+        int nameLength = readUnsignedShort(offset + 26);
+        int extraLength = readUnsignedShort(offset + 28);
+        long dataOffset = offset + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+        checkZip(dataOffset + entry.compressedSize() <= segment.byteSize(), "Entry data out of bounds for " + entry.name());
+        return dataOffset;
+    }
+
+    private ImmutableList<Entry> readCentralDirectory() throws ZipException {
+        long endOfCentralDirectoryOffset = findEndOfCentralDirectory();
+
+        int entryCount = readUnsignedShort(endOfCentralDirectoryOffset + 10);
+        long centralDirectoryOffset = readUnsignedInt(endOfCentralDirectoryOffset + 16);
+        checkZip(entryCount != 0xFFFF && centralDirectoryOffset != 0xFFFFFFFFL, "ZIP64 not supported: " + path);
+
+        ImmutableList.Builder<Entry> builder = ImmutableList.builderWithExpectedSize(entryCount);
+        long offset = centralDirectoryOffset;
+
+        for (int i = 0; i < entryCount; i++) {
+            checkZip(offset + CENTRAL_DIRECTORY_HEADER_SIZE <= segment.byteSize(), "Truncated central directory: " + path);
+            checkZip(segment.get(INT_LE, offset) == CENTRAL_DIRECTORY_HEADER_SIGNATURE, "Corrupt central directory: " + path);
+
+            int method = readUnsignedShort(offset + 10);
+            long compressedSize = readUnsignedInt(offset + 20);
+            long uncompressedSize = readUnsignedInt(offset + 24);
+            int nameLength = readUnsignedShort(offset + 28);
+            int extraLength = readUnsignedShort(offset + 30);
+            int commentLength = readUnsignedShort(offset + 32);
+            long localHeaderOffset = readUnsignedInt(offset + 42);
+            checkZip(
+                    compressedSize != 0xFFFFFFFFL && uncompressedSize != 0xFFFFFFFFL && localHeaderOffset != 0xFFFFFFFFL,
+                    "ZIP64 not supported: " + path
+            );
+
+            byte[] nameBytes = new byte[nameLength];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset + CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes, 0, nameLength);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (!name.endsWith("/") && !name.startsWith(VERSIONS_DIRECTORY)) {
+                builder.add(new Entry(name, method, compressedSize, uncompressedSize, localHeaderOffset));
+            }
+
+            offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return builder.build();
+    }
+
+    private long findEndOfCentralDirectory() throws ZipException {
+        long lastPossibleOffset = segment.byteSize() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        // The ZIP file comment (at most 65535 bytes) follows the "end of central directory record"
+        long firstPossibleOffset = Math.max(0, lastPossibleOffset - 0xFFFF);
+
+        for (long offset = lastPossibleOffset; offset >= firstPossibleOffset; offset--) {
+            if (segment.get(INT_LE, offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return offset;
+            }
+        }
+        throw new ZipException("No end of central directory record found: " + path);
+    }
+
+    private int readUnsignedShort(long offset) {
+        return Short.toUnsignedInt(segment.get(SHORT_LE, offset));
+    }
+
+    private long readUnsignedInt(long offset) {
+        return Integer.toUnsignedLong(segment.get(INT_LE, offset));
+    }
+
+    private static void checkZip(boolean condition, String message) throws ZipException {
+        if (!condition) {
+            throw new ZipException(message);
+        }
+    }
+}
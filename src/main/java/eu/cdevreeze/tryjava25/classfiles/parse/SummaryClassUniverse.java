@@ -0,0 +1,158 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import eu.cdevreeze.tryjava25.classfiles.jfr.AnalysisPhase;
+
+/**
+ * Counterpart of {@link ClassUniverse} that only holds a {@link ClassSummary} per class, instead of a {@link ClassModel}.
+ * When creating it with method {@link #create(ClassModelParser, String, int)}, each class is summarized right after
+ * parsing it, so the class models and their class file bytes are never retained. Hence, the retained memory is
+ * proportional to the names, flags, hierarchy edges and call sites that are queried, and not to the class file sizes.
+ * <p>
+ * JDK classes are summarized on demand, without their code, and those summaries are memoized. Their class models are
+ * not memoized (see {@link JdkClassResolver#parseClass(ClassDesc)}). Like for {@link ClassUniverse}, supertype
+ * closures are memoized per class, and a reverse index from classes to their direct subtypes is built at construction.
+ * That logic is shared with {@link ClassUniverse}, see {@link TypeHierarchySupport}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Chris de Vreeze
+ */
+public final class SummaryClassUniverse implements TypeHierarchy {
+
+    private final ImmutableMap<ClassDesc, ClassSummary> summaries; // excludes JDK classes
+    private final ImmutableListMultimap<ClassDesc, ClassDesc> directSubtypes;
+
+    private final ConcurrentMap<ClassDesc, ClassSummary> jdkSummaryCache = new ConcurrentHashMap<>();
+    private final TypeHierarchySupport typeHierarchySupport =
+            new TypeHierarchySupport(c -> directSupertypesOf(resolveSummary(c)));
+
+    public SummaryClassUniverse(ImmutableMap<ClassDesc, ClassSummary> summaries) {
+        this.summaries = summaries;
+        this.directSubtypes = TypeHierarchySupport.computeDirectSubtypes(
+                summaries.keySet(),
+                c -> directSupertypesOf(Objects.requireNonNull(summaries.get(c)))
+        );
+    }
+
+    /**
+     * Parses the classpath in parallel, summarizing each class right after parsing it. See
+     * {@link ClassModelParser#parseClassPathInParallel(String, int, Function)}.
+     */
+    public static SummaryClassUniverse create(ClassModelParser classModelParser, String classPath, int parallelism) {
+        ImmutableMap<ClassDesc, ClassSummary> summaries =
+                classModelParser.parseClassPathInParallel(classPath, parallelism, ClassSummary::of);
+
+        return AnalysisPhase.run("buildSubtypeIndex", () -> new SummaryClassUniverse(summaries), u -> u.summaries.size());
+    }
+
+    /**
+     * Returns the summaries of all (non-JDK) classes.
+     */
+    public ImmutableMap<ClassDesc, ClassSummary> getSummaries() {
+        return summaries;
+    }
+
+    @Override
+    public ImmutableSet<ClassDesc> getClassDescs() {
+        return summaries.keySet();
+    }
+
+    @Override
+    public boolean containsClass(ClassDesc classDesc) {
+        return summaries.containsKey(classDesc);
+    }
+
+    /**
+     * Returns the summary of the given class, which is summarized on first use if it is a JDK class. Summaries of
+     * JDK classes have no instructions (see {@link ClassSummary#withoutCode(ClassModel)}), which suffices for
+     * hierarchy and method lookups. An {@link UncheckedIOException} is thrown if the class is neither in this universe
+     * nor in the JDK.
+     */
+    public ClassSummary resolveSummary(ClassDesc classDesc) {
+        ClassSummary summary = summaries.get(classDesc);
+        if (summary != null) {
+            return summary;
+        }
+
+        ClassSummary cachedSummary = jdkSummaryCache.get(classDesc);
+        if (cachedSummary != null) {
+            return cachedSummary;
+        }
+        return jdkSummaryCache.computeIfAbsent(
+                classDesc,
+                c -> ClassSummary.withoutCode(JdkClassResolver.getInstance().parseClass(c))
+        );
+    }
+
+    /**
+     * Like {@link #resolveSummary(ClassDesc)}, but JDK classes are summarized including their code. Those summaries
+     * are not memoized.
+     */
+    public ClassSummary resolveSummaryWithCode(ClassDesc classDesc) {
+        ClassSummary summary = summaries.get(classDesc);
+        return summary != null ? summary : ClassSummary.of(JdkClassResolver.getInstance().parseClass(classDesc));
+    }
+
+    /**
+     * Returns the class itself followed by all its superclasses, nearest first. The result is memoized.
+     */
+    public ImmutableList<ClassDesc> findAllSuperclassDescsOrSelf(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllSuperclassDescsOrSelf(classDesc);
+    }
+
+    /**
+     * Returns all directly or indirectly extended/implemented interfaces, excluding the class itself if it is an
+     * interface. The result is memoized.
+     */
+    public ImmutableList<ClassDesc> findAllInterfaceDescs(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllInterfaceDescs(classDesc);
+    }
+
+    @Override
+    public ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        return typeHierarchySupport.findAllSupertypeDescsOrSelf(classDesc);
+    }
+
+    /**
+     * Returns the direct subclasses and directly implementing/extending subtypes in this universe.
+     */
+    public ImmutableList<ClassDesc> findDirectSubtypeDescs(ClassDesc classDesc) {
+        return directSubtypes.get(classDesc);
+    }
+
+    @Override
+    public ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc) {
+        return TypeHierarchySupport.findAllSubtypeDescs(classDesc, directSubtypes::get);
+    }
+
+    @Override
+    public boolean isInterface(ClassDesc classDesc) {
+        return classDesc.isClassOrInterface() && resolveSummary(classDesc).isInterface();
+    }
+
+    private static TypeHierarchySupport.DirectSupertypes directSupertypesOf(ClassSummary summary) {
+        return new TypeHierarchySupport.DirectSupertypes(summary.superclass(), summary.interfaces());
+    }
+}
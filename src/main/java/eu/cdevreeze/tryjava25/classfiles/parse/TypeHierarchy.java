@@ -0,0 +1,62 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Type hierarchy of the (non-JDK) classes in a class universe, in terms of class names only. It is implemented both by
+ * {@link ClassUniverse}, which holds {@link ClassModel} instances, and by {@link SummaryClassUniverse}, which only
+ * holds class summaries.
+ *
+ * @author Chris de Vreeze
+ */
+public interface TypeHierarchy {
+
+    /**
+     * Returns all (non-JDK) class names.
+     */
+    ImmutableSet<ClassDesc> getClassDescs();
+
+    boolean containsClass(ClassDesc classDesc);
+
+    /**
+     * Returns the class itself, its superclasses, and all its interfaces, without duplicates.
+     */
+    ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc);
+
+    /**
+     * Returns all direct and indirect subtypes in this universe, excluding the class itself, in breadth-first order.
+     */
+    ImmutableList<ClassDesc> findAllSubtypeDescs(ClassDesc classDesc);
+
+    boolean isInterface(ClassDesc classDesc);
+
+    /**
+     * Finds all classes (not interfaces) in this universe that directly or indirectly implement the given interface.
+     */
+    default ImmutableList<ClassDesc> findAllImplementorDescs(ClassDesc interfaceDesc) {
+        Preconditions.checkArgument(isInterface(interfaceDesc));
+
+        return findAllSubtypeDescs(interfaceDesc).stream()
+                .filter(c -> !isInterface(c))
+                .collect(ImmutableList.toImmutableList());
+    }
+}
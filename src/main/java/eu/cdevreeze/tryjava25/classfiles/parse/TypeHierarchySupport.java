@@ -0,0 +1,182 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+
+/**
+ * Type hierarchy logic shared by {@link ClassUniverse} and {@link SummaryClassUniverse}, which only differ in how the
+ * direct supertypes of a class are found. That is, in terms of a "direct supertypes of" function, it offers memoized
+ * supertype closures, as well as the building and breadth-first traversal of a reverse index from classes to their
+ * direct subtypes.
+ * <p>
+ * Supertype closures are memoized per class (as class names), reusing the memoized closures of the direct supertypes.
+ * Hence, in diamond-shaped interface hierarchies, or across calls, the same closure is never computed twice.
+ * <p>
+ * This class is thread-safe, provided the "direct supertypes of" function is thread-safe.
+ *
+ * @author Chris de Vreeze
+ */
+final class TypeHierarchySupport {
+
+    /**
+     * The direct superclass (if any) and the directly implemented/extended interfaces of a class.
+     */
+    record DirectSupertypes(Optional<ClassDesc> superclass, List<ClassDesc> interfaces) {
+
+        static DirectSupertypes of(ClassModel classModel) {
+            return new DirectSupertypes(
+                    classModel.superclass().map(ClassEntry::asSymbol),
+                    classModel.interfaces().stream().map(ClassEntry::asSymbol).toList()
+            );
+        }
+
+        Stream<ClassDesc> stream() {
+            return Stream.concat(superclass.stream(), interfaces.stream());
+        }
+    }
+
+    private final Function<ClassDesc, DirectSupertypes> directSupertypesResolver;
+
+    private final ConcurrentMap<ClassDesc, ImmutableList<ClassDesc>> superclassesOrSelfCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ClassDesc, ImmutableList<ClassDesc>> interfacesCache = new ConcurrentHashMap<>();
+
+    TypeHierarchySupport(Function<ClassDesc, DirectSupertypes> directSupertypesResolver) {
+        this.directSupertypesResolver = directSupertypesResolver;
+    }
+
+    /**
+     * Returns the class itself followed by all its superclasses, nearest first. The result is memoized.
+     */
+    ImmutableList<ClassDesc> findAllSuperclassDescsOrSelf(ClassDesc classDesc) {
+        ImmutableList<ClassDesc> cachedResult = superclassesOrSelfCache.get(classDesc);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        // Not using computeIfAbsent, because recursive updates of a ConcurrentHashMap are not allowed
+        ImmutableList.Builder<ClassDesc> builder = ImmutableList.builder();
+        builder.add(classDesc);
+        // Recursion, reusing the (memoized) result of the superclass
+        directSupertypesResolver.apply(classDesc).superclass()
+                .ifPresent(sc -> builder.addAll(findAllSuperclassDescsOrSelf(sc)));
+
+        ImmutableList<ClassDesc> result = builder.build();
+        superclassesOrSelfCache.putIfAbsent(classDesc, result);
+        return result;
+    }
+
+    /**
+     * Returns all directly or indirectly extended/implemented interfaces, excluding the class itself if it is an
+     * interface. The result is memoized.
+     */
+    ImmutableList<ClassDesc> findAllInterfaceDescs(ClassDesc classDesc) {
+        ImmutableList<ClassDesc> cachedResult = interfacesCache.get(classDesc);
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        // This finds all own implemented/extended interfaces and their (memoized) superinterfaces,
+        // followed by the (memoized) interfaces of the superclass
+        DirectSupertypes directSupertypes = directSupertypesResolver.apply(classDesc);
+        Set<ClassDesc> interfaces = new LinkedHashSet<>();
+
+        for (ClassDesc itf : directSupertypes.interfaces()) {
+            interfaces.add(itf);
+            // Recursion
+            interfaces.addAll(findAllInterfaceDescs(itf));
+        }
+        // Recursion
+        directSupertypes.superclass().ifPresent(sc -> interfaces.addAll(findAllInterfaceDescs(sc)));
+
+        ImmutableList<ClassDesc> result = ImmutableList.copyOf(interfaces);
+        interfacesCache.putIfAbsent(classDesc, result);
+        return result;
+    }
+
+    /**
+     * Returns the class itself, its superclasses, and all its interfaces, without duplicates. The result is
+     * built from memoized results.
+     */
+    ImmutableList<ClassDesc> findAllSupertypeDescsOrSelf(ClassDesc classDesc) {
+        Set<ClassDesc> supertypes = new LinkedHashSet<>(findAllSuperclassDescsOrSelf(classDesc));
+        supertypes.addAll(findAllInterfaceDescs(classDesc));
+        return ImmutableList.copyOf(supertypes);
+    }
+
+    /**
+     * Copies the memoized closures that do not contain any of the given added, changed or removed classes into the
+     * given (typically fresh) instance.
+     */
+    void copyUnaffectedClosuresTo(TypeHierarchySupport target, Set<ClassDesc> addedChangedOrRemovedClasses) {
+        // The memoized closures contain the classes visited while computing them (for interfaces, along with the
+        // memoized superclasses), so they are stale if and only if one of those classes has been changed
+        superclassesOrSelfCache.forEach((classDesc, superclasses) -> {
+            if (Collections.disjoint(superclasses, addedChangedOrRemovedClasses)) {
+                target.superclassesOrSelfCache.put(classDesc, superclasses);
+            }
+        });
+        interfacesCache.forEach((classDesc, interfaces) -> {
+            ImmutableList<ClassDesc> superclasses = superclassesOrSelfCache.get(classDesc);
+
+            if (superclasses != null &&
+                    Collections.disjoint(superclasses, addedChangedOrRemovedClasses) &&
+                    Collections.disjoint(interfaces, addedChangedOrRemovedClasses)) {
+                target.interfacesCache.put(classDesc, interfaces);
+            }
+        });
+    }
+
+    /**
+     * Builds the reverse hierarchy index of the given classes, from (possibly JDK) supertypes to their direct subtypes.
+     */
+    static ImmutableListMultimap<ClassDesc, ClassDesc> computeDirectSubtypes(
+            Collection<ClassDesc> classDescs,
+            Function<ClassDesc, DirectSupertypes> directSupertypesResolver) {
+        ImmutableListMultimap.Builder<ClassDesc, ClassDesc> builder = ImmutableListMultimap.builder();
+
+        for (ClassDesc classDesc : classDescs) {
+            if (classDesc.isClassOrInterface()) {
+                directSupertypesResolver.apply(classDesc).stream().forEach(sc -> builder.put(sc, classDesc));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns all direct and indirect subtypes, excluding the class itself, in breadth-first order, given the
+     * direct subtypes per class. This takes time proportional to the size of the result.
+     */
+    static ImmutableList<ClassDesc> findAllSubtypeDescs(
+            ClassDesc classDesc,
+            Function<ClassDesc, ? extends Collection<ClassDesc>> directSubtypes) {
+        Set<ClassDesc> result = new LinkedHashSet<>();
+        Deque<ClassDesc> queue = new ArrayDeque<>(directSubtypes.apply(classDesc));
+
+        while (!queue.isEmpty()) {
+            ClassDesc subtype = queue.removeFirst();
+
+            if (result.add(subtype)) {
+                queue.addAll(directSubtypes.apply(subtype));
+            }
+        }
+        return ImmutableList.copyOf(result);
+    }
+}
@@ -15,7 +15,8 @@
  */
 
 /**
- * Support for parsing "classpaths" into collections of {@link java.lang.classfile.ClassModel} instances.
+ * Support for parsing "classpaths" into collections of {@link java.lang.classfile.ClassModel} instances, or into
+ * collections of class summaries, which do not retain the class models.
  *
  * @author Chris de Vreeze
  */
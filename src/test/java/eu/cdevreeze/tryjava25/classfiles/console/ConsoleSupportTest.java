@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.console;
+
+import module java.base;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the reuse of off-heap files by {@link ConsoleSupport}, with a plain text "off-heap" file, so that the
+ * reuse logic is tested independently of the off-heap formats.
+ *
+ * @author Chris de Vreeze
+ */
+class ConsoleSupportTest {
+
+    @TempDir
+    Path tempDir;
+
+    private int writeCount = 0;
+
+    @Test
+    void testFileWithSameKeyIsReused() {
+        Path file = tempDir.resolve("index.bin");
+
+        assertEquals("content 1", mapOrCreate(file, Optional.of("key")));
+        assertEquals("content 1", mapOrCreate(file, Optional.of("key")));
+        assertEquals(1, writeCount);
+    }
+
+    @Test
+    void testFileWithOtherKeyIsRewritten() {
+        Path file = tempDir.resolve("index.bin");
+
+        assertEquals("content 1", mapOrCreate(file, Optional.of("key")));
+        assertEquals("content 2", mapOrCreate(file, Optional.of("other key")));
+        assertEquals("content 2", mapOrCreate(file, Optional.of("other key")));
+        assertEquals(2, writeCount);
+    }
+
+    @Test
+    void testFileWithoutKeyIsNeverReused() {
+        Path file = tempDir.resolve("index.bin");
+
+        assertEquals("content 1", mapOrCreate(file, Optional.of("key")));
+        assertEquals("content 2", mapOrCreate(file, Optional.empty()));
+        assertEquals("content 3", mapOrCreate(file, Optional.empty()));
+        // The key of the first file has been removed along with that file
+        assertEquals("content 4", mapOrCreate(file, Optional.of("key")));
+        assertEquals(4, writeCount);
+    }
+
+    @Test
+    void testCorruptFileIsRewritten() throws IOException {
+        Path file = tempDir.resolve("index.bin");
+
+        assertEquals("content 1", mapOrCreate(file, Optional.of("key")));
+        Files.writeString(file, "corrupt");
+        assertEquals("content 2", mapOrCreate(file, Optional.of("key")));
+        assertEquals(2, writeCount);
+    }
+
+    @Test
+    void testKeyDependsOnClassPathAndParameters() throws IOException {
+        Path classesDir = Files.createDirectories(tempDir.resolve("classes"));
+        Files.write(classesDir.resolve("A.class"), new byte[]{1, 2, 3});
+
+        String oldInspectionClasspath = System.getProperty("inspectionClasspath");
+        try {
+            System.setProperty("inspectionClasspath", classesDir.toString());
+
+            Optional<String> key = ConsoleSupport.offHeapFileKey(ImmutableMap.of("rootPackage", "com.example"));
+            assertTrue(key.isPresent());
+            assertEquals(key, ConsoleSupport.offHeapFileKey(ImmutableMap.of("rootPackage", "com.example")));
+            assertNotEquals(key, ConsoleSupport.offHeapFileKey(ImmutableMap.of("rootPackage", "com.example.other")));
+
+            Files.write(classesDir.resolve("B.class"), new byte[]{4, 5});
+            assertNotEquals(key, ConsoleSupport.offHeapFileKey(ImmutableMap.of("rootPackage", "com.example")));
+
+            System.clearProperty("inspectionClasspath");
+            assertEquals(Optional.empty(), ConsoleSupport.offHeapFileKey(ImmutableMap.of("rootPackage", "com.example")));
+        } finally {
+            if (oldInspectionClasspath == null) {
+                System.clearProperty("inspectionClasspath");
+            } else {
+                System.setProperty("inspectionClasspath", oldInspectionClasspath);
+            }
+        }
+    }
+
+    private String mapOrCreate(Path file, Optional<String> keyOption) {
+        return ConsoleSupport.mapOrCreateOffHeapFile(
+                file,
+                keyOption,
+                f -> {
+                    String content = readString(f);
+                    if (content.equals("corrupt")) {
+                        throw new IllegalArgumentException("Corrupt file");
+                    }
+                    return content;
+                },
+                f -> {
+                    writeCount += 1;
+                    writeString(f, "content " + writeCount);
+                }
+        );
+    }
+
+    private static String readString(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(Path file, String content) {
+        try {
+            Files.writeString(file, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
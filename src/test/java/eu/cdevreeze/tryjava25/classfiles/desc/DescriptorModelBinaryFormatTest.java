@@ -0,0 +1,215 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.desc;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round-trip tests of {@link DescriptorModelBinaryFormat}, writing records and reading them back.
+ *
+ * @author Chris de Vreeze
+ */
+class DescriptorModelBinaryFormatTest {
+
+    private static final ClassDesc CD_SERVICE = ClassDesc.of("com.example", "Service");
+    private static final ClassDesc CD_BOOTSTRAPS = ClassDesc.of("com.example", "Bootstraps");
+    private static final ClassDesc CD_LAMBDA_METAFACTORY = ClassDesc.of("java.lang.invoke", "LambdaMetafactory");
+
+    private static final DescriptorModel.Method METHOD = new DescriptorModel.Method(
+            "process",
+            MethodTypeDesc.of(ConstantDescs.CD_void, ConstantDescs.CD_String, ConstantDescs.CD_int.arrayType()),
+            CD_SERVICE,
+            // Including flags whose masks mean something else for fields
+            ImmutableSet.of(AccessFlag.PUBLIC, AccessFlag.STATIC, AccessFlag.SYNCHRONIZED, AccessFlag.VARARGS)
+    );
+
+    private static final DescriptorModel.InvokeInstruction INVOKE_INSTRUCTION = new DescriptorModel.InvokeInstruction(
+            Opcode.INVOKEINTERFACE,
+            ConstantDescs.CD_List,
+            "get",
+            MethodTypeDesc.of(ConstantDescs.CD_Object, ConstantDescs.CD_int),
+            true
+    );
+
+    // Lambda, with method type and (direct) method handle bootstrap arguments
+    private static final DescriptorModel.InvokeDynamicInstruction LAMBDA_INSTRUCTION = invokeDynamicInstruction(
+            "apply",
+            MethodTypeDesc.of(ClassDesc.of("java.util.function", "Function")),
+            MethodHandleDesc.ofMethod(
+                    DirectMethodHandleDesc.Kind.STATIC,
+                    CD_LAMBDA_METAFACTORY,
+                    "metafactory",
+                    MethodTypeDesc.of(
+                            ConstantDescs.CD_CallSite,
+                            ConstantDescs.CD_MethodHandles_Lookup,
+                            ConstantDescs.CD_String,
+                            ConstantDescs.CD_MethodType,
+                            ConstantDescs.CD_MethodType,
+                            ConstantDescs.CD_MethodHandle,
+                            ConstantDescs.CD_MethodType
+                    )
+            ),
+            MethodTypeDesc.of(ConstantDescs.CD_Object, ConstantDescs.CD_Object),
+            MethodHandleDesc.ofMethod(
+                    DirectMethodHandleDesc.Kind.INTERFACE_VIRTUAL,
+                    ConstantDescs.CD_List,
+                    "size",
+                    MethodTypeDesc.of(ConstantDescs.CD_int)
+            ),
+            MethodTypeDesc.of(ConstantDescs.CD_Integer, ConstantDescs.CD_List)
+    );
+
+    // Custom bootstrap method, with (nested) dynamic constant, method handle (of kinds whose interface flag or lookup
+    // descriptor differs from the plain virtual method case) and primitive bootstrap arguments
+    private static final DescriptorModel.InvokeDynamicInstruction CONDY_INSTRUCTION = invokeDynamicInstruction(
+            "compute",
+            MethodTypeDesc.of(ConstantDescs.CD_long, ConstantDescs.CD_String),
+            MethodHandleDesc.ofMethod(
+                    DirectMethodHandleDesc.Kind.STATIC,
+                    CD_BOOTSTRAPS,
+                    "callSite",
+                    MethodTypeDesc.of(
+                            ConstantDescs.CD_CallSite,
+                            ConstantDescs.CD_MethodHandles_Lookup,
+                            ConstantDescs.CD_String,
+                            ConstantDescs.CD_MethodType,
+                            ConstantDescs.CD_Object.arrayType()
+                    )
+            ),
+            DynamicConstantDesc.ofNamed(
+                    MethodHandleDesc.ofMethod(
+                            DirectMethodHandleDesc.Kind.STATIC,
+                            CD_BOOTSTRAPS,
+                            "constant",
+                            MethodTypeDesc.of(
+                                    ConstantDescs.CD_Object,
+                                    ConstantDescs.CD_MethodHandles_Lookup,
+                                    ConstantDescs.CD_String,
+                                    ConstantDescs.CD_Class,
+                                    ConstantDescs.CD_Object.arrayType()
+                            )
+                    ),
+                    "config",
+                    CD_SERVICE,
+                    "text",
+                    CD_SERVICE,
+                    DynamicConstantDesc.ofNamed(ConstantDescs.BSM_NULL_CONSTANT, "nested", ConstantDescs.CD_String)
+            ),
+            MethodHandleDesc.ofMethod(
+                    DirectMethodHandleDesc.Kind.INTERFACE_STATIC,
+                    ConstantDescs.CD_List,
+                    "of",
+                    MethodTypeDesc.of(ConstantDescs.CD_List)
+            ),
+            MethodHandleDesc.ofConstructor(CD_SERVICE, ConstantDescs.CD_String),
+            MethodHandleDesc.ofField(
+                    DirectMethodHandleDesc.Kind.STATIC_GETTER,
+                    CD_SERVICE,
+                    "DEFAULT",
+                    CD_SERVICE
+            ),
+            "text",
+            42,
+            -42L,
+            1.5F,
+            -2.5D
+    );
+
+    @Test
+    void testRoundTripOfAllRecordTypes() {
+        ImmutableList<Object> records = ImmutableList.of(
+                METHOD,
+                INVOKE_INSTRUCTION,
+                LAMBDA_INSTRUCTION,
+                CONDY_INSTRUCTION,
+                new DescriptorModel.InvokeInstructionAndContainingMethod(INVOKE_INSTRUCTION, METHOD),
+                new DescriptorModel.InvokeDynamicInstructionAndContainingMethod(LAMBDA_INSTRUCTION, METHOD),
+                new DescriptorModel.InvokeDynamicInstructionAndContainingMethod(CONDY_INSTRUCTION, METHOD)
+        );
+
+        assertEquals(records, readAll(write(records)));
+    }
+
+    @Test
+    void testUnknownRecordTypeIsSkipped() {
+        byte[] bytes = write(ImmutableList.of(METHOD, INVOKE_INSTRUCTION));
+
+        // Insert a record with unknown tag 99 and a 3-byte payload right after the header (magic number and version)
+        int headerLength = 5;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(bytes, 0, headerLength);
+        bos.writeBytes(new byte[]{99, 3, 1, 2, 3});
+        bos.write(bytes, headerLength, bytes.length - headerLength);
+
+        assertEquals(List.of(METHOD, INVOKE_INSTRUCTION), readAll(bos.toByteArray()));
+    }
+
+    @Test
+    void testTruncatedRecordIsRejected() {
+        byte[] bytes = write(ImmutableList.of(METHOD, INVOKE_INSTRUCTION));
+        byte[] truncatedBytes = Arrays.copyOf(bytes, bytes.length - 1);
+
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class, () -> readAll(truncatedBytes));
+        assertInstanceOf(EOFException.class, exception.getCause());
+    }
+
+    @Test
+    void testWrongMagicNumberIsRejected() {
+        byte[] bytes = write(ImmutableList.of(METHOD));
+        bytes[0] = 0;
+
+        assertThrows(IllegalArgumentException.class, () -> readAll(bytes));
+    }
+
+    private static DescriptorModel.InvokeDynamicInstruction invokeDynamicInstruction(
+            String name,
+            MethodTypeDesc typeSymbol,
+            DirectMethodHandleDesc bootstrapMethod,
+            ConstantDesc... bootstrapArgs) {
+        return new DescriptorModel.InvokeDynamicInstruction(
+                Opcode.INVOKEDYNAMIC,
+                name,
+                typeSymbol,
+                DynamicCallSiteDesc.of(bootstrapMethod, name, typeSymbol, bootstrapArgs),
+                bootstrapMethod,
+                ImmutableList.copyOf(bootstrapArgs)
+        );
+    }
+
+    private static byte[] write(List<?> records) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DescriptorModelBinaryFormat.Writer writer = DescriptorModelBinaryFormat.Writer.open(bos)) {
+            writer.writeAll(records.stream());
+        }
+        return bos.toByteArray();
+    }
+
+    private static List<Object> readAll(byte[] bytes) {
+        try (DescriptorModelBinaryFormat.Reader reader =
+                     DescriptorModelBinaryFormat.Reader.open(new ByteArrayInputStream(bytes))) {
+            return reader.stream().toList();
+        }
+    }
+}
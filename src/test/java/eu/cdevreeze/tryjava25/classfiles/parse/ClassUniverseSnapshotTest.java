@@ -0,0 +1,176 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trip tests of {@link ClassUniverseSnapshot}, writing the universe snapshot and class usage map snapshot,
+ * and loading them again instead of parsing the classpath and building the class usage map.
+ *
+ * @author Chris de Vreeze
+ */
+class ClassUniverseSnapshotTest {
+
+    private static final ClassDesc CD_A = TestClassFiles.classDesc("A");
+    private static final ClassDesc CD_B = TestClassFiles.classDesc("B");
+    private static final ClassDesc CD_C = TestClassFiles.classDesc("C");
+    private static final ClassDesc CD_OTHER = ClassDesc.of("org.other", "Other");
+
+    private static final List<String> ROOT_PACKAGES = List.of(TestClassFiles.ROOT_PACKAGE);
+
+    @TempDir
+    Path tempDir;
+
+    private Path classesDir;
+    private Path snapshotFile;
+
+    @BeforeEach
+    void writeClassFiles() {
+        classesDir = tempDir.resolve("classes");
+        snapshotFile = tempDir.resolve("universe.snapshot");
+
+        TestClassFiles.writeClassFile(classesDir, CD_A, List.of(CD_B));
+        TestClassFiles.writeClassFile(classesDir, CD_B, List.of());
+        TestClassFiles.writeClassFile(classesDir, CD_C, List.of(CD_A, CD_B));
+        TestClassFiles.writeClassFile(classesDir, CD_OTHER, List.of(CD_B));
+    }
+
+    @Test
+    void testRoundTripOfUniverseAndClassUsageMap() {
+        EnhancedClassUniverse created = loadOrCreate(ROOT_PACKAGES, new AtomicInteger(), new AtomicInteger());
+
+        // The order of the using classes depends on the order in which the class files are found
+        assertEquals(
+                ImmutableMap.of(CD_B, ImmutableSet.of(CD_A, CD_C), CD_A, ImmutableSet.of(CD_C)),
+                toSetValues(created.getClassUsageMap())
+        );
+        assertTrue(Files.isRegularFile(snapshotFile));
+        assertTrue(Files.isRegularFile(ClassUniverseSnapshot.classUsageMapFile(snapshotFile, ROOT_PACKAGES)));
+
+        AtomicInteger universeCreations = new AtomicInteger();
+        AtomicInteger classUsageMapCreations = new AtomicInteger();
+        EnhancedClassUniverse loaded = loadOrCreate(ROOT_PACKAGES, universeCreations, classUsageMapCreations);
+
+        assertEquals(0, universeCreations.get());
+        assertEquals(0, classUsageMapCreations.get());
+        assertEquals(created.getClassUsageMap(), loaded.getClassUsageMap());
+        assertEquals(
+                created.getClassUniverse().getClassDescs(),
+                loaded.getClassUniverse().getClassDescs()
+        );
+        // The lazily loaded class universe parses the class file bytes stored in the snapshot
+        assertEquals(
+                methodNames(created.getClassUniverse().resolveClass(CD_C)),
+                methodNames(loaded.getClassUniverse().resolveClass(CD_C))
+        );
+    }
+
+    @Test
+    void testClassUsageMapIsBuiltForOtherRootPackages() {
+        loadOrCreate(ROOT_PACKAGES, new AtomicInteger(), new AtomicInteger());
+
+        AtomicInteger universeCreations = new AtomicInteger();
+        AtomicInteger classUsageMapCreations = new AtomicInteger();
+        EnhancedClassUniverse loaded = loadOrCreate(List.of("org.other"), universeCreations, classUsageMapCreations);
+
+        // The universe snapshot is shared, but the class usage map depends on the root packages
+        assertEquals(0, universeCreations.get());
+        assertEquals(1, classUsageMapCreations.get());
+        assertEquals(ImmutableMap.of(CD_B, ImmutableList.of(CD_OTHER)), loaded.getClassUsageMap());
+    }
+
+    @Test
+    void testChangedClassPathInvalidatesSnapshots() throws IOException {
+        loadOrCreate(ROOT_PACKAGES, new AtomicInteger(), new AtomicInteger());
+
+        Path classFileOfD = TestClassFiles.writeClassFile(classesDir, TestClassFiles.classDesc("D"), List.of(CD_C));
+        Files.setLastModifiedTime(classFileOfD, FileTime.from(Instant.now().plusSeconds(10)));
+
+        AtomicInteger universeCreations = new AtomicInteger();
+        AtomicInteger classUsageMapCreations = new AtomicInteger();
+        EnhancedClassUniverse loaded = loadOrCreate(ROOT_PACKAGES, universeCreations, classUsageMapCreations);
+
+        assertEquals(1, universeCreations.get());
+        assertEquals(1, classUsageMapCreations.get());
+        assertEquals(ImmutableList.of(TestClassFiles.classDesc("D")), loaded.getClassUsageMap().get(CD_C));
+    }
+
+    @Test
+    void testClassUsageMapWithOtherFingerprintIsNotRead() {
+        ClassPathFingerprint fingerprint = ClassPathFingerprint.of(classesDir.toString());
+        Path classUsageMapFile = ClassUniverseSnapshot.classUsageMapFile(snapshotFile, ROOT_PACKAGES);
+        ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> classUsageMap = ImmutableMap.of(CD_B, ImmutableList.of(CD_A));
+
+        ClassUniverseSnapshot.writeClassUsageMap(classUsageMapFile, fingerprint, ROOT_PACKAGES, classUsageMap);
+
+        assertEquals(
+                Optional.of(classUsageMap),
+                ClassUniverseSnapshot.readClassUsageMap(classUsageMapFile, fingerprint, ROOT_PACKAGES)
+        );
+        assertEquals(
+                Optional.empty(),
+                ClassUniverseSnapshot.readClassUsageMap(classUsageMapFile, ClassPathFingerprint.of(tempDir.toString()), ROOT_PACKAGES)
+        );
+        assertEquals(
+                Optional.empty(),
+                ClassUniverseSnapshot.readClassUsageMap(classUsageMapFile, fingerprint, List.of("org.other"))
+        );
+    }
+
+    private EnhancedClassUniverse loadOrCreate(
+            List<String> packageNameStartStrings,
+            AtomicInteger universeCreations,
+            AtomicInteger classUsageMapCreations) {
+        ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+        return ClassUniverseSnapshot.loadOrCreate(
+                snapshotFile,
+                classesDir.toString(),
+                packageNameStartStrings,
+                classModelParser.classFile(),
+                () -> {
+                    universeCreations.incrementAndGet();
+                    return new ClassUniverse(classModelParser.parseClassPath(classesDir.toString()));
+                },
+                classUniverse -> {
+                    classUsageMapCreations.incrementAndGet();
+                    return EnhancedClassUniverse.create(classUniverse, packageNameStartStrings);
+                }
+        );
+    }
+
+    private static ImmutableMap<ClassDesc, ImmutableSet<ClassDesc>> toSetValues(
+            ImmutableMap<ClassDesc, ImmutableList<ClassDesc>> classUsageMap) {
+        return classUsageMap.entrySet().stream()
+                .collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, kv -> ImmutableSet.copyOf(kv.getValue())));
+    }
+
+    private static List<String> methodNames(ClassModel classModel) {
+        return classModel.methods().stream().map(m -> m.methodName().stringValue()).toList();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Behaviour tests of {@link IncrementalClassUniverse}, adding, changing and removing class files in a directory on the
+ * classpath, and comparing the updated class universe with one created from scratch.
+ *
+ * @author Chris de Vreeze
+ */
+class IncrementalClassUniverseTest {
+
+    private static final ClassDesc CD_BASE = TestClassFiles.classDesc("Base");
+    private static final ClassDesc CD_TASK = TestClassFiles.classDesc("Task");
+    private static final ClassDesc CD_A = TestClassFiles.classDesc("A");
+    private static final ClassDesc CD_B = TestClassFiles.classDesc("B");
+    private static final ClassDesc CD_C = TestClassFiles.classDesc("C");
+    private static final ClassDesc CD_D = TestClassFiles.classDesc("D");
+
+    private static final List<String> ROOT_PACKAGES = List.of(TestClassFiles.ROOT_PACKAGE);
+
+    @TempDir
+    Path tempDir;
+
+    private final ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+    private Path classesDir;
+    private IncrementalClassUniverse incrementalClassUniverse;
+
+    @BeforeEach
+    void createIncrementalClassUniverse() {
+        classesDir = tempDir.resolve("classes");
+
+        TestClassFiles.writeClassFile(classesDir, CD_BASE, List.of());
+        TestClassFiles.writeInterfaceFile(classesDir, CD_TASK);
+        TestClassFiles.writeClassFile(classesDir, CD_A, CD_BASE, List.of(CD_B));
+        TestClassFiles.writeClassFile(classesDir, CD_B, List.of());
+        TestClassFiles.writeClassFile(classesDir, CD_C, CD_A, List.of(CD_TASK), List.of(CD_A, CD_B));
+
+        incrementalClassUniverse = IncrementalClassUniverse.create(classModelParser, classesDir.toString(), ROOT_PACKAGES);
+
+        // Fill the memoized supertype closures and the subtype index, which are patched by an update
+        assertEquals(fromScratch(), snapshotOf(incrementalClassUniverse.getClassUniverse()));
+    }
+
+    @Test
+    void testUpdateWithoutChangesKeepsClassUniverse() {
+        EnhancedClassUniverse classUniverseBeforeUpdate = incrementalClassUniverse.getClassUniverse();
+
+        IncrementalClassUniverse.UpdateResult updateResult = incrementalClassUniverse.update();
+
+        assertTrue(updateResult.isEmpty());
+        assertTrue(classUniverseBeforeUpdate == incrementalClassUniverse.getClassUniverse());
+    }
+
+    @Test
+    void testUpdateAfterAddingChangingAndRemovingClasses() throws IOException {
+        // Added class, extending a class whose supertypes change
+        touch(TestClassFiles.writeClassFile(classesDir, CD_D, CD_C, List.of(CD_C)));
+        // Changed class, no longer extending Base, and calling C instead of B
+        touch(TestClassFiles.writeClassFile(classesDir, CD_A, ConstantDescs.CD_Object, List.of(CD_TASK), List.of(CD_C)));
+        // Removed class, which is still called by C
+        Files.delete(classesDir.resolve("com/example/B.class"));
+
+        IncrementalClassUniverse.UpdateResult updateResult = incrementalClassUniverse.update();
+
+        assertEquals(ImmutableSet.of(CD_D), updateResult.addedClasses());
+        assertEquals(ImmutableSet.of(CD_A), updateResult.changedClasses());
+        assertEquals(ImmutableSet.of(CD_B), updateResult.removedClasses());
+
+        UniverseSnapshot expected = fromScratch();
+        assertEquals(expected, snapshotOf(incrementalClassUniverse.getClassUniverse()));
+
+        // Checking some facts, to make sure that the comparison above is meaningful
+        assertEquals(ImmutableSet.of(CD_A, CD_D), expected.classUsageMap().get(CD_C));
+        assertEquals(ImmutableSet.of(CD_C), expected.classUsageMap().get(CD_B));
+        assertEquals(ImmutableSet.of(CD_A, CD_C, CD_D), expected.subtypes().get(CD_TASK));
+        assertEquals(ImmutableSet.of(), expected.subtypes().get(CD_BASE));
+    }
+
+    @Test
+    void testUpdateAfterRemovingClassFromClassPath() throws IOException {
+        Path otherClassesDir = tempDir.resolve("other-classes");
+        TestClassFiles.writeClassFile(otherClassesDir, CD_D, CD_BASE, List.of(CD_A));
+        String classPath = String.join(File.pathSeparator, classesDir.toString(), otherClassesDir.toString());
+
+        IncrementalClassUniverse.UpdateResult updateResult = incrementalClassUniverse.update(classPath);
+
+        assertEquals(ImmutableSet.of(CD_D), updateResult.addedClasses());
+        assertEquals(fromScratch(classPath), snapshotOf(incrementalClassUniverse.getClassUniverse()));
+
+        updateResult = incrementalClassUniverse.update(classesDir.toString());
+
+        assertEquals(ImmutableSet.of(CD_D), updateResult.removedClasses());
+        assertEquals(fromScratch(), snapshotOf(incrementalClassUniverse.getClassUniverse()));
+    }
+
+    /**
+     * The facts of a class universe that are compared, with sets instead of lists, because the order in which
+     * classes are found is not the same after an update.
+     */
+    private record UniverseSnapshot(
+            ImmutableSet<ClassDesc> classes,
+            ImmutableMap<ClassDesc, ImmutableSet<ClassDesc>> supertypesOrSelf,
+            ImmutableMap<ClassDesc, ImmutableSet<ClassDesc>> subtypes,
+            ImmutableMap<ClassDesc, ImmutableSet<ClassDesc>> classUsageMap
+    ) {
+    }
+
+    private UniverseSnapshot fromScratch() {
+        return fromScratch(classesDir.toString());
+    }
+
+    private UniverseSnapshot fromScratch(String classPath) {
+        ClassUniverse classUniverse = new ClassUniverse(classModelParser.parseClassPath(classPath));
+        return snapshotOf(EnhancedClassUniverse.create(classUniverse, ROOT_PACKAGES));
+    }
+
+    private static UniverseSnapshot snapshotOf(EnhancedClassUniverse enhancedClassUniverse) {
+        ClassUniverse classUniverse = enhancedClassUniverse.getClassUniverse();
+        ImmutableSet<ClassDesc> classes = ImmutableSet.copyOf(classUniverse.getClassDescs());
+
+        return new UniverseSnapshot(
+                classes,
+                classes.stream().collect(ImmutableMap.toImmutableMap(
+                        c -> c,
+                        c -> ImmutableSet.copyOf(classUniverse.findAllSupertypeDescsOrSelf(c))
+                )),
+                classes.stream().collect(ImmutableMap.toImmutableMap(
+                        c -> c,
+                        c -> ImmutableSet.copyOf(classUniverse.findAllSubtypeDescs(c))
+                )),
+                enhancedClassUniverse.getClassUsageMap().entrySet().stream().collect(ImmutableMap.toImmutableMap(
+                        Map.Entry::getKey,
+                        kv -> ImmutableSet.copyOf(kv.getValue())
+                ))
+        );
+    }
+
+    private static void touch(Path file) throws IOException {
+        // Making sure the change is detected, even if the file size is the same, within the file time granularity
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+import eu.cdevreeze.tryjava25.classfiles.data.ClassSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of lazily loaded class universes backed by a {@link ClassLocationIndex}, with a cache so small that classes
+ * are evicted all the time, comparing them with an eagerly loaded class universe.
+ *
+ * @author Chris de Vreeze
+ */
+class LazyClassUniverseTest {
+
+    private static final ClassDesc CD_BASE = TestClassFiles.classDesc("Base");
+    private static final ClassDesc CD_TASK = TestClassFiles.classDesc("Task");
+    private static final ClassDesc CD_A = TestClassFiles.classDesc("A");
+    private static final ClassDesc CD_B = TestClassFiles.classDesc("B");
+    private static final ClassDesc CD_C = TestClassFiles.classDesc("C");
+
+    @TempDir
+    Path tempDir;
+
+    private final ClassModelParser classModelParser = new ClassModelParser(ClassFile.of());
+
+    private ClassUniverse eagerClassUniverse;
+
+    @BeforeEach
+    void writeClassFiles() {
+        TestClassFiles.writeClassFile(tempDir, CD_BASE, List.of());
+        TestClassFiles.writeInterfaceFile(tempDir, CD_TASK);
+        TestClassFiles.writeClassFile(tempDir, CD_A, CD_BASE, List.of(CD_B));
+        TestClassFiles.writeClassFile(tempDir, CD_B, List.of());
+        TestClassFiles.writeClassFile(tempDir, CD_C, CD_A, List.of(CD_TASK), List.of(CD_A, CD_B));
+
+        eagerClassUniverse = new ClassUniverse(classModelParser.parseClassPath(tempDir.toString()));
+    }
+
+    @Test
+    void testEvictedClassIsParsedAgain() {
+        try (ClassLocationIndex classLocationIndex = ClassLocationIndex.create(classModelParser, tempDir.toString())) {
+            Map<ClassDesc, Integer> loadCounts = new ConcurrentHashMap<>();
+            ClassUniverse classUniverse = ClassUniverse.lazy(
+                    classLocationIndex.getClassLocations().keySet(),
+                    classDesc -> {
+                        loadCounts.merge(classDesc, 1, Integer::sum);
+                        return classLocationIndex.loadClass(classDesc);
+                    },
+                    1
+            );
+
+            classUniverse.resolveClass(CD_A);
+            classUniverse.resolveClass(CD_A);
+            assertEquals(1, loadCounts.get(CD_A));
+
+            // Evicts A from the cache
+            classUniverse.resolveClass(CD_C);
+
+            ClassModel reparsedClassModel = classUniverse.resolveClass(CD_A);
+            assertEquals(2, loadCounts.get(CD_A));
+            assertEquals(ClassSummary.of(eagerClassUniverse.resolveClass(CD_A)), ClassSummary.of(reparsedClassModel));
+        }
+    }
+
+    @Test
+    void testLazyClassUniverseHasSameTypeHierarchyAsEagerOne() {
+        try (ClassLocationIndex classLocationIndex = ClassLocationIndex.create(classModelParser, tempDir.toString())) {
+            ClassUniverse classUniverse = ClassUniverse.lazy(classLocationIndex, 1);
+
+            assertEquals(eagerClassUniverse.getClassDescs(), classUniverse.getClassDescs());
+
+            for (ClassDesc classDesc : eagerClassUniverse.getClassDescs()) {
+                assertEquals(
+                        ClassSummary.of(eagerClassUniverse.resolveClass(classDesc)),
+                        ClassSummary.of(classUniverse.resolveClass(classDesc))
+                );
+                assertEquals(
+                        eagerClassUniverse.findAllSupertypeDescsOrSelf(classDesc),
+                        classUniverse.findAllSupertypeDescsOrSelf(classDesc)
+                );
+                assertEquals(
+                        Set.copyOf(eagerClassUniverse.findAllSubtypeDescs(classDesc)),
+                        Set.copyOf(classUniverse.findAllSubtypeDescs(classDesc))
+                );
+            }
+            assertEquals(List.of(CD_C, CD_A, CD_BASE, ConstantDescs.CD_Object, CD_TASK), classUniverse.findAllSupertypeDescsOrSelf(CD_C));
+            assertEquals(Set.of(CD_A, CD_C), Set.copyOf(classUniverse.findAllSubtypeDescs(CD_BASE)));
+        }
+    }
+}
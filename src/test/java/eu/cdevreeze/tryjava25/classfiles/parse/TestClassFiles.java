@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025-2026 Chris de Vreeze
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.cdevreeze.tryjava25.classfiles.parse;
+
+import module java.base;
+
+/**
+ * Generator of small class files for the tests in this package, written to an exploded directory on the classpath.
+ * Each generated class has a static "helper" method, and a static "run" method calling the "helper" methods of the
+ * given called classes. Generated interfaces have no methods.
+ *
+ * @author Chris de Vreeze
+ */
+final class TestClassFiles {
+
+    static final String ROOT_PACKAGE = "com.example";
+
+    private static final MethodTypeDesc MTD_void = MethodTypeDesc.of(ConstantDescs.CD_void);
+
+    private TestClassFiles() {
+    }
+
+    static ClassDesc classDesc(String simpleClassName) {
+        return ClassDesc.of(ROOT_PACKAGE, simpleClassName);
+    }
+
+    /**
+     * Writes the class file of a class extending {@link Object} to the given directory, returning the class file path.
+     */
+    static Path writeClassFile(Path directory, ClassDesc classDesc, List<ClassDesc> calledClasses) {
+        return writeClassFile(directory, classDesc, ConstantDescs.CD_Object, calledClasses);
+    }
+
+    /**
+     * Writes the class file of a class with the given superclass to the given directory, returning the class file path.
+     */
+    static Path writeClassFile(Path directory, ClassDesc classDesc, ClassDesc superclass, List<ClassDesc> calledClasses) {
+        return writeClassFile(directory, classDesc, superclass, List.of(), calledClasses);
+    }
+
+    /**
+     * Writes the class file of a class with the given superclass and interfaces to the given directory, returning the
+     * class file path.
+     */
+    static Path writeClassFile(
+            Path directory,
+            ClassDesc classDesc,
+            ClassDesc superclass,
+            List<ClassDesc> interfaces,
+            List<ClassDesc> calledClasses) {
+        return write(directory, classDesc, ClassFile.of().build(classDesc, classBuilder -> {
+            classBuilder.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_SUPER);
+            classBuilder.withSuperclass(superclass);
+            classBuilder.withInterfaceSymbols(interfaces);
+            classBuilder.withMethodBody(
+                    "helper",
+                    MTD_void,
+                    ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC,
+                    CodeBuilder::return_
+            );
+            classBuilder.withMethodBody(
+                    "run",
+                    MTD_void,
+                    ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC,
+                    codeBuilder -> {
+                        calledClasses.forEach(calledClass -> codeBuilder.invokestatic(calledClass, "helper", MTD_void));
+                        codeBuilder.return_();
+                    }
+            );
+        }));
+    }
+
+    /**
+     * Writes the class file of an interface without methods to the given directory, returning the class file path.
+     */
+    static Path writeInterfaceFile(Path directory, ClassDesc classDesc) {
+        return write(directory, classDesc, ClassFile.of().build(classDesc, classBuilder -> {
+            classBuilder.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_INTERFACE | ClassFile.ACC_ABSTRACT);
+            classBuilder.withSuperclass(ConstantDescs.CD_Object);
+        }));
+    }
+
+    private static Path write(Path directory, ClassDesc classDesc, byte[] classBytes) {
+        Path classFile = directory.resolve(classDesc.packageName().replace('.', '/'))
+                .resolve(classDesc.displayName() + ".class");
+        try {
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, classBytes);
+            return classFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}